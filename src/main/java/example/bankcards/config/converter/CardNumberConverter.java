@@ -0,0 +1,36 @@
+package example.bankcards.config.converter;
+
+import example.bankcards.entity.CardNumber;
+import example.bankcards.until.EncryptionUtil;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.Mutability;
+import org.hibernate.type.descriptor.java.Immutability;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps {@code cards.card_number} to {@link CardNumber}.
+ * <p>
+ * Reading a row only wraps the ciphertext; decryption is deferred to {@link CardNumber#reveal()}.
+ * This is the only place card numbers cross between the entity and the database, so any
+ * counting or timing of crypto work belongs here.
+ */
+@Component
+@Converter
+@RequiredArgsConstructor
+@Mutability(Immutability.class)
+public class CardNumberConverter implements AttributeConverter<CardNumber, String> {
+
+    private final EncryptionUtil encryptionUtil;
+
+    @Override
+    public String convertToDatabaseColumn(CardNumber cardNumber) {
+        return cardNumber == null ? null : cardNumber.ciphertext(encryptionUtil::encrypt);
+    }
+
+    @Override
+    public CardNumber convertToEntityAttribute(String ciphertext) {
+        return ciphertext == null ? null : CardNumber.ofCiphertext(ciphertext, encryptionUtil::decrypt);
+    }
+}
@@ -0,0 +1,16 @@
+package example.bankcards.config.encryption;
+
+import example.bankcards.until.EncryptionKeyRing;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(EncryptionProperties.class)
+public class EncryptionConfig {
+
+    @Bean
+    public EncryptionKeyRing encryptionKeyRing(EncryptionProperties properties) {
+        return new EncryptionKeyRing(properties.getAesKey(), properties.getKeys(), properties.getActiveKeyId());
+    }
+}
@@ -0,0 +1,40 @@
+package example.bankcards.config.encryption;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "security.encryption")
+public class EncryptionProperties {
+
+    /**
+     * Raw key of the card numbers written before the key ring (AES/ECB, no key id prefix).
+     */
+    private String aesKey;
+
+    /**
+     * Id of the ring key used for new writes.
+     */
+    private String activeKeyId;
+
+    /**
+     * Ring keys by id, Base64 encoded.
+     */
+    private Map<String, String> keys = new LinkedHashMap<>();
+
+    private Reencryption reencryption = new Reencryption();
+
+    @Getter
+    @Setter
+    public static class Reencryption {
+        private boolean enabled = true;
+        private int chunkSize = 200;
+        private int rowsPerSecond = 500;
+        private long delayMs = 60000;
+    }
+}
@@ -0,0 +1,9 @@
+package example.bankcards.config.export;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ExportProperties.class)
+public class ExportConfig {
+}
@@ -0,0 +1,21 @@
+package example.bankcards.config.export;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cards.export")
+public class ExportProperties {
+
+    /**
+     * Rows the JDBC driver pulls per round trip; bounds the rows held in memory at once.
+     */
+    private int fetchSize = 1000;
+
+    /**
+     * Bytes buffered before a write reaches the response.
+     */
+    private int bufferSize = 64 * 1024;
+}
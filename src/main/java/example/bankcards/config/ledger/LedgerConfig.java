@@ -0,0 +1,9 @@
+package example.bankcards.config.ledger;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(LedgerProperties.class)
+public class LedgerConfig {
+}
@@ -0,0 +1,53 @@
+package example.bankcards.config.ledger;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cards.ledger")
+public class LedgerProperties {
+
+    private Checkpoint checkpoint = new Checkpoint();
+
+    private Reconciliation reconciliation = new Reconciliation();
+
+    @Getter
+    @Setter
+    public static class Checkpoint {
+
+        /**
+         * How far behind now a checkpoint is taken, so entries of transactions still open
+         * when it runs are not left out of it.
+         */
+        private long lagMs = 60_000;
+
+        /**
+         * Card ids covered per insert statement.
+         */
+        private int chunkSize = 1000;
+
+        /**
+         * Checkpoints older than this are dropped once a newer one exists for the card.
+         */
+        private long retentionMs = 30L * 86_400_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Reconciliation {
+
+        private boolean enabled = true;
+
+        /**
+         * Fork-join parallelism; each worker holds a database connection while it runs.
+         */
+        private int parallelism = 4;
+
+        /**
+         * Card id range below which a reconciliation task stops splitting and queries.
+         */
+        private int chunkSize = 5000;
+    }
+}
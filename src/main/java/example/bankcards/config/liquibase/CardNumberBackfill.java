@@ -0,0 +1,108 @@
+package example.bankcards.config.liquibase;
+
+import example.bankcards.until.EncryptionUtil;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Base for changes that derive a {@code cards} column from the decrypted card number.
+ * <p>
+ * Rows are walked in id order, {@code batchSize} at a time, and every batch is committed
+ * on its own so the table is never locked for the whole run. Only rows where the target
+ * column is still {@code NULL} are touched, so an interrupted run simply continues where
+ * it stopped.
+ */
+@Slf4j
+public abstract class CardNumberBackfill implements CustomTaskChange {
+
+    // Liquibase only sets a customChange attribute that has both a getter and a setter
+    @Getter
+    @Setter
+    private String aesKey;
+    @Getter
+    @Setter
+    private String batchSize = "500";
+
+    private int updated;
+
+    protected abstract String column();
+
+    protected abstract void prepare();
+
+    protected abstract String compute(String cardNumber);
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        EncryptionUtil encryptionUtil = new EncryptionUtil(aesKey);
+        prepare();
+        int limit = Integer.parseInt(batchSize);
+        String selectBatch = "SELECT id, card_number FROM cards WHERE " + column() + " IS NULL AND id > ? ORDER BY id LIMIT ?";
+        String updateRow = "UPDATE cards SET " + column() + " = ? WHERE id = ?";
+
+        try {
+            Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+            long lastId = 0;
+            int fetched;
+            do {
+                fetched = 0;
+                try (PreparedStatement select = connection.prepareStatement(selectBatch);
+                     PreparedStatement update = connection.prepareStatement(updateRow)) {
+                    select.setLong(1, lastId);
+                    select.setInt(2, limit);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            lastId = rs.getLong("id");
+                            String cardNumber = encryptionUtil.decrypt(rs.getString("card_number"));
+                            update.setString(1, compute(cardNumber));
+                            update.setLong(2, lastId);
+                            update.addBatch();
+                            fetched++;
+                        }
+                    }
+                    if (fetched > 0) {
+                        update.executeBatch();
+                    }
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                updated += fetched;
+                log.info("Backfill of cards.{}: {} rows done, last id {}", column(), updated, lastId);
+            } while (fetched == limit);
+        } catch (SQLException e) {
+            throw new CustomChangeException("Backfill of cards." + column() + " failed", e);
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "cards." + column() + " filled for " + updated + " cards";
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        ValidationErrors errors = new ValidationErrors();
+        errors.checkRequiredField("aesKey", aesKey);
+        return errors;
+    }
+}
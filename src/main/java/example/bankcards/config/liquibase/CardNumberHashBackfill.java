@@ -0,0 +1,41 @@
+package example.bankcards.config.liquibase;
+
+import example.bankcards.until.BlindIndexUtil;
+import liquibase.database.Database;
+import liquibase.exception.ValidationErrors;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Fills {@code cards.card_number_hash} for rows written before the blind index existed.
+ */
+public class CardNumberHashBackfill extends CardNumberBackfill {
+
+    @Getter
+    @Setter
+    private String hmacKey;
+
+    private BlindIndexUtil blindIndexUtil;
+
+    @Override
+    protected String column() {
+        return "card_number_hash";
+    }
+
+    @Override
+    protected void prepare() {
+        blindIndexUtil = new BlindIndexUtil(hmacKey);
+    }
+
+    @Override
+    protected String compute(String cardNumber) {
+        return blindIndexUtil.hash(cardNumber);
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        ValidationErrors errors = super.validate(database);
+        errors.checkRequiredField("hmacKey", hmacKey);
+        return errors;
+    }
+}
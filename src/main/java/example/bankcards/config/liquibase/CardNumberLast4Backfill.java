@@ -0,0 +1,23 @@
+package example.bankcards.config.liquibase;
+
+import example.bankcards.entity.Card;
+
+/**
+ * Fills {@code cards.card_number_last4} for cards issued before the column existed.
+ */
+public class CardNumberLast4Backfill extends CardNumberBackfill {
+
+    @Override
+    protected String column() {
+        return "card_number_last4";
+    }
+
+    @Override
+    protected void prepare() {
+    }
+
+    @Override
+    protected String compute(String cardNumber) {
+        return Card.lastFourOf(cardNumber);
+    }
+}
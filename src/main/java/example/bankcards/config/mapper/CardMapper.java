@@ -3,23 +3,27 @@ package example.bankcards.config.mapper;
 import example.bankcards.dto.card.CardRequestDto;
 import example.bankcards.dto.card.CardResponseDto;
 import example.bankcards.entity.Card;
+import example.bankcards.entity.CardNumber;
 import example.bankcards.entity.CardStatus;
 import example.bankcards.entity.User;
-import example.bankcards.until.EncryptionUtil;
+import example.bankcards.until.BlindIndexUtil;
+import example.bankcards.until.ParallelDecryptor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class CardMapper {
 
-    private final EncryptionUtil encryptionUtil;
+    private final BlindIndexUtil blindIndexUtil;
+    private final ParallelDecryptor parallelDecryptor;
 
     public CardResponseDto toOpenDto(Card card) {
         if (card == null) return null;
-        String decrypted = encryptionUtil.decrypt(card.getCardNumber());
+        String decrypted = card.getCardNumber().reveal();
         return CardResponseDto.builder()
                 .id(card.getId())
                 .expirationDate(card.getExpirationDate())
@@ -30,17 +34,26 @@ public class CardMapper {
                 .build();
     }
 
+    /**
+     * Bulk variant of {@link #toOpenDto(Card)}: card numbers are decrypted up front, in parallel
+     * for large lists, and the result keeps the order of {@code cards}.
+     */
+    public List<CardResponseDto> toOpenDtos(List<Card> cards) {
+        parallelDecryptor.revealAll(cards.stream().map(Card::getCardNumber).toList());
+        return cards.stream()
+                .map(this::toOpenDto)
+                .toList();
+    }
+
     public CardResponseDto toDto(Card card) {
         if (card == null) return null;
 
-        String decryptedNumber = encryptionUtil.decrypt(card.getCardNumber());
-
         return CardResponseDto.builder()
                 .id(card.getId())
                 .expirationDate(card.getExpirationDate())
                 .status(card.getStatus() != null ? card.getStatus().name() : null)
                 .balance(card.getBalance())
-                .maskedCardNumber(card.getMaskedCardNumber(decryptedNumber))
+                .maskedCardNumber(card.getMaskedCardNumber())
                 .ownerId(card.getOwner() != null ? card.getOwner().getId() : null)
                 .build();
     }
@@ -48,10 +61,10 @@ public class CardMapper {
     public Card toEntity(CardRequestDto dto, User owner) {
         if (dto == null || owner == null) return null;
 
-        String encryptedNumber = encryptionUtil.encrypt(dto.getCardNumber());
-
         return Card.builder()
-                .cardNumber(encryptedNumber)
+                .cardNumber(CardNumber.ofPlain(dto.getCardNumber()))
+                .cardNumberHash(blindIndexUtil.hash(dto.getCardNumber()))
+                .cardNumberLast4(Card.lastFourOf(dto.getCardNumber()))
                 .expirationDate(dto.getExpirationDate())
                 .status(CardStatus.ACTIVE)
                 .balance(dto.getBalance() != null ? dto.getBalance() : BigDecimal.ZERO)
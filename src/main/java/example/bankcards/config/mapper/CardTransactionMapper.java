@@ -2,6 +2,7 @@ package example.bankcards.config.mapper;
 
 import example.bankcards.dto.card.CardTransactionDto;
 import example.bankcards.entity.CardTransaction;
+import example.bankcards.repository.projection.CardTransactionView;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -17,5 +18,15 @@ public class CardTransactionMapper {
                 .description(tx.getDescription())
                 .build();
     }
-}
 
+    public CardTransactionDto toDto(CardTransactionView view) {
+        return CardTransactionDto.builder()
+                .id(view.getId())
+                .fromCardId(view.getFromCardId())
+                .toCardId(view.getToCardId())
+                .amount(view.getAmount())
+                .timestamp(view.getTimestamp())
+                .description(view.getDescription())
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package example.bankcards.config.mapper;
+
+import example.bankcards.dto.card.PendingTransferDto;
+import example.bankcards.entity.PendingTransfer;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PendingTransferMapper {
+
+    public PendingTransferDto toDto(PendingTransfer transfer) {
+        return PendingTransferDto.builder()
+                .id(transfer.getId())
+                .status(transfer.getStatus())
+                .fromCardId(transfer.getFromCardId())
+                .toCardId(transfer.getToCardId())
+                .amount(transfer.getAmount())
+                .description(transfer.getDescription())
+                .transactionId(transfer.getTransactionId())
+                .error(transfer.getError())
+                .createdAt(transfer.getCreatedAt())
+                .settledAt(transfer.getSettledAt())
+                .build();
+    }
+}
@@ -6,18 +6,13 @@ import example.bankcards.dto.user.UserResponseDto;
 import example.bankcards.entity.Card;
 import example.bankcards.entity.Role;
 import example.bankcards.entity.User;
-import example.bankcards.until.EncryptionUtil;
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.util.stream.Collectors;
 
 @Component
-@RequiredArgsConstructor
 public class UserMapper {
 
-    private final EncryptionUtil encryptionUtil;
-
     public UserResponseDto toDto(User user) {
         if (user == null) return null;
 
@@ -34,10 +29,9 @@ public class UserMapper {
     }
 
     private CardResponseDto mapCardToDto(Card card) {
-        String decryptedNumber = encryptionUtil.decrypt(card.getCardNumber());
         return CardResponseDto.builder()
                 .id(card.getId())
-                .maskedCardNumber(card.getMaskedCardNumber(decryptedNumber))
+                .maskedCardNumber(card.getMaskedCardNumber())
                 .expirationDate(card.getExpirationDate())
                 .status(card.getStatus().name())
                 .balance(card.getBalance())
@@ -0,0 +1,9 @@
+package example.bankcards.config.partition;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PartitionProperties.class)
+public class PartitionConfig {
+}
@@ -0,0 +1,38 @@
+package example.bankcards.config.partition;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cards.partitions")
+public class PartitionProperties {
+
+    /**
+     * Monthly partitions of {@code card_transactions} kept ready past the current month.
+     */
+    private int monthsAhead = 3;
+
+    private Archive archive = new Archive();
+
+    @Getter
+    @Setter
+    public static class Archive {
+
+        /**
+         * Off by default: an archived partition is dropped from the database.
+         */
+        private boolean enabled = false;
+
+        /**
+         * A partition is archived once its whole month is older than this many months.
+         */
+        private int retentionMonths = 24;
+
+        /**
+         * Directory the gzipped NDJSON dumps and the columnar segments are written to.
+         */
+        private String directory = "archive";
+    }
+}
@@ -0,0 +1,9 @@
+package example.bankcards.config.transfer;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(TransferProperties.class)
+public class TransferConfig {
+}
@@ -0,0 +1,130 @@
+package example.bankcards.config.transfer;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cards.transfer")
+public class TransferProperties {
+
+    /**
+     * How a transfer protects the two balances against concurrent transfers.
+     */
+    private Locking locking = Locking.CONDITIONAL;
+
+    /**
+     * Attempts per transfer when the database aborts it with a deadlock or serialization failure.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Base pause before a retry; attempt n waits a random time up to n times this.
+     */
+    private long retryBackoffMs = 20;
+
+    /**
+     * Most transfers accepted in one batch request.
+     */
+    private int maxBatchSize = 1000;
+
+    /**
+     * Who writes single transfers: the request thread, or the shard worker of the owner.
+     */
+    private WriteMode writeMode = WriteMode.DIRECT;
+
+    private Idempotency idempotency = new Idempotency();
+
+    private Sharding sharding = new Sharding();
+
+    private Settlement settlement = new Settlement();
+
+    @Getter
+    @Setter
+    public static class Idempotency {
+
+        /**
+         * How long a key is remembered; a retry after that runs as a new transfer.
+         */
+        private long ttlMs = 86_400_000;
+
+        /**
+         * Completed keys kept in memory, so retries in quick succession skip the database.
+         */
+        private long cacheSize = 10_000;
+
+        /**
+         * Rows deleted per transaction when expired keys are purged.
+         */
+        private int sweepBatchSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Sharding {
+
+        /**
+         * Worker threads, each the only writer for the owners hashed to it; 0 means one per CPU.
+         */
+        private int shards = 0;
+
+        /**
+         * Transfers waiting per shard before new ones are refused with 503.
+         */
+        private int queueCapacity = 1024;
+
+        /**
+         * Most transfers a worker commits in one transaction.
+         */
+        private int maxBatchSize = 64;
+    }
+
+    @Getter
+    @Setter
+    public static class Settlement {
+
+        /**
+         * Whether this instance runs settlement workers for accepted asynchronous transfers.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Worker threads; they split the pending rows with {@code SKIP LOCKED}.
+         */
+        private int workers = 2;
+
+        /**
+         * Pending transfers a worker settles in one transaction.
+         */
+        private int batchSize = 200;
+
+        /**
+         * Pause after finding nothing to settle.
+         */
+        private long pollMs = 200;
+    }
+
+    public enum WriteMode {
+        /**
+         * Each request runs its transfer in its own transaction.
+         */
+        DIRECT,
+        /**
+         * Transfers without an idempotency key are queued to a shard chosen by owner id and
+         * committed in micro-batches by its single worker.
+         */
+        SHARDED
+    }
+
+    public enum Locking {
+        /**
+         * Two guarded {@code UPDATE}s, issued in ascending card id order.
+         */
+        CONDITIONAL,
+        /**
+         * {@code SELECT ... FOR UPDATE} of both cards in ascending id order, then checks and writes in Java.
+         */
+        ORDERED
+    }
+}
@@ -2,15 +2,21 @@ package example.bankcards.controller;
 
 import example.bankcards.dto.login.AuthResponseDto;
 import example.bankcards.dto.login.LoginRequestDto;
+import example.bankcards.dto.login.RefreshRequestDto;
+import example.bankcards.dto.login.RevokeTokenRequestDto;
 import example.bankcards.dto.login.RegisterRequestDto;
 import example.bankcards.service.api.AuthServiceInterface;
+import io.jsonwebtoken.MalformedJwtException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -35,5 +41,36 @@ public class AuthController {
     public ResponseEntity<AuthResponseDto> login(@RequestBody LoginRequestDto request) {
         return ResponseEntity.ok(authService.authenticate(request));
     }
-}
 
+    @Operation(summary = "Обновление токена по refresh-токену")
+    @ApiResponse(responseCode = "200", description = "Новая пара токенов, старый refresh-токен больше не действует")
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponseDto> refresh(@RequestBody RefreshRequestDto request) {
+        return ResponseEntity.ok(authService.refresh(request));
+    }
+
+    @Operation(summary = "Выход: отзыв текущего токена и refresh-токена")
+    @ApiResponse(responseCode = "204", description = "Токены отозваны")
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                       @RequestBody(required = false) RefreshRequestDto request) {
+        authService.logout(bearerToken(authorization), request != null ? request.getRefreshToken() : null);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Отозвать токен (ADMIN)")
+    @ApiResponse(responseCode = "204", description = "Токен отозван до истечения срока")
+    @PostMapping("/revoke")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> revoke(@RequestBody RevokeTokenRequestDto request) {
+        authService.revoke(request.getToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    private static String bearerToken(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            throw new MalformedJwtException("Bearer token is missing");
+        }
+        return authorization.substring(7);
+    }
+}
@@ -1,15 +1,26 @@
 package example.bankcards.controller;
 
+import example.bankcards.dto.card.BatchTransferRequestDto;
+import example.bankcards.dto.card.BatchTransferResponseDto;
 import example.bankcards.dto.card.CardTransactionDto;
 import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.dto.card.PendingTransferDto;
+import example.bankcards.dto.card.TransactionExportFormat;
+import example.bankcards.dto.card.TransactionHistoryPageDto;
 import example.bankcards.service.api.CardTransactionServiceInterface;
+import example.bankcards.service.api.PendingTransferServiceInterface;
+import example.bankcards.service.api.TransactionExportServiceInterface;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import org.springframework.data.domain.Pageable;
 
@@ -20,18 +31,55 @@ import org.springframework.data.domain.Pageable;
 public class CardTransactionController {
 
     private final CardTransactionServiceInterface cardTransactionService;
+    private final PendingTransferServiceInterface pendingTransferService;
+    private final TransactionExportServiceInterface transactionExportService;
 
-    @Operation(summary = "Перевод между собственными картами (USER)")
+    @Operation(summary = "Перевод между собственными картами (USER)",
+            description = "С заголовком Idempotency-Key повторный запрос возвращает результат первого, не списывая средства повторно")
     @PostMapping("/transfer/{userId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
     public ResponseEntity<CardTransactionDto> transfer(
             @PathVariable Long userId,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody CardTransferRequestDto dto
     ) {
-        return ResponseEntity.ok(cardTransactionService.transferBetweenOwnCards(userId, dto));
+        return ResponseEntity.ok(cardTransactionService.transferBetweenOwnCards(userId, dto, idempotencyKey));
     }
 
-    @Operation(summary = "История транзакций карты пользователя (ADMIN)")
+    @Operation(summary = "Асинхронный перевод между собственными картами (USER)",
+            description = "Перевод принимается в очередь и проводится в фоне; статус доступен по возвращённому id")
+    @PostMapping("/transfer/{userId}/async")
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public ResponseEntity<PendingTransferDto> transferAsync(
+            @PathVariable Long userId,
+            @RequestBody CardTransferRequestDto dto
+    ) {
+        return ResponseEntity.accepted().body(pendingTransferService.accept(userId, dto));
+    }
+
+    @Operation(summary = "Статус асинхронного перевода (USER)")
+    @GetMapping("/transfer/{userId}/async/{transferId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public ResponseEntity<PendingTransferDto> transferStatus(
+            @PathVariable Long userId,
+            @PathVariable Long transferId
+    ) {
+        return ResponseEntity.ok(pendingTransferService.getStatus(userId, transferId));
+    }
+
+    @Operation(summary = "Пакетный перевод между собственными картами (USER)",
+            description = "Режим ALL_OR_NOTHING отменяет весь пакет при первой ошибке, PER_LEG пропускает ошибочные переводы")
+    @PostMapping("/transfer/{userId}/batch")
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public ResponseEntity<BatchTransferResponseDto> transferBatch(
+            @PathVariable Long userId,
+            @RequestBody BatchTransferRequestDto dto
+    ) {
+        return ResponseEntity.ok(cardTransactionService.transferBatch(userId, dto));
+    }
+
+    @Operation(summary = "История транзакций карты пользователя (ADMIN)",
+            description = "Страница продолжается в архиве сегментов, когда строки в базе закончились; общее количество включает архив")
     @GetMapping("/history/{userId}/card/{cardId}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Page<CardTransactionDto>> history(
@@ -41,5 +89,35 @@ public class CardTransactionController {
     ) {
         return ResponseEntity.ok(cardTransactionService.getTransactionHistory(userId, cardId, pageable));
     }
-}
 
+    @Operation(summary = "История транзакций карты по курсору (ADMIN)",
+            description = "Следующая страница запрашивается с nextCursor из предыдущего ответа; общее количество не считается")
+    @GetMapping("/history/{userId}/card/{cardId}/seek")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TransactionHistoryPageDto> historySeek(
+            @PathVariable Long userId,
+            @PathVariable Long cardId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(cardTransactionService.getTransactionHistory(userId, cardId, cursor, size));
+    }
+
+    @Operation(summary = "Выгрузка всей истории транзакций карты (USER)",
+            description = "Сначала отдаются архивные строки из сегментов, затем строки по мере чтения из базы, в формате NDJSON или CSV; при gzip=true ответ сжат")
+    @GetMapping("/export/{userId}/card/{cardId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable Long userId,
+            @PathVariable Long cardId,
+            @RequestParam(defaultValue = "NDJSON") TransactionExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        StreamingResponseBody body = transactionExportService.exportCardHistory(userId, cardId, format, gzip);
+        String filename = "card-" + cardId + "-transactions." + format.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
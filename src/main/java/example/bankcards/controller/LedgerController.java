@@ -0,0 +1,42 @@
+package example.bankcards.controller;
+
+import example.bankcards.dto.card.CardBalanceDto;
+import example.bankcards.dto.card.ReconciliationReportDto;
+import example.bankcards.service.api.LedgerServiceInterface;
+import example.bankcards.until.LedgerReconciliationJob;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/ledger")
+@RequiredArgsConstructor
+@Tag(name = "Журнал операций", description = "Балансы по журналу проводок и сверка")
+public class LedgerController {
+
+    private final LedgerServiceInterface ledgerService;
+    private final LedgerReconciliationJob reconciliationJob;
+
+    @Operation(summary = "Баланс карты на момент времени по журналу (ADMIN)")
+    @GetMapping("/cards/{cardId}/balance")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CardBalanceDto> balanceAt(
+            @PathVariable Long cardId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at
+    ) {
+        return ResponseEntity.ok(ledgerService.balanceAt(cardId, at != null ? at : LocalDateTime.now()));
+    }
+
+    @Operation(summary = "Сверить балансы карт с журналом (ADMIN)")
+    @PostMapping("/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReconciliationReportDto> reconcile() {
+        return ResponseEntity.ok(reconciliationJob.reconcile());
+    }
+}
@@ -46,6 +46,14 @@ public class UserController {
         return ResponseEntity.ok(userService.updateUser(id, dto));
     }
 
+    @Operation(summary = "Отозвать все токены пользователя (ADMIN)")
+    @PostMapping("/{id}/revoke-tokens")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> revokeTokens(@PathVariable Long id) {
+        userService.revokeTokens(id);
+        return ResponseEntity.noContent().build();
+    }
+
     @Operation(summary = "Удалить пользователя по ID (ADMIN)")
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -0,0 +1,22 @@
+package example.bankcards.dto.card;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferLegResultDto {
+    private int index;
+    private Status status;
+    private CardTransactionDto transaction;
+    private String error;
+
+    public enum Status {
+        APPLIED,
+        REJECTED
+    }
+}
@@ -0,0 +1,29 @@
+package example.bankcards.dto.card;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferRequestDto {
+    private List<CardTransferRequestDto> transfers;
+    @Builder.Default
+    private Mode mode = Mode.ALL_OR_NOTHING;
+
+    public enum Mode {
+        /**
+         * Any rejected transfer rolls the whole batch back.
+         */
+        ALL_OR_NOTHING,
+        /**
+         * Rejected transfers are reported and skipped, the rest are applied.
+         */
+        PER_LEG
+    }
+}
@@ -0,0 +1,18 @@
+package example.bankcards.dto.card;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResponseDto {
+    private int applied;
+    private int rejected;
+    private List<BatchTransferLegResultDto> results;
+}
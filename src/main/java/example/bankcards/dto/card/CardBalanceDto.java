@@ -0,0 +1,19 @@
+package example.bankcards.dto.card;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBalanceDto {
+    private Long cardId;
+    private LocalDateTime at;
+    private BigDecimal balance;
+}
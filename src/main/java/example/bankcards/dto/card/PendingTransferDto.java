@@ -0,0 +1,27 @@
+package example.bankcards.dto.card;
+
+import example.bankcards.entity.PendingTransferStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingTransferDto {
+    private Long id;
+    private PendingTransferStatus status;
+    private Long fromCardId;
+    private Long toCardId;
+    private BigDecimal amount;
+    private String description;
+    private Long transactionId;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime settledAt;
+}
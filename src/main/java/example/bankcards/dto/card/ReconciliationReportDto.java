@@ -0,0 +1,30 @@
+package example.bankcards.dto.card;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReportDto {
+    private LocalDateTime startedAt;
+    private long durationMs;
+    private List<Mismatch> mismatches;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Mismatch {
+        private Long cardId;
+        private BigDecimal balance;
+        private BigDecimal ledgerBalance;
+    }
+}
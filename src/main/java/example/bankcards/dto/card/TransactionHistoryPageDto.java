@@ -0,0 +1,20 @@
+package example.bankcards.dto.card;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionHistoryPageDto {
+    private List<CardTransactionDto> items;
+    /**
+     * Pass back as {@code cursor} for the next page; {@code null} on the last page.
+     */
+    private String nextCursor;
+}
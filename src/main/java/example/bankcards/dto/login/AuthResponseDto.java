@@ -13,4 +13,5 @@ import java.util.Set;
 @Builder
 public class AuthResponseDto {
     private String token;
+    private String refreshToken;
 }
\ No newline at end of file
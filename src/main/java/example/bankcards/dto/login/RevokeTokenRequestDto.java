@@ -0,0 +1,14 @@
+package example.bankcards.dto.login;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokeTokenRequestDto {
+    private String token;
+}
@@ -0,0 +1,40 @@
+package example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A card's balance over all ledger entries created before {@code asOf}.
+ */
+@Setter
+@Getter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(BalanceCheckpoint.Key.class)
+@Table(name = "balance_checkpoints")
+public class BalanceCheckpoint {
+    @Id
+    @Column(name = "card_id")
+    private Long cardId;
+
+    @Id
+    @Column(name = "as_of")
+    private LocalDateTime asOf;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long cardId;
+        private LocalDateTime asOf;
+    }
+}
@@ -1,8 +1,10 @@
 package example.bankcards.entity;
 
-import example.bankcards.until.EncryptionUtil;
+import example.bankcards.config.converter.CardNumberConverter;
+import example.bankcards.exception.card.InvalidCardNumberException;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -10,6 +12,7 @@ import java.time.LocalDate;
 @Setter
 @Getter
 @Entity
+@DynamicUpdate
 @Builder
 @AllArgsConstructor
 @Table(name = "cards")
@@ -19,11 +22,19 @@ public class Card {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_seq")
+    @SequenceGenerator(name = "cards_seq", sequenceName = "cards_seq", allocationSize = 50)
     private Long id;
 
+    @Convert(converter = CardNumberConverter.class)
     @Column(name = "card_number", nullable = false)
-    private String cardNumber;
+    private CardNumber cardNumber;
+
+    @Column(name = "card_number_hash", nullable = false, unique = true)
+    private String cardNumberHash;
+
+    @Column(name = "card_number_last4", length = 4)
+    private String cardNumberLast4;
 
     private LocalDate expirationDate;
 
@@ -36,12 +47,15 @@ public class Card {
     @JoinColumn(name = "owner_id")
     private User owner;
 
-    public String getMaskedCardNumber(String decryptedCardNumber) {
-        try {
-            return "**** **** **** " + decryptedCardNumber.substring(decryptedCardNumber.length() - 4);
-        } catch (Exception e) {
-            return "****";
+    public String getMaskedCardNumber() {
+        return cardNumberLast4 != null ? "**** **** **** " + cardNumberLast4 : "****";
+    }
+
+    public static String lastFourOf(String cardNumber) {
+        if (cardNumber == null || cardNumber.length() < 4) {
+            throw new InvalidCardNumberException(cardNumber);
         }
+        return cardNumber.substring(cardNumber.length() - 4);
     }
 }
 
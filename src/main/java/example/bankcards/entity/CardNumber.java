@@ -0,0 +1,75 @@
+package example.bankcards.entity;
+
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Card number held by {@link Card}.
+ * <p>
+ * A number loaded from the database carries only its ciphertext and is decrypted the first
+ * time {@link #reveal()} is called; the plain value is then kept for the life of the entity.
+ * A number created from plain text is encrypted once, when it is first written. Code that
+ * never looks at the number never pays for the crypto.
+ */
+public final class CardNumber {
+
+    private final UnaryOperator<String> decryptor;
+    private String ciphertext;
+    private String plain;
+
+    private CardNumber(String ciphertext, String plain, UnaryOperator<String> decryptor) {
+        this.ciphertext = ciphertext;
+        this.plain = plain;
+        this.decryptor = decryptor;
+    }
+
+    public static CardNumber ofPlain(String cardNumber) {
+        return new CardNumber(null, Objects.requireNonNull(cardNumber), null);
+    }
+
+    public static CardNumber ofCiphertext(String ciphertext, UnaryOperator<String> decryptor) {
+        return new CardNumber(Objects.requireNonNull(ciphertext), null, decryptor);
+    }
+
+    public String reveal() {
+        if (plain == null) {
+            plain = decryptor.apply(ciphertext);
+        }
+        return plain;
+    }
+
+    public String ciphertext(UnaryOperator<String> encryptor) {
+        if (ciphertext == null) {
+            ciphertext = encryptor.apply(plain);
+        }
+        return ciphertext;
+    }
+
+    /**
+     * Stored form, or {@code null} for a number that has not been written yet.
+     */
+    public String getCiphertext() {
+        return ciphertext;
+    }
+
+    public boolean isRevealed() {
+        return plain != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CardNumber other)) return false;
+        return ciphertext != null && ciphertext.equals(other.ciphertext);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(ciphertext);
+    }
+
+    @Override
+    public String toString() {
+        return "CardNumber{****}";
+    }
+}
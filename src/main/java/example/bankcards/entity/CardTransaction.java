@@ -15,17 +15,18 @@ import java.time.LocalDateTime;
 @Table(name = "card_transactions")
 public class CardTransaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_transactions_seq")
+    @SequenceGenerator(name = "card_transactions_seq", sequenceName = "card_transactions_seq", allocationSize = 50)
     private Long id;
 
     private BigDecimal amount;
     private LocalDateTime timestamp;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "from_card_id")
     private Card fromCard;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "to_card_id")
     private Card toCard;
 
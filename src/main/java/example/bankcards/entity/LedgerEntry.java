@@ -0,0 +1,42 @@
+package example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One side of a balance change, never updated or deleted. {@code amount} is signed: negative
+ * for a debit, positive for a credit or opening balance, so a card's balance is the sum of
+ * its entries.
+ */
+@Setter
+@Getter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "ledger_entries")
+public class LedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entries_seq")
+    @SequenceGenerator(name = "ledger_entries_seq", sequenceName = "ledger_entries_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false)
+    private LedgerEntryType entryType;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,55 @@
+package example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Transfer accepted by the asynchronous endpoint. It stays {@code PENDING} until a settlement
+ * worker applies it ({@code SETTLED}, with the resulting transaction id) or turns it down
+ * ({@code REJECTED}, with the reason). {@code FAILED} means applying it threw rather than
+ * returning an outcome; the error says what went wrong.
+ */
+@Setter
+@Getter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "pending_transfers")
+public class PendingTransfer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "from_card_id", nullable = false)
+    private Long fromCardId;
+
+    @Column(name = "to_card_id", nullable = false)
+    private Long toCardId;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PendingTransferStatus status;
+
+    private String error;
+
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "settled_at")
+    private LocalDateTime settledAt;
+}
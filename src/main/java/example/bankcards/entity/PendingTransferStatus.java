@@ -0,0 +1,8 @@
+package example.bankcards.entity;
+
+public enum PendingTransferStatus {
+    PENDING,
+    SETTLED,
+    REJECTED,
+    FAILED
+}
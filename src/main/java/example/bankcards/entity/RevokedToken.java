@@ -0,0 +1,29 @@
+package example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Access token revoked before its expiry, by its {@code jti}. The row is only needed until
+ * the token would have expired anyway.
+ */
+@Setter
+@Getter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+    @Id
+    @Column(name = "token_id", length = 36)
+    private String tokenId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+}
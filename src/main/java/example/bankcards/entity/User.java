@@ -24,6 +24,9 @@ public class User {
     private String username;
     private String password;
 
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
     @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL)
     private List<Card> cards = new ArrayList<>();
 
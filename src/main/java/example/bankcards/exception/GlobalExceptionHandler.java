@@ -1,12 +1,25 @@
 package example.bankcards.exception;
 
+import example.bankcards.exception.auth.InvalidRefreshToken;
+import example.bankcards.exception.auth.PasswordHashingBusy;
+import example.bankcards.exception.card.BatchTransferRejected;
 import example.bankcards.exception.card.CardAlreadyExistsException;
 import example.bankcards.exception.card.CardIsNotActive;
 import example.bankcards.exception.card.CardNotFoundOrAccessDenied;
+import example.bankcards.exception.card.IdempotencyKeyInUse;
+import example.bankcards.exception.card.IdempotencyKeyReused;
+import example.bankcards.exception.card.InsufficientFunds;
+import example.bankcards.exception.card.InvalidHistoryCursor;
+import example.bankcards.exception.card.InvalidIdempotencyKey;
 import example.bankcards.exception.card.InvalidCardNumberException;
+import example.bankcards.exception.card.InvalidTransferAmount;
+import example.bankcards.exception.card.PendingTransferNotFound;
+import example.bankcards.exception.card.TransferQueueFull;
 import example.bankcards.exception.role.RoleNotFound;
 import example.bankcards.exception.user.UserNotFoundLogin;
 import example.bankcards.exception.user.UsernameExists;
+import io.jsonwebtoken.JwtException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -24,6 +37,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler({
             UserNotFoundLogin.class,
             CardNotFoundOrAccessDenied.class,
+            PendingTransferNotFound.class,
             RoleNotFound.class
     })
     public ResponseEntity<Object> handleNotFoundExceptions(RuntimeException ex, WebRequest request) {
@@ -32,7 +46,12 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler({
             InvalidCardNumberException.class,
-            CardIsNotActive.class
+            CardIsNotActive.class,
+            InsufficientFunds.class,
+            InvalidTransferAmount.class,
+            InvalidIdempotencyKey.class,
+            InvalidHistoryCursor.class,
+            BatchTransferRejected.class
     })
     public ResponseEntity<Object> handleBadRequestExceptions(RuntimeException ex, WebRequest request) {
         return buildErrorResponse(ex, HttpStatus.BAD_REQUEST);
@@ -40,12 +59,29 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler({
             CardAlreadyExistsException.class,
-            UsernameExists.class
+            UsernameExists.class,
+            IdempotencyKeyInUse.class
     })
     public ResponseEntity<Object> handleConflictExceptions(RuntimeException ex, WebRequest request) {
         return buildErrorResponse(ex, HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(IdempotencyKeyReused.class)
+    public ResponseEntity<Object> handleUnprocessableEntity(IdempotencyKeyReused ex, WebRequest request) {
+        return buildErrorResponse(ex, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler({
+            PasswordHashingBusy.class,
+            TransferQueueFull.class
+    })
+    public ResponseEntity<Object> handleServiceUnavailable(RuntimeException ex, WebRequest request) {
+        ResponseEntity<Object> response = buildErrorResponse(ex, HttpStatus.SERVICE_UNAVAILABLE);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response.getBody());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleAllUncaughtException(Exception ex, WebRequest request) {
         ex.printStackTrace();
@@ -66,6 +102,14 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(ex, HttpStatus.FORBIDDEN);
     }
 
+    @ExceptionHandler({
+            InvalidRefreshToken.class,
+            JwtException.class
+    })
+    public ResponseEntity<Object> handleInvalidToken(RuntimeException ex, WebRequest request) {
+        return buildErrorResponse(ex, HttpStatus.UNAUTHORIZED);
+    }
+
     @ExceptionHandler(AuthenticationException.class)
     public ResponseEntity<Object> handleAuthenticationException(AuthenticationException ex, WebRequest request) {
         return buildErrorResponse(ex, HttpStatus.UNAUTHORIZED);
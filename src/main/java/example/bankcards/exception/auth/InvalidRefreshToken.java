@@ -0,0 +1,7 @@
+package example.bankcards.exception.auth;
+
+public class InvalidRefreshToken extends RuntimeException {
+    public InvalidRefreshToken() {
+        super("Refresh token is invalid, expired or already used");
+    }
+}
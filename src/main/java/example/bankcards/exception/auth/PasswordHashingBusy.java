@@ -0,0 +1,7 @@
+package example.bankcards.exception.auth;
+
+public class PasswordHashingBusy extends RuntimeException {
+    public PasswordHashingBusy() {
+        super("Too many login attempts in progress, try again shortly");
+    }
+}
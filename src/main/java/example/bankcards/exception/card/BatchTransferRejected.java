@@ -0,0 +1,11 @@
+package example.bankcards.exception.card;
+
+public class BatchTransferRejected extends RuntimeException {
+    public BatchTransferRejected(int maxSize) {
+        super("Batch must contain from 1 to " + maxSize + " transfers");
+    }
+
+    public BatchTransferRejected(int index, String reason) {
+        super("Transfer #" + index + " rejected, batch rolled back: " + reason);
+    }
+}
@@ -0,0 +1,7 @@
+package example.bankcards.exception.card;
+
+public class IdempotencyKeyInUse extends RuntimeException {
+    public IdempotencyKeyInUse(String key) {
+        super("Idempotency key changed during transfer, retry the request - " + key);
+    }
+}
@@ -0,0 +1,7 @@
+package example.bankcards.exception.card;
+
+public class IdempotencyKeyReused extends RuntimeException {
+    public IdempotencyKeyReused(String key) {
+        super("Idempotency key was already used for a different transfer - " + key);
+    }
+}
@@ -0,0 +1,7 @@
+package example.bankcards.exception.card;
+
+public class InsufficientFunds extends RuntimeException {
+    public InsufficientFunds(Long cardId) {
+        super("Insufficient funds on card id - " + cardId);
+    }
+}
@@ -0,0 +1,7 @@
+package example.bankcards.exception.card;
+
+public class InvalidHistoryCursor extends RuntimeException {
+    public InvalidHistoryCursor() {
+        super("History cursor is malformed");
+    }
+}
@@ -0,0 +1,7 @@
+package example.bankcards.exception.card;
+
+public class InvalidIdempotencyKey extends RuntimeException {
+    public InvalidIdempotencyKey() {
+        super("Idempotency key must be 1 to 255 characters long");
+    }
+}
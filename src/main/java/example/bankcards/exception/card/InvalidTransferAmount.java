@@ -0,0 +1,9 @@
+package example.bankcards.exception.card;
+
+import java.math.BigDecimal;
+
+public class InvalidTransferAmount extends RuntimeException {
+    public InvalidTransferAmount(BigDecimal amount) {
+        super("Transfer amount must be positive: " + amount);
+    }
+}
@@ -0,0 +1,7 @@
+package example.bankcards.exception.card;
+
+public class PendingTransferNotFound extends RuntimeException {
+    public PendingTransferNotFound(Long transferId) {
+        super("Transfer not found or access denied, transfer id - " + transferId);
+    }
+}
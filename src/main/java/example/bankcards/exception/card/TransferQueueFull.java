@@ -0,0 +1,7 @@
+package example.bankcards.exception.card;
+
+public class TransferQueueFull extends RuntimeException {
+    public TransferQueueFull() {
+        super("Too many transfers in progress, try again later");
+    }
+}
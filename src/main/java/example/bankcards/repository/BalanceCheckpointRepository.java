@@ -0,0 +1,40 @@
+package example.bankcards.repository;
+
+import example.bankcards.entity.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, BalanceCheckpoint.Key> {
+
+    Optional<BalanceCheckpoint> findFirstByCardIdAndAsOfLessThanEqualOrderByAsOfDesc(Long cardId, LocalDateTime at);
+
+    /**
+     * Writes a checkpoint at {@code asOf} for every card in {@code (afterId, upToId]} that has
+     * entries since its previous checkpoint: the previous balance plus those entries.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO balance_checkpoints (card_id, as_of, balance) " +
+            "SELECT c.id, :asOf, COALESCE(cp.balance, 0) + COALESCE((SELECT SUM(e.amount) FROM ledger_entries e " +
+            "WHERE e.card_id = c.id AND e.created_at < :asOf AND (cp.as_of IS NULL OR e.created_at >= cp.as_of)), 0) " +
+            "FROM cards c LEFT JOIN LATERAL (SELECT b.balance, b.as_of FROM balance_checkpoints b " +
+            "WHERE b.card_id = c.id AND b.as_of < :asOf ORDER BY b.as_of DESC LIMIT 1) cp ON true " +
+            "WHERE c.id > :afterId AND c.id <= :upToId " +
+            "AND EXISTS (SELECT 1 FROM ledger_entries e WHERE e.card_id = c.id AND e.created_at < :asOf " +
+            "AND (cp.as_of IS NULL OR e.created_at >= cp.as_of)) " +
+            "ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertCheckpoints(@Param("asOf") LocalDateTime asOf, @Param("afterId") long afterId, @Param("upToId") long upToId);
+
+    @Modifying
+    @Query(value = "DELETE FROM balance_checkpoints b WHERE b.as_of < :before " +
+            "AND EXISTS (SELECT 1 FROM balance_checkpoints n WHERE n.card_id = b.card_id AND n.as_of > b.as_of)",
+            nativeQuery = true)
+    int deleteSupersededBefore(@Param("before") LocalDateTime before);
+}
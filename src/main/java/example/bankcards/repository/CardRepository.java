@@ -3,13 +3,21 @@ package example.bankcards.repository;
 
 import example.bankcards.entity.Card;
 import example.bankcards.entity.CardStatus;
+import example.bankcards.repository.projection.CardCiphertextView;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,11 +26,57 @@ public interface CardRepository extends JpaRepository<Card, Long>, JpaSpecificat
 
     Page<Card> findAllByOwnerId(Long ownerId, Pageable pageable);
 
-    boolean existsByCardNumber(String cardNumber);
+    boolean existsByCardNumberHash(String cardNumberHash);
+
+    Optional<Card> findByCardNumberHash(String cardNumberHash);
 
     List<Card> findAllByStatus(CardStatus status);
 
     Optional<Card> findByIdAndOwnerId(Long cardId, Long ownerId);
+
+    /**
+     * Takes {@code amount} off an active card of the owner if the balance covers it.
+     * Returns 0 when the card is missing, foreign, not active or short of funds.
+     */
+    @Modifying
+    @Query("update Card c set c.balance = c.balance - :amount " +
+            "where c.id = :id and c.owner.id = :ownerId " +
+            "and c.status = example.bankcards.entity.CardStatus.ACTIVE and c.balance >= :amount")
+    int debit(@Param("id") Long id, @Param("ownerId") Long ownerId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Adds {@code amount} to an active card of the owner. Returns 0 when the card is missing, foreign or not active.
+     */
+    @Modifying
+    @Query("update Card c set c.balance = c.balance + :amount " +
+            "where c.id = :id and c.owner.id = :ownerId " +
+            "and c.status = example.bankcards.entity.CardStatus.ACTIVE")
+    int credit(@Param("id") Long id, @Param("ownerId") Long ownerId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Locks the owner's cards among {@code ids}. Rows are locked in id order, so two transfers
+     * over the same pair of cards wait for each other instead of deadlocking.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :ids and c.owner.id = :ownerId order by c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<Long> ids, @Param("ownerId") Long ownerId);
+
+    @Query("select coalesce(max(c.id), 0) from Card c")
+    long findMaxId();
+
+    @Query(value = "SELECT id, card_number AS \"cardNumber\" FROM cards " +
+            "WHERE id > :afterId AND NOT starts_with(card_number, :keyPrefix) ORDER BY id LIMIT :limit",
+            nativeQuery = true)
+    List<CardCiphertextView> findCiphertextsNotUnderKey(@Param("afterId") long afterId,
+                                                        @Param("keyPrefix") String keyPrefix,
+                                                        @Param("limit") int limit);
+
+    @Query(value = "SELECT count(*) FROM cards WHERE NOT starts_with(card_number, :keyPrefix)", nativeQuery = true)
+    long countCiphertextsNotUnderKey(@Param("keyPrefix") String keyPrefix);
+
+    @Modifying
+    @Query(value = "UPDATE cards SET card_number = :newValue WHERE id = :id AND card_number = :oldValue", nativeQuery = true)
+    int replaceCiphertext(@Param("id") Long id, @Param("oldValue") String oldValue, @Param("newValue") String newValue);
 }
 
 
@@ -1,6 +1,8 @@
 package example.bankcards.repository;
 
+import example.bankcards.dto.card.CardTransactionDto;
 import example.bankcards.entity.CardTransaction;
+import example.bankcards.repository.projection.CardTransactionView;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,10 +10,52 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 
 @Repository
 public interface CardTransactionRepository extends JpaRepository<CardTransaction, Long> {
-    @Query("SELECT t FROM CardTransaction t WHERE t.fromCard.id = :cardId OR t.toCard.id = :cardId ORDER BY t.timestamp DESC")
-    Page<CardTransaction> findAllByCardId(@Param("cardId") Long cardId, Pageable pageable);
-}
+    /**
+     * History rows straight into DTOs: only the transaction's own columns are read, the card
+     * ids come from the foreign keys, so no card is loaded.
+     * <p>
+     * Only rows after {@code after} are read: older ones are served from the archive, and the
+     * bound lets Postgres skip partitions already archived but not yet dropped. Newer months
+     * can all hold rows of the card, so there is no upper bound.
+     */
+    @Query(value = "SELECT new example.bankcards.dto.card.CardTransactionDto(" +
+            "t.id, t.amount, t.timestamp, t.fromCard.id, t.toCard.id, t.description) " +
+            "FROM CardTransaction t WHERE (t.fromCard.id = :cardId OR t.toCard.id = :cardId) " +
+            "AND t.timestamp > :after ORDER BY t.timestamp DESC",
+            countQuery = "SELECT count(t) FROM CardTransaction t WHERE (t.fromCard.id = :cardId OR t.toCard.id = :cardId) " +
+                    "AND t.timestamp > :after")
+    Page<CardTransactionDto> findAllByCardId(@Param("cardId") Long cardId,
+                                             @Param("after") LocalDateTime after,
+                                             Pageable pageable);
 
+    /**
+     * Up to {@code limit} transactions of a card strictly before {@code (beforeTimestamp, beforeId)},
+     * newest first. Outgoing and incoming rows are read by separate branches so each one is a
+     * range scan on its own {@code (card, timestamp, id)} index that stops after {@code limit} rows;
+     * the second branch skips transfers to the same card, which the first already returned.
+     * The plain {@code timestamp <=} bound repeats the row comparison in a form Postgres can use
+     * to skip monthly partitions newer than the cursor.
+     */
+    @Query(value = "SELECT h.id AS \"id\", h.amount AS \"amount\", h.timestamp AS \"timestamp\", " +
+            "h.from_card_id AS \"fromCardId\", h.to_card_id AS \"toCardId\", h.description AS \"description\" FROM (" +
+            "(SELECT t.* FROM card_transactions t WHERE t.from_card_id = :cardId " +
+            "AND t.timestamp <= :beforeTimestamp AND (t.timestamp, t.id) < (:beforeTimestamp, :beforeId) " +
+            "ORDER BY t.timestamp DESC, t.id DESC LIMIT :limit) " +
+            "UNION ALL " +
+            "(SELECT t.* FROM card_transactions t WHERE t.to_card_id = :cardId " +
+            "AND t.from_card_id IS DISTINCT FROM :cardId " +
+            "AND t.timestamp <= :beforeTimestamp AND (t.timestamp, t.id) < (:beforeTimestamp, :beforeId) " +
+            "ORDER BY t.timestamp DESC, t.id DESC LIMIT :limit)" +
+            ") h ORDER BY h.timestamp DESC, h.id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<CardTransactionView> findHistoryBefore(@Param("cardId") Long cardId,
+                                                @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                                @Param("beforeId") long beforeId,
+                                                @Param("limit") int limit);
+}
@@ -0,0 +1,44 @@
+package example.bankcards.repository;
+
+import example.bankcards.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    Optional<IdempotencyKey> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    /**
+     * Claims the key. Returns 0 if it is taken; while the transaction holding it is still open
+     * the insert waits for it to finish.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, created_at) " +
+            "VALUES (:userId, :key, :requestHash, :createdAt) " +
+            "ON CONFLICT (user_id, idempotency_key) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId,
+                       @Param("key") String key,
+                       @Param("requestHash") String requestHash,
+                       @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query("update IdempotencyKey k set k.responseBody = :responseBody " +
+            "where k.userId = :userId and k.idempotencyKey = :key")
+    int saveResponse(@Param("userId") Long userId,
+                     @Param("key") String key,
+                     @Param("responseBody") String responseBody);
+
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_keys WHERE id IN " +
+            "(SELECT id FROM idempotency_keys WHERE created_at < :before LIMIT :limit)",
+            nativeQuery = true)
+    int deleteExpiredBatch(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
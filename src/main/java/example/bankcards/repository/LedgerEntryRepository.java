@@ -0,0 +1,39 @@
+package example.bankcards.repository;
+
+import example.bankcards.entity.LedgerEntry;
+import example.bankcards.repository.projection.BalanceMismatchView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    @Query("select coalesce(sum(e.amount), 0) from LedgerEntry e " +
+            "where e.cardId = :cardId and e.createdAt >= :from and e.createdAt <= :to")
+    BigDecimal sumBetween(@Param("cardId") Long cardId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("select coalesce(sum(e.amount), 0) from LedgerEntry e where e.cardId = :cardId and e.createdAt <= :to")
+    BigDecimal sumUpTo(@Param("cardId") Long cardId, @Param("to") LocalDateTime to);
+
+    /**
+     * Cards with ids in {@code [fromId, toId)} whose balance differs from their latest
+     * checkpoint plus the entries after it. One statement, so the balances and the entries
+     * come from the same snapshot.
+     */
+    @Query(value = "SELECT * FROM (" +
+            "SELECT c.id AS \"cardId\", COALESCE(c.balance, 0) AS \"balance\", " +
+            "COALESCE(cp.balance, 0) + COALESCE((SELECT SUM(e.amount) FROM ledger_entries e " +
+            "WHERE e.card_id = c.id AND (cp.as_of IS NULL OR e.created_at >= cp.as_of)), 0) AS \"ledgerBalance\" " +
+            "FROM cards c LEFT JOIN LATERAL (SELECT b.balance, b.as_of FROM balance_checkpoints b " +
+            "WHERE b.card_id = c.id ORDER BY b.as_of DESC LIMIT 1) cp ON true " +
+            "WHERE c.id >= :fromId AND c.id < :toId) r " +
+            "WHERE r.\"balance\" <> r.\"ledgerBalance\"",
+            nativeQuery = true)
+    List<BalanceMismatchView> findMismatches(@Param("fromId") long fromId, @Param("toId") long toId);
+}
@@ -0,0 +1,36 @@
+package example.bankcards.repository;
+
+import example.bankcards.entity.PendingTransfer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PendingTransferRepository extends JpaRepository<PendingTransfer, Long> {
+
+    Optional<PendingTransfer> findByIdAndUserId(Long id, Long userId);
+
+    /**
+     * Oldest pending transfers, locked. Rows another worker holds are skipped rather than
+     * waited for, so workers split the backlog between them.
+     */
+    @Query(value = "SELECT * FROM pending_transfers WHERE status = 'PENDING' " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<PendingTransfer> lockPendingBatch(@Param("limit") int limit);
+
+    /**
+     * Marks a transfer that could not be applied at all. Returns 0 if it is no longer pending.
+     */
+    @Modifying
+    @Query("update PendingTransfer p set p.status = example.bankcards.entity.PendingTransferStatus.FAILED, " +
+            "p.error = :error, p.settledAt = :at " +
+            "where p.id = :id and p.status = example.bankcards.entity.PendingTransferStatus.PENDING")
+    int markFailed(@Param("id") Long id, @Param("error") String error, @Param("at") LocalDateTime at);
+}
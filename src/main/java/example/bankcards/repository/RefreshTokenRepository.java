@@ -0,0 +1,39 @@
+package example.bankcards.repository;
+
+import example.bankcards.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    @Query("select r from RefreshToken r join fetch r.user where r.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHashWithUser(@Param("tokenHash") String tokenHash);
+
+    /**
+     * Deletes the token if it is still there. Returns 0 when a concurrent request already used it.
+     */
+    @Modifying
+    @Query("delete from RefreshToken r where r.id = :id")
+    int deleteByIdIfPresent(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from RefreshToken r where r.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+
+    @Modifying
+    @Query("delete from RefreshToken r where r.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN " +
+            "(SELECT id FROM refresh_tokens WHERE expires_at < :now ORDER BY expires_at LIMIT :limit)",
+            nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
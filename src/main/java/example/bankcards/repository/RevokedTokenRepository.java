@@ -0,0 +1,35 @@
+package example.bankcards.repository;
+
+import example.bankcards.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    @Query("select r.tokenId from RevokedToken r where r.expiresAt > :now")
+    List<String> findActiveTokenIds(@Param("now") LocalDateTime now);
+
+    @Query("select r.tokenId from RevokedToken r where r.revokedAt >= :since and r.expiresAt > :now")
+    List<String> findTokenIdsRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "INSERT INTO revoked_tokens (token_id, expires_at, revoked_at) " +
+            "VALUES (:tokenId, :expiresAt, :revokedAt) ON CONFLICT (token_id) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("tokenId") String tokenId,
+                       @Param("expiresAt") LocalDateTime expiresAt,
+                       @Param("revokedAt") LocalDateTime revokedAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM revoked_tokens WHERE token_id IN " +
+            "(SELECT token_id FROM revoked_tokens WHERE expires_at < :now LIMIT :limit)",
+            nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -2,6 +2,8 @@ package example.bankcards.repository;
 
 import example.bankcards.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -10,5 +12,8 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
+
+    @Query("select u.tokenVersion from User u where u.id = :id")
+    Optional<Integer> findTokenVersionById(@Param("id") Long id);
 }
 
@@ -0,0 +1,9 @@
+package example.bankcards.repository.projection;
+
+import java.math.BigDecimal;
+
+public interface BalanceMismatchView {
+    Long getCardId();
+    BigDecimal getBalance();
+    BigDecimal getLedgerBalance();
+}
@@ -0,0 +1,6 @@
+package example.bankcards.repository.projection;
+
+public interface CardCiphertextView {
+    Long getId();
+    String getCardNumber();
+}
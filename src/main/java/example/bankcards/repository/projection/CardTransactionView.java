@@ -0,0 +1,13 @@
+package example.bankcards.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface CardTransactionView {
+    Long getId();
+    BigDecimal getAmount();
+    LocalDateTime getTimestamp();
+    Long getFromCardId();
+    Long getToCardId();
+    String getDescription();
+}
@@ -0,0 +1,111 @@
+package example.bankcards.security;
+
+import example.bankcards.exception.auth.PasswordHashingBusy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a slow {@link PasswordEncoder} on its own small pool.
+ * <p>
+ * A BCrypt round costs tens of milliseconds of CPU, so a burst of logins running on request
+ * threads can take all of them and starve card reads and transfers. Here at most
+ * {@code threads} hashes run at once and at most {@code queueCapacity} wait; anything beyond
+ * that is refused straight away with {@link PasswordHashingBusy} (503) instead of holding a
+ * request thread. The time spent queued and hashing is recorded under
+ * {@code auth.password.queue} and {@code auth.password.hash}.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Timer queueTimer;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                task -> {
+                    Thread thread = new Thread(task, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.queueTimer = Timer.builder("auth.password.queue")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.encodeTimer = hashTimer("encode", meterRegistry);
+        this.matchesTimer = hashTimer("matches", meterRegistry);
+        BlockingQueue<Runnable> queue = executor.getQueue();
+        meterRegistry.gauge("auth.password.queue.size", queue, BlockingQueue::size);
+        meterRegistry.gauge("auth.password.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // only inspects the hash prefix, not worth a trip through the pool
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Timer timer, Callable<T> hashing) {
+        long submitted = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                queueTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                return timer.recordCallable(hashing);
+            });
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingBusy();
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static Timer hashTimer(String operation, MeterRegistry meterRegistry) {
+        return Timer.builder("auth.password.hash")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,127 @@
+package example.bankcards.security;
+
+import example.bankcards.repository.RevokedTokenRepository;
+import example.bankcards.until.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Revoked access tokens, by {@code jti}.
+ * <p>
+ * The {@code revoked_tokens} table is the source of truth; a Bloom filter over it answers
+ * "certainly not revoked" for almost every token without touching the database, and only a
+ * possible hit is confirmed with a primary-key lookup. The filter is built at startup, picks
+ * up revocations made on other instances every {@code refresh-ms}, and is rebuilt from scratch
+ * every {@code rebuild-ms} after expired rows have been deleted, since a Bloom filter cannot
+ * forget a value.
+ * <p>
+ * Metrics: {@code auth.revocation.checks} tagged {@code result=negative} (filter only),
+ * {@code false_positive} and {@code revoked} (both confirmed in the table).
+ */
+@Slf4j
+@Component
+public class TokenRevocationRegistry {
+
+    private static final long SYNC_OVERLAP_SECONDS = 60;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long expectedTokens;
+    private final double falsePositiveRate;
+    private final int sweepBatchSize;
+
+    private final Counter negative;
+    private final Counter falsePositive;
+    private final Counter revoked;
+
+    private volatile BloomFilter filter;
+    private volatile LocalDateTime lastSync;
+
+    public TokenRevocationRegistry(RevokedTokenRepository revokedTokenRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${spring.security.jwt.revocation.expected-tokens:100000}") long expectedTokens,
+                                   @Value("${spring.security.jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+                                   @Value("${spring.security.jwt.revocation.sweep-batch-size:1000}") int sweepBatchSize) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.expectedTokens = expectedTokens;
+        this.falsePositiveRate = falsePositiveRate;
+        this.sweepBatchSize = Math.max(sweepBatchSize, 1);
+
+        this.negative = Counter.builder("auth.revocation.checks").tag("result", "negative").register(meterRegistry);
+        this.falsePositive = Counter.builder("auth.revocation.checks").tag("result", "false_positive").register(meterRegistry);
+        this.revoked = Counter.builder("auth.revocation.checks").tag("result", "revoked").register(meterRegistry);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            negative.increment();
+            return false;
+        }
+        if (revokedTokenRepository.existsById(tokenId)) {
+            revoked.increment();
+            return true;
+        }
+        falsePositive.increment();
+        return false;
+    }
+
+    /**
+     * Revokes the token until {@code expiresAt}. Revoking the same token twice is harmless.
+     */
+    public void revoke(String tokenId, Instant expiresAt) {
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> revokedTokenRepository.insertIfAbsent(
+                tokenId, LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()), now));
+        filter.put(tokenId);
+    }
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        // start the next incremental sync from before the query, so nothing revoked meanwhile is missed
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<String> tokenIds = revokedTokenRepository.findActiveTokenIds(startedAt);
+
+        BloomFilter rebuilt = BloomFilter.create(Math.max(expectedTokens, tokenIds.size() * 2L), falsePositiveRate);
+        tokenIds.forEach(rebuilt::put);
+        filter = rebuilt;
+        lastSync = startedAt;
+        log.info("Фильтр отозванных токенов построен: {} токенов", tokenIds.size());
+    }
+
+    @Scheduled(fixedDelayString = "${spring.security.jwt.revocation.refresh-ms:10000}",
+            initialDelayString = "${spring.security.jwt.revocation.refresh-ms:10000}")
+    public synchronized void refresh() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        // the overlap covers clock skew between instances; adding a value twice is a no-op
+        List<String> tokenIds = revokedTokenRepository.findTokenIdsRevokedSince(
+                lastSync.minusSeconds(SYNC_OVERLAP_SECONDS), startedAt);
+        BloomFilter current = filter;
+        tokenIds.forEach(current::put);
+        lastSync = startedAt;
+    }
+
+    @Scheduled(fixedDelayString = "${spring.security.jwt.revocation.rebuild-ms:3600000}",
+            initialDelayString = "${spring.security.jwt.revocation.rebuild-ms:3600000}")
+    public synchronized void purgeAndRebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> revokedTokenRepository.deleteExpiredBatch(now, sweepBatchSize));
+        } while (batch == sweepBatchSize);
+        rebuild();
+    }
+}
@@ -0,0 +1,67 @@
+package example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import example.bankcards.entity.User;
+import example.bankcards.repository.UserRepository;
+import example.bankcards.until.AfterCommit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Current token version per user, read from {@code users.token_version}.
+ * <p>
+ * A token carries the version the user had when it was issued; bumping the version makes every
+ * older token stale. Versions are cached for a short time, so a bump on this instance is seen
+ * immediately and a bump on another instance at most one TTL later.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    // cached for a user that does not exist, so a deleted user's tokens do not reach the database every time
+    private static final int MISSING = -1;
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Integer> versions;
+
+    public TokenVersionRegistry(UserRepository userRepository,
+                                @Value("${spring.security.jwt.stateless.version-ttl-ms:30000}") long ttlMs,
+                                @Value("${spring.security.jwt.stateless.version-cache-size:10000}") long cacheSize) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+    }
+
+    /**
+     * Whether a token issued with {@code tokenVersion} is still good for the user.
+     * A user that no longer exists has no current tokens.
+     */
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        int current = versions.get(userId, id -> userRepository.findTokenVersionById(id).orElse(MISSING));
+        return current != MISSING && tokenVersion >= current;
+    }
+
+    /**
+     * Increments the user's version so that tokens issued so far stop being accepted.
+     * The cache is updated once the surrounding transaction commits.
+     */
+    public void bump(User user) {
+        int version = user.getTokenVersion() + 1;
+        user.setTokenVersion(version);
+        Long userId = user.getId();
+        AfterCommit.run(() -> versions.put(userId, version));
+    }
+
+    /**
+     * Forgets what is cached for the user once the transaction commits. Called when a user is
+     * deleted, so their tokens are rejected on the next request, and when one is created, so a
+     * miss cached for the id does not outlive it.
+     */
+    public void evict(Long userId) {
+        AfterCommit.run(() -> versions.invalidate(userId));
+    }
+}
@@ -0,0 +1,55 @@
+package example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import example.bankcards.until.AfterCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of loaded users by login, in front of the {@code findUserLogin} lookup.
+ * <p>
+ * Entries expire after a fixed time as a safety net; writes to a user invalidate it explicitly,
+ * once right away and once more after commit, so a request racing the write cannot put the old
+ * state back. Missing users are not cached. Hits, misses and evictions are published under
+ * {@code cache.*} with {@code cache=users.details}.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final Cache<String, UserDetailsConfig> users;
+
+    public UserDetailsCache(@Value("${spring.security.user-cache.ttl-ms:60000}") long ttlMs,
+                            @Value("${spring.security.user-cache.max-size:10000}") long maxSize,
+                            MeterRegistry meterRegistry) {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users.details");
+    }
+
+    public UserDetailsConfig get(String login, Function<String, UserDetailsConfig> loader) {
+        return users.get(login, loader);
+    }
+
+    public void invalidate(String login) {
+        users.invalidate(login);
+        AfterCommit.run(() -> users.invalidate(login));
+    }
+
+    /**
+     * For writes that only know the id. Scans the cache, which is fine for rare operations like deletes.
+     */
+    public void invalidateUser(Long userId) {
+        Runnable evict = () -> users.asMap().values().removeIf(user -> userId.equals(user.getId()));
+        evict.run();
+        AfterCommit.run(evict);
+    }
+}
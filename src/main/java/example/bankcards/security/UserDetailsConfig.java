@@ -19,6 +19,8 @@ public class UserDetailsConfig implements UserDetails {
     private final String username;
     private final String password;
     private final Collection<? extends GrantedAuthority> authorities;
+    @Getter
+    private final int tokenVersion;
 
     public UserDetailsConfig(User user) {
         if (user == null) {
@@ -28,6 +30,7 @@ public class UserDetailsConfig implements UserDetails {
         this.id = user.getId();
         this.username = Objects.requireNonNull(user.getUsername(), "Username cannot be null");
         this.password = Objects.requireNonNull(user.getPassword(), "Password cannot be null");
+        this.tokenVersion = user.getTokenVersion();
 
         this.authorities = user.getRoles() == null
                 ? Collections.emptyList()
@@ -53,6 +56,22 @@ public class UserDetailsConfig implements UserDetails {
                         .collect(Collectors.toList()));
     }
 
+    /**
+     * Principal rebuilt from verified token claims, without a database round trip.
+     * It carries no password: it is only ever used for an already authenticated request.
+     */
+    public UserDetailsConfig(Long id, String username, Collection<String> roles, int tokenVersion) {
+        this.id = Objects.requireNonNull(id, "Id cannot be null");
+        this.username = Objects.requireNonNull(username, "Username cannot be null");
+        this.password = null;
+        this.authorities = roles == null
+                ? Collections.emptyList()
+                : roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+        this.tokenVersion = tokenVersion;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return Collections.unmodifiableCollection(authorities);
@@ -3,7 +3,9 @@ package example.bankcards.security;
 import example.bankcards.entity.User;
 import example.bankcards.exception.user.UserNotFoundLogin;
 import example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -18,28 +20,33 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 @Configuration
 public class UsernamePasswordAuthenticationConfig {
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
     @Bean
     public UserDetailsService findUserLogin() {
-        return login -> {
-            User user = userRepository.findByUsername(login)
-                    .orElseThrow(() -> new UserNotFoundLogin(login));
+        return login -> userDetailsCache.get(login, username -> {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new UserNotFoundLogin(username));
 
             return new UserDetailsConfig(user);
-        };
+        });
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength,
+                                                  @Value("${security.password.threads:0}") int threads,
+                                                  @Value("${security.password.queue-capacity:32}") int queueCapacity,
+                                                  MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Math.max(Runtime.getRuntime().availableProcessors() / 2, 1);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueCapacity, meterRegistry);
     }
 
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(findUserLogin());
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
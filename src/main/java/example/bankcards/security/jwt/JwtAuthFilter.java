@@ -1,11 +1,15 @@
 package example.bankcards.security.jwt;
 
+import example.bankcards.security.TokenRevocationRegistry;
+import example.bankcards.security.TokenVersionRegistry;
+import example.bankcards.security.UserDetailsConfig;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -16,31 +20,62 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Authenticates requests carrying a bearer token.
+ * <p>
+ * In stateless mode a token with id, roles and version claims is turned into the principal
+ * directly; the only lookup left is the cached token version. Older tokens, or all tokens
+ * with stateless mode off, load the user through the {@link UserDetailsService}. Revoked tokens
+ * (logout, admin revoke) are left unauthenticated.
+ */
 @Component
-@RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final TokenVersionRegistry tokenVersions;
+    private final TokenRevocationRegistry revocations;
+    private final boolean stateless;
+
+    public JwtAuthFilter(JwtService jwtService,
+                         UserDetailsService userDetailsService,
+                         TokenVersionRegistry tokenVersions,
+                         TokenRevocationRegistry revocations,
+                         @Value("${spring.security.jwt.stateless.enabled:true}") boolean stateless) {
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+        this.tokenVersions = tokenVersions;
+        this.revocations = revocations;
+        this.stateless = stateless;
+    }
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
-        final String jwtToken;
-        final String login;
+        final VerifiedToken token;
 
         if(authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwtToken = authHeader.substring(7);
-        login = jwtService.extractLogin(jwtToken);
+        try {
+            token = jwtService.verify(authHeader.substring(7));
+        } catch (JwtException | IllegalArgumentException e) {
+            // leave the request unauthenticated, the security chain answers 401/403
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        if(login != null && SecurityContextHolder.getContext().getAuthentication() == null){
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(login);
+        if (revocations.isRevoked(token.getTokenId())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-            if(jwtService.isTokenValid(jwtToken, userDetails)){
+        if(token.getSubject() != null && SecurityContextHolder.getContext().getAuthentication() == null){
+            UserDetails userDetails = resolvePrincipal(token);
+
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -49,4 +84,24 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Principal for the token, or {@code null} when the token's version has been superseded.
+     */
+    private UserDetails resolvePrincipal(VerifiedToken token) {
+        if (stateless && token.isSelfContained()) {
+            if (!tokenVersions.isCurrent(token.getUserId(), token.getTokenVersion())) {
+                return null;
+            }
+            return new UserDetailsConfig(token.getUserId(), token.getSubject(), token.getRoles(), token.getTokenVersion());
+        }
+
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(token.getSubject());
+        if (token.getTokenVersion() != null
+                && userDetails instanceof UserDetailsConfig user
+                && token.getTokenVersion() < user.getTokenVersion()) {
+            return null;
+        }
+        return userDetails;
+    }
 }
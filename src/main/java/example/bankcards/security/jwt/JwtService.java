@@ -1,29 +1,68 @@
 package example.bankcards.security.jwt;
 
+import example.bankcards.security.UserDetailsConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
-import lombok.AllArgsConstructor;
-import org.springframework.core.env.Environment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.UUID;
 
+/**
+ * Issues and verifies access tokens.
+ * <p>
+ * The signing key and the parser are built once. {@link #verify(String)} checks signature and
+ * expiry in a single parse and remembers the result, keyed by a SHA-256 of the token, until
+ * the token expires, so a client repeating the same token is not re-verified on every request.
+ * <p>
+ * Tokens issued for a {@link UserDetailsConfig} also carry the user id, the role names and the
+ * user's token version, which is enough for {@link JwtAuthFilter} to authenticate a request
+ * without loading the user.
+ */
 @Component
-@AllArgsConstructor
 public class JwtService {
 
-    private final Environment environment;
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_ROLES = "roles";
+    static final String CLAIM_TOKEN_VERSION = "ver";
 
-    private String getSecretKey() {
-        return environment.getProperty("spring.security.jwt.key.secret");
+    private final Key signInKey;
+    private final JwtParser parser;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private final long accessTtlMs;
+
+    public JwtService(@Value("${spring.security.jwt.key.secret}") String secretKey,
+                      @Value("${spring.security.jwt.cache.max-size:10000}") long cacheSize,
+                      @Value("${spring.security.jwt.access-ttl-ms:1440000}") long accessTtlMs) {
+        this.accessTtlMs = accessTtlMs;
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
     }
 
     public String generateToken(Map<String, Object> claims, UserDetails userDetails) {
@@ -31,49 +70,81 @@ public class JwtService {
                 .builder()
                 .setClaims(claims)
                 .setSubject(userDetails.getUsername())
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 24))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setExpiration(new Date(System.currentTimeMillis() + accessTtlMs))
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof UserDetailsConfig user && user.getId() != null) {
+            claims.put(CLAIM_USER_ID, user.getId());
+            claims.put(CLAIM_ROLES, user.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .toList());
+            claims.put(CLAIM_TOKEN_VERSION, user.getTokenVersion());
+        }
+        return generateToken(claims, userDetails);
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String login = extractLogin(token);
-        return (login.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
+    /**
+     * Checks signature and expiry and returns the claims.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, forged or expired
+     */
+    public VerifiedToken verify(String token) {
+        String cacheKey = hash(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(cacheKey);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return cached;
+            }
+            verifiedTokens.invalidate(cacheKey);
+        }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() == null) {
+            throw new MalformedJwtException("JWT has no expiration");
+        }
+        VerifiedToken verified = VerifiedToken.from(claims);
+        verifiedTokens.put(cacheKey, verified);
+        return verified;
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean isTokenValid(String token, UserDetails userDetails) {
+        return verify(token).getSubject().equals(userDetails.getUsername());
     }
 
     public String extractLogin(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).getSubject();
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
+    private static class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+            return Math.max(Duration.between(Instant.now(), token.getExpiresAt()).toNanos(), 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+        }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(getSecretKey());
-        return Keys.hmacShaKeyFor(keyBytes);
+        @Override
+        public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
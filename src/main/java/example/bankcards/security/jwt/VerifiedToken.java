@@ -0,0 +1,48 @@
+package example.bankcards.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Claims of a token whose signature and expiry have been checked by {@link JwtService#verify(String)}.
+ * <p>
+ * {@code tokenId} ({@code jti}), {@code userId}, {@code roles} and {@code tokenVersion} are
+ * {@code null} for tokens issued before they were added to the claims.
+ */
+@Value
+public class VerifiedToken {
+    String subject;
+    String tokenId;
+    Instant issuedAt;
+    Instant expiresAt;
+    Long userId;
+    List<String> roles;
+    Integer tokenVersion;
+
+    static VerifiedToken from(Claims claims) {
+        Object roles = claims.get(JwtService.CLAIM_ROLES);
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.getId(),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration().toInstant(),
+                claims.get(JwtService.CLAIM_USER_ID, Long.class),
+                roles instanceof Collection<?> names ? names.stream().map(String::valueOf).toList() : null,
+                claims.get(JwtService.CLAIM_TOKEN_VERSION, Integer.class));
+    }
+
+    public boolean isExpired() {
+        return !expiresAt.isAfter(Instant.now());
+    }
+
+    /**
+     * Whether the claims are enough to build the principal without loading the user.
+     */
+    public boolean isSelfContained() {
+        return userId != null && roles != null && tokenVersion != null;
+    }
+}
@@ -2,10 +2,14 @@ package example.bankcards.service.api;
 
 import example.bankcards.dto.login.AuthResponseDto;
 import example.bankcards.dto.login.LoginRequestDto;
+import example.bankcards.dto.login.RefreshRequestDto;
 import example.bankcards.dto.login.RegisterRequestDto;
 
 public interface AuthServiceInterface {
     AuthResponseDto register(RegisterRequestDto request);
     AuthResponseDto authenticate(LoginRequestDto request);
+    AuthResponseDto refresh(RefreshRequestDto request);
+    void logout(String accessToken, String refreshToken);
+    void revoke(String accessToken);
 }
 
@@ -1,13 +1,19 @@
 package example.bankcards.service.api;
 
+import example.bankcards.dto.card.BatchTransferRequestDto;
+import example.bankcards.dto.card.BatchTransferResponseDto;
 import example.bankcards.dto.card.CardTransactionDto;
 import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.dto.card.TransactionHistoryPageDto;
 import org.springframework.data.domain.Page;
 
 import org.springframework.data.domain.Pageable;
 
 public interface CardTransactionServiceInterface {
     CardTransactionDto transferBetweenOwnCards(Long userId, CardTransferRequestDto dto);
+    CardTransactionDto transferBetweenOwnCards(Long userId, CardTransferRequestDto dto, String idempotencyKey);
+    BatchTransferResponseDto transferBatch(Long userId, BatchTransferRequestDto dto);
     Page<CardTransactionDto> getTransactionHistory(Long userId, Long cardId, Pageable pageable);
+    TransactionHistoryPageDto getTransactionHistory(Long userId, Long cardId, String cursor, int size);
 }
 
@@ -0,0 +1,9 @@
+package example.bankcards.service.api;
+
+import example.bankcards.dto.card.CardBalanceDto;
+
+import java.time.LocalDateTime;
+
+public interface LedgerServiceInterface {
+    CardBalanceDto balanceAt(Long cardId, LocalDateTime at);
+}
@@ -0,0 +1,9 @@
+package example.bankcards.service.api;
+
+import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.dto.card.PendingTransferDto;
+
+public interface PendingTransferServiceInterface {
+    PendingTransferDto accept(Long userId, CardTransferRequestDto dto);
+    PendingTransferDto getStatus(Long userId, Long transferId);
+}
@@ -0,0 +1,10 @@
+package example.bankcards.service.api;
+
+import example.bankcards.entity.User;
+
+public interface RefreshTokenServiceInterface {
+    String issue(User user);
+    User consume(String refreshToken);
+    void revoke(String refreshToken);
+    void revokeAll(Long userId);
+}
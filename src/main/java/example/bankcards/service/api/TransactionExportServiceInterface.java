@@ -0,0 +1,8 @@
+package example.bankcards.service.api;
+
+import example.bankcards.dto.card.TransactionExportFormat;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public interface TransactionExportServiceInterface {
+    StreamingResponseBody exportCardHistory(Long userId, Long cardId, TransactionExportFormat format, boolean gzip);
+}
@@ -10,5 +10,6 @@ public interface UserServiceInterface {
     UserResponseDto getUserById(Long id);
     UserResponseDto updateUser(Long id, UserRequestDto requestDto);
     void deleteUser(Long id);
+    void revokeTokens(Long id);
 }
 
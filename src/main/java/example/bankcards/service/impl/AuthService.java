@@ -2,6 +2,7 @@ package example.bankcards.service.impl;
 
 import example.bankcards.dto.login.AuthResponseDto;
 import example.bankcards.dto.login.LoginRequestDto;
+import example.bankcards.dto.login.RefreshRequestDto;
 import example.bankcards.dto.login.RegisterRequestDto;
 import example.bankcards.entity.Role;
 import example.bankcards.entity.User;
@@ -10,9 +11,14 @@ import example.bankcards.exception.user.UserNotFoundLogin;
 import example.bankcards.exception.user.UsernameExists;
 import example.bankcards.repository.RoleRepository;
 import example.bankcards.repository.UserRepository;
+import example.bankcards.security.TokenRevocationRegistry;
+import example.bankcards.security.TokenVersionRegistry;
+import example.bankcards.security.UserDetailsCache;
 import example.bankcards.security.UserDetailsConfig;
 import example.bankcards.security.jwt.JwtService;
+import example.bankcards.security.jwt.VerifiedToken;
 import example.bankcards.service.api.AuthServiceInterface;
+import example.bankcards.service.api.RefreshTokenServiceInterface;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -37,6 +43,10 @@ public class AuthService implements AuthServiceInterface {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final UserDetailsCache userDetailsCache;
+    private final RefreshTokenServiceInterface refreshTokenService;
+    private final TokenRevocationRegistry revocations;
+    private final TokenVersionRegistry tokenVersions;
 
     @Override
     public AuthResponseDto register(RegisterRequestDto request) {
@@ -65,6 +75,8 @@ public class AuthService implements AuthServiceInterface {
                 .build();
 
         User savedUser = userRepository.save(user);
+        userDetailsCache.invalidate(savedUser.getUsername());
+        tokenVersions.evict(savedUser.getId());
         log.info("User registered successfully with ID: {}", savedUser.getId());
 
         log.debug("User roles after registration: {}",
@@ -77,6 +89,7 @@ public class AuthService implements AuthServiceInterface {
 
         return AuthResponseDto.builder()
                 .token(token)
+                .refreshToken(refreshTokenService.issue(savedUser))
                 .build();
     }
 
@@ -112,6 +125,46 @@ public class AuthService implements AuthServiceInterface {
 
         return AuthResponseDto.builder()
                 .token(token)
+                .refreshToken(refreshTokenService.issue(user))
                 .build();
     }
+
+    /**
+     * Swaps a refresh token for a new pair. No password is checked, so this costs two
+     * indexed statements instead of a BCrypt round.
+     */
+    @Override
+    public AuthResponseDto refresh(RefreshRequestDto request) {
+        User user = refreshTokenService.consume(request.getRefreshToken());
+        log.debug("Refresh token rotated for user: {}", user.getUsername());
+
+        return AuthResponseDto.builder()
+                .token(jwtService.generateToken(new UserDetailsConfig(user)))
+                .refreshToken(refreshTokenService.issue(user))
+                .build();
+    }
+
+    @Override
+    public void logout(String accessToken, String refreshToken) {
+        revoke(accessToken);
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenService.revoke(refreshToken);
+        }
+    }
+
+    /**
+     * Revokes an access token until it expires. The token must still verify; an expired one
+     * needs no revoking.
+     */
+    @Override
+    public void revoke(String accessToken) {
+        VerifiedToken token = jwtService.verify(accessToken);
+        if (token.getTokenId() == null) {
+            log.warn("Token of user {} has no jti and cannot be revoked, it expires at {}",
+                    token.getSubject(), token.getExpiresAt());
+            return;
+        }
+        revocations.revoke(token.getTokenId(), token.getExpiresAt());
+        log.info("Token {} of user {} revoked", token.getTokenId(), token.getSubject());
+    }
 }
\ No newline at end of file
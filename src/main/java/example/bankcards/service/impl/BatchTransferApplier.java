@@ -0,0 +1,140 @@
+package example.bankcards.service.impl;
+
+import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.entity.Card;
+import example.bankcards.entity.CardStatus;
+import example.bankcards.entity.CardTransaction;
+import example.bankcards.exception.card.BatchTransferRejected;
+import example.bankcards.exception.card.CardIsNotActive;
+import example.bankcards.exception.card.CardNotFoundOrAccessDenied;
+import example.bankcards.exception.card.InsufficientFunds;
+import example.bankcards.exception.card.InvalidTransferAmount;
+import example.bankcards.repository.CardRepository;
+import example.bankcards.repository.CardTransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Applies a list of transfers between one user's cards inside the caller's transaction.
+ * <p>
+ * All cards named by the legs are locked once, in ascending id order like a single ORDERED
+ * transfer. The legs are checked in order against running balances, so a leg may spend money
+ * an earlier leg brought in. Each card's balance is then written once with its net change,
+ * and the transaction rows and their ledger entries go through {@code saveAll}, which
+ * Hibernate sends as JDBC batches.
+ */
+@Component
+@RequiredArgsConstructor
+public class BatchTransferApplier {
+
+    private final CardRepository cardRepository;
+    private final CardTransactionRepository transactionRepository;
+    private final LedgerWriter ledgerWriter;
+
+    /**
+     * Outcome of one leg: the saved transaction, or why it was rejected.
+     */
+    public record Outcome(CardTransaction transaction, RuntimeException failure) {
+    }
+
+    /**
+     * One outcome per leg, in order. With {@code atomic} the first rejected leg throws
+     * {@link BatchTransferRejected} and nothing is written.
+     */
+    public List<Outcome> apply(Long userId, List<CardTransferRequestDto> legs, boolean atomic) {
+        Set<Long> cardIds = new TreeSet<>();
+        for (CardTransferRequestDto leg : legs) {
+            if (leg.getFromCardId() != null) {
+                cardIds.add(leg.getFromCardId());
+            }
+            if (leg.getToCardId() != null) {
+                cardIds.add(leg.getToCardId());
+            }
+        }
+        Map<Long, Card> cards = new HashMap<>();
+        for (Card card : cardRepository.findAllByIdForUpdate(cardIds, userId)) {
+            cards.put(card.getId(), card);
+        }
+
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        List<Outcome> outcomes = new ArrayList<>(legs.size());
+        List<CardTransaction> toSave = new ArrayList<>(legs.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < legs.size(); i++) {
+            CardTransferRequestDto leg = legs.get(i);
+            RuntimeException failure = checkLeg(leg, cards, balances);
+            if (failure != null) {
+                if (atomic) {
+                    throw new BatchTransferRejected(i, failure.getMessage());
+                }
+                outcomes.add(new Outcome(null, failure));
+                continue;
+            }
+
+            Card from = cards.get(leg.getFromCardId());
+            Card to = cards.get(leg.getToCardId());
+            balances.put(from.getId(), balances.get(from.getId()).subtract(leg.getAmount()));
+            balances.merge(to.getId(), to.getBalance().add(leg.getAmount()), (running, ignored) -> running.add(leg.getAmount()));
+
+            CardTransaction transaction = CardTransaction.builder()
+                    .fromCard(from)
+                    .toCard(to)
+                    .amount(leg.getAmount())
+                    .timestamp(now)
+                    .description(leg.getDescription())
+                    .build();
+            toSave.add(transaction);
+            outcomes.add(new Outcome(transaction, null));
+        }
+
+        // one UPDATE per card with the net change, however many legs touched it
+        balances.forEach((cardId, balance) -> {
+            Card card = cards.get(cardId);
+            if (card.getBalance().compareTo(balance) != 0) {
+                card.setBalance(balance);
+            }
+        });
+        transactionRepository.saveAll(toSave);
+        ledgerWriter.recordTransfers(toSave);
+        return outcomes;
+    }
+
+    /**
+     * Why the leg cannot be applied given the balances left by the legs before it, or {@code null}.
+     * Seeds {@code balances} with the source card's current balance.
+     */
+    private static RuntimeException checkLeg(CardTransferRequestDto leg, Map<Long, Card> cards, Map<Long, BigDecimal> balances) {
+        if (leg.getAmount() == null || leg.getAmount().signum() <= 0) {
+            return new InvalidTransferAmount(leg.getAmount());
+        }
+        Card from = leg.getFromCardId() != null ? cards.get(leg.getFromCardId()) : null;
+        if (from == null) {
+            return new CardNotFoundOrAccessDenied(leg.getFromCardId());
+        }
+        Card to = leg.getToCardId() != null ? cards.get(leg.getToCardId()) : null;
+        if (to == null) {
+            return new CardNotFoundOrAccessDenied(leg.getToCardId());
+        }
+        if (from.getStatus() != CardStatus.ACTIVE) {
+            return new CardIsNotActive(from.getStatus());
+        }
+        if (to.getStatus() != CardStatus.ACTIVE) {
+            return new CardIsNotActive(to.getStatus());
+        }
+        BigDecimal available = balances.computeIfAbsent(from.getId(), id -> from.getBalance());
+        if (available.compareTo(leg.getAmount()) < 0) {
+            return new InsufficientFunds(from.getId());
+        }
+        return null;
+    }
+}
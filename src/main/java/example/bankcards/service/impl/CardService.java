@@ -16,6 +16,7 @@ import example.bankcards.service.api.CardServiceInterface;
 import example.bankcards.until.CardSpecification;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
@@ -25,7 +26,6 @@ import lombok.extern.slf4j.Slf4j;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Transactional
@@ -36,6 +36,7 @@ public class CardService implements CardServiceInterface {
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final CardMapper cardMapper;
+    private final LedgerWriter ledgerWriter;
 
     @Override
     public CardResponseDto createCard(Long ownerId, CardRequestDto requestDto) {
@@ -50,15 +51,21 @@ public class CardService implements CardServiceInterface {
             throw new InvalidCardNumberException(cardNumber);
         }
 
-        if (cardRepository.existsByCardNumber(cardNumber)) {
+        Card card = cardMapper.toEntity(requestDto, user);
+        if (cardRepository.existsByCardNumberHash(card.getCardNumberHash())) {
             throw new CardAlreadyExistsException(cardNumber);
         }
-
-        Card card = cardMapper.toEntity(requestDto, user);
         log.info("Карта до сохранения: {}", card);
 
-        Card saved = cardRepository.save(card);
+        Card saved;
+        try {
+            saved = cardRepository.saveAndFlush(card);
+        } catch (DataIntegrityViolationException e) {
+            // the same number was issued concurrently, the unique index on the hash caught it
+            throw new CardAlreadyExistsException(cardNumber);
+        }
         log.info("Карта сохранена: {}", saved);
+        ledgerWriter.recordOpening(saved);
         return cardMapper.toDto(saved);
     }
 
@@ -126,19 +133,12 @@ public class CardService implements CardServiceInterface {
 
     @Override
     public List<CardResponseDto> getAllCards() {
-
-        return cardRepository.findAll()
-                .stream()
-                .map(cardMapper::toOpenDto)
-                .collect(Collectors.toList());
+        return cardMapper.toOpenDtos(cardRepository.findAll());
     }
 
     @Override
     public List<CardResponseDto> findCardsPendingBlock() {
-        return cardRepository.findAllByStatus(CardStatus.PENDING_BLOCK)
-                .stream()
-                .map(cardMapper::toOpenDto)
-                .collect(Collectors.toList());
+        return cardMapper.toOpenDtos(cardRepository.findAllByStatus(CardStatus.PENDING_BLOCK));
     }
 
     @Override
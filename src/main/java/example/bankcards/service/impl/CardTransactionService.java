@@ -1,63 +1,330 @@
 package example.bankcards.service.impl;
 
 import example.bankcards.config.mapper.CardTransactionMapper;
+import example.bankcards.config.transfer.TransferProperties;
+import example.bankcards.dto.card.BatchTransferLegResultDto;
+import example.bankcards.dto.card.BatchTransferRequestDto;
+import example.bankcards.dto.card.BatchTransferResponseDto;
 import example.bankcards.dto.card.CardTransactionDto;
 import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.dto.card.TransactionHistoryPageDto;
 import example.bankcards.entity.Card;
 import example.bankcards.entity.CardStatus;
 import example.bankcards.entity.CardTransaction;
+import example.bankcards.exception.card.BatchTransferRejected;
 import example.bankcards.exception.card.CardIsNotActive;
 import example.bankcards.exception.card.CardNotFoundOrAccessDenied;
+import example.bankcards.exception.card.InsufficientFunds;
+import example.bankcards.exception.card.InvalidIdempotencyKey;
+import example.bankcards.exception.card.InvalidTransferAmount;
 import example.bankcards.repository.CardRepository;
 import example.bankcards.repository.CardTransactionRepository;
+import example.bankcards.repository.projection.CardTransactionView;
 import example.bankcards.service.api.CardTransactionServiceInterface;
+import example.bankcards.until.HistoryCursor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import org.springframework.data.domain.Pageable;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+@Slf4j
 @Service
-@RequiredArgsConstructor
 @Transactional
 public class CardTransactionService implements CardTransactionServiceInterface {
 
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final CardRepository cardRepository;
     private final CardTransactionRepository transactionRepository;
     private final CardTransactionMapper cardTransactionMapper;
+    private final IdempotencyKeyStore idempotencyKeys;
+    private final BatchTransferApplier batchTransferApplier;
+    private final LedgerWriter ledgerWriter;
+    private final ShardedTransferExecutor shardedExecutor;
+    private final ColumnarHistoryArchive archive;
+    private final TransferProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter retries;
+
+    public CardTransactionService(CardRepository cardRepository,
+                                  CardTransactionRepository transactionRepository,
+                                  CardTransactionMapper cardTransactionMapper,
+                                  IdempotencyKeyStore idempotencyKeys,
+                                  BatchTransferApplier batchTransferApplier,
+                                  LedgerWriter ledgerWriter,
+                                  ShardedTransferExecutor shardedExecutor,
+                                  ColumnarHistoryArchive archive,
+                                  TransferProperties properties,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry) {
+        this.cardRepository = cardRepository;
+        this.transactionRepository = transactionRepository;
+        this.cardTransactionMapper = cardTransactionMapper;
+        this.idempotencyKeys = idempotencyKeys;
+        this.batchTransferApplier = batchTransferApplier;
+        this.ledgerWriter = ledgerWriter;
+        this.shardedExecutor = shardedExecutor;
+        this.archive = archive;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retries = Counter.builder("cards.transfer.retries").register(meterRegistry);
+    }
 
     @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public CardTransactionDto transferBetweenOwnCards(Long userId, CardTransferRequestDto dto) {
-        Card from = cardRepository.findByIdAndOwnerId(dto.getFromCardId(), userId)
-                .orElseThrow(() -> new CardNotFoundOrAccessDenied(dto.getFromCardId()));
+        return transferBetweenOwnCards(userId, dto, null);
+    }
 
-        Card to = cardRepository.findByIdAndOwnerId(dto.getToCardId(), userId)
-                .orElseThrow(() -> new CardNotFoundOrAccessDenied(dto.getFromCardId()));
+    /**
+     * Moves money between two cards of the user, in its own transaction per attempt.
+     * <p>
+     * Both locking modes touch the two card rows in ascending id order, so transfers A→B and
+     * B→A queue behind each other instead of deadlocking. A deadlock or serialization failure
+     * the database still reports is retried up to {@code max-attempts} times with a short
+     * randomised pause.
+     * <p>
+     * With an idempotency key, a repeated request gets the response of the first one and the
+     * cards are not touched again; see {@link IdempotencyKeyStore}.
+     * <p>
+     * In {@code SHARDED} write mode transfers without a key are handed to
+     * {@link ShardedTransferExecutor} and this thread waits for the commit. Transfers with a key
+     * stay on the direct path, which keeps the key claim in the same transaction as the transfer.
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public CardTransactionDto transferBetweenOwnCards(Long userId, CardTransferRequestDto dto, String idempotencyKey) {
+        BigDecimal amount = dto.getAmount();
+        if (amount == null || amount.signum() <= 0) {
+            throw new InvalidTransferAmount(amount);
+        }
+        if (dto.getFromCardId() == null || dto.getToCardId() == null) {
+            throw new CardNotFoundOrAccessDenied(dto.getFromCardId() != null ? dto.getToCardId() : null);
+        }
 
-        if (from.getStatus() != CardStatus.ACTIVE || to.getStatus() != CardStatus.ACTIVE) {
-            throw new CardIsNotActive(to.getStatus());
+        if (idempotencyKey == null && properties.getWriteMode() == TransferProperties.WriteMode.SHARDED) {
+            return awaitShard(shardedExecutor.submit(userId, dto));
         }
 
-        if (from.getBalance().compareTo(dto.getAmount()) < 0) {
-            throw new RuntimeException("Insufficient funds");
+        String requestHash = null;
+        if (idempotencyKey != null) {
+            if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                throw new InvalidIdempotencyKey();
+            }
+            requestHash = IdempotencyKeyStore.requestHash(dto);
+            CardTransactionDto cached = idempotencyKeys.cached(userId, idempotencyKey, requestHash);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        String hash = requestHash;
+        CardTransactionDto response = inTransaction(
+                () -> "с карты " + dto.getFromCardId() + " на карту " + dto.getToCardId(),
+                () -> transfer(userId, dto, amount, idempotencyKey, hash));
+        if (idempotencyKey != null) {
+            idempotencyKeys.remember(userId, idempotencyKey, hash, response);
+        }
+        return response;
+    }
+
+    /**
+     * Applies many transfers between the user's cards in one transaction, see
+     * {@link BatchTransferApplier}. In {@code ALL_OR_NOTHING} mode the first rejected leg fails
+     * the batch; in {@code PER_LEG} mode it is reported and skipped.
+     */
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public BatchTransferResponseDto transferBatch(Long userId, BatchTransferRequestDto dto) {
+        List<CardTransferRequestDto> legs = dto.getTransfers() != null ? dto.getTransfers() : List.of();
+        if (legs.isEmpty() || legs.size() > properties.getMaxBatchSize()) {
+            throw new BatchTransferRejected(properties.getMaxBatchSize());
+        }
+        boolean atomic = dto.getMode() != BatchTransferRequestDto.Mode.PER_LEG;
+
+        return inTransaction(() -> "пакетный, " + legs.size() + " переводов", () -> {
+            List<BatchTransferApplier.Outcome> outcomes = batchTransferApplier.apply(userId, legs, atomic);
+            List<BatchTransferLegResultDto> results = new ArrayList<>(outcomes.size());
+            int applied = 0;
+            for (int i = 0; i < outcomes.size(); i++) {
+                BatchTransferApplier.Outcome outcome = outcomes.get(i);
+                if (outcome.transaction() != null) {
+                    applied++;
+                    results.add(BatchTransferLegResultDto.builder()
+                            .index(i)
+                            .status(BatchTransferLegResultDto.Status.APPLIED)
+                            .transaction(cardTransactionMapper.toDto(outcome.transaction()))
+                            .build());
+                } else {
+                    results.add(BatchTransferLegResultDto.builder()
+                            .index(i)
+                            .status(BatchTransferLegResultDto.Status.REJECTED)
+                            .error(outcome.failure().getMessage())
+                            .build());
+                }
+            }
+            return BatchTransferResponseDto.builder()
+                    .applied(applied)
+                    .rejected(outcomes.size() - applied)
+                    .results(results)
+                    .build();
+        });
+    }
+
+    /**
+     * Runs {@code work} in a new transaction, retrying deadlock and serialization aborts up to
+     * {@code max-attempts} times.
+     */
+    private <T> T inTransaction(Supplier<String> description, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= properties.getMaxAttempts()) {
+                    throw e;
+                }
+                retries.increment();
+                log.warn("Перевод {} прерван СУБД, попытка {}: {}", description.get(), attempt, e.getMessage());
+                backoff(attempt);
+            }
         }
+    }
+
+    private CardTransactionDto transfer(Long userId, CardTransferRequestDto dto, BigDecimal amount,
+                                        String idempotencyKey, String requestHash) {
+        if (idempotencyKey != null) {
+            CardTransactionDto replayed = idempotencyKeys.claim(userId, idempotencyKey, requestHash);
+            if (replayed != null) {
+                return replayed;
+            }
+        }
+
+        CardTransaction transaction = properties.getLocking() == TransferProperties.Locking.ORDERED
+                ? transferLocked(userId, dto, amount)
+                : transferConditional(userId, dto, amount);
+        CardTransactionDto response = cardTransactionMapper.toDto(transaction);
+
+        if (idempotencyKey != null) {
+            idempotencyKeys.complete(userId, idempotencyKey, response);
+        }
+        return response;
+    }
+
+    /**
+     * Two guarded updates and an insert. The debit only matches while the balance covers the
+     * amount, so two concurrent transfers cannot both spend the same funds, and no card entity
+     * is loaded. When an update matches nothing the card is read once to report why, and the
+     * transaction rolls back.
+     */
+    private CardTransaction transferConditional(Long userId, CardTransferRequestDto dto, BigDecimal amount) {
+        if (dto.getFromCardId() <= dto.getToCardId()) {
+            debit(userId, dto.getFromCardId(), amount);
+            credit(userId, dto.getToCardId(), amount);
+        } else {
+            credit(userId, dto.getToCardId(), amount);
+            debit(userId, dto.getFromCardId(), amount);
+        }
+
+        return saveTransaction(cardRepository.getReferenceById(dto.getFromCardId()),
+                cardRepository.getReferenceById(dto.getToCardId()), amount, dto.getDescription());
+    }
+
+    /**
+     * Locks both cards with {@code SELECT ... FOR UPDATE} in id order, checks and updates them
+     * in Java. Dirty checking writes only the balances.
+     */
+    private CardTransaction transferLocked(Long userId, CardTransferRequestDto dto, BigDecimal amount) {
+        List<Card> locked = cardRepository.findAllByIdForUpdate(
+                List.of(dto.getFromCardId(), dto.getToCardId()), userId);
+        Card from = lockedCard(locked, dto.getFromCardId());
+        Card to = lockedCard(locked, dto.getToCardId());
+
+        if (from.getStatus() != CardStatus.ACTIVE) {
+            throw new CardIsNotActive(from.getStatus());
+        }
+        if (to.getStatus() != CardStatus.ACTIVE) {
+            throw new CardIsNotActive(to.getStatus());
+        }
+        if (from.getBalance().compareTo(amount) < 0) {
+            throw new InsufficientFunds(from.getId());
+        }
+
+        from.setBalance(from.getBalance().subtract(amount));
+        to.setBalance(to.getBalance().add(amount));
 
-        from.setBalance(from.getBalance().subtract(dto.getAmount()));
-        to.setBalance(to.getBalance().add(dto.getAmount()));
+        return saveTransaction(from, to, amount, dto.getDescription());
+    }
 
+    private CardTransaction saveTransaction(Card from, Card to, BigDecimal amount, String description) {
         CardTransaction transaction = CardTransaction.builder()
                 .fromCard(from)
                 .toCard(to)
-                .amount(dto.getAmount())
-                .description(dto.getDescription())
+                .amount(amount)
+                .timestamp(LocalDateTime.now())
+                .description(description)
                 .build();
 
         transactionRepository.save(transaction);
-        cardRepository.save(from);
-        cardRepository.save(to);
+        ledgerWriter.recordTransfers(List.of(transaction));
+        return transaction;
+    }
+
+    private void debit(Long userId, Long cardId, BigDecimal amount) {
+        if (cardRepository.debit(cardId, userId, amount) == 0) {
+            throw debitFailure(cardId, userId);
+        }
+    }
 
-        return cardTransactionMapper.toDto(transaction);
+    private void credit(Long userId, Long cardId, BigDecimal amount) {
+        if (cardRepository.credit(cardId, userId, amount) == 0) {
+            throw creditFailure(cardId, userId);
+        }
+    }
+
+    private static Card lockedCard(List<Card> locked, Long cardId) {
+        return locked.stream()
+                .filter(card -> card.getId().equals(cardId))
+                .findFirst()
+                .orElseThrow(() -> new CardNotFoundOrAccessDenied(cardId));
+    }
+
+    private static CardTransactionDto awaitShard(CompletableFuture<CardTransactionDto> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Transfer failed", e.getCause());
+        }
+    }
+
+    private void backoff(int attempt) {
+        long bound = Math.max(properties.getRetryBackoffMs(), 1) * attempt;
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a transfer", e);
+        }
     }
 
     @Override
@@ -65,9 +332,85 @@ public class CardTransactionService implements CardTransactionServiceInterface {
         Card card = cardRepository.findByIdAndOwnerId(cardId, userId)
                 .orElseThrow(() -> new CardNotFoundOrAccessDenied(cardId));
 
-        return transactionRepository.findAllByCardId(card.getId(), pageable)
-                .map(cardTransactionMapper::toDto);
+        // the database serves the newest rows, the archive continues where it stops
+        Page<CardTransactionDto> recent = transactionRepository.findAllByCardId(
+                card.getId(), archive.archivedUntil(), pageable);
+        long archived = archive.count(card.getId());
+        if (archived == 0) {
+            return recent;
+        }
+        List<CardTransactionDto> items = new ArrayList<>(recent.getContent());
+        if (items.size() < pageable.getPageSize()) {
+            long skip = Math.max(pageable.getOffset() - recent.getTotalElements(), 0);
+            items.addAll(archive.findPage(card.getId(), skip, pageable.getPageSize() - items.size()));
+        }
+        return new PageImpl<>(items, pageable, recent.getTotalElements() + archived);
     }
-}
 
+    @Override
+    public TransactionHistoryPageDto getTransactionHistory(Long userId, Long cardId, String cursor, int size) {
+        HistoryCursor position = HistoryCursor.decode(cursor);
+        int limit = Math.min(Math.max(size, 1), MAX_HISTORY_PAGE_SIZE);
+        Card card = cardRepository.findByIdAndOwnerId(cardId, userId)
+                .orElseThrow(() -> new CardNotFoundOrAccessDenied(cardId));
+
+        // one row past the page tells whether there is a next one, without a count query
+        List<CardTransactionView> rows = transactionRepository.findHistoryBefore(
+                card.getId(), position.timestamp(), position.id(), limit + 1);
+        if (rows.size() > limit) {
+            List<CardTransactionView> page = rows.subList(0, limit);
+            CardTransactionView last = page.get(page.size() - 1);
+            return TransactionHistoryPageDto.builder()
+                    .items(page.stream().map(cardTransactionMapper::toDto).toList())
+                    .nextCursor(new HistoryCursor(last.getTimestamp(), last.getId()).encode())
+                    .build();
+        }
+
+        // the database ran out; older months may have been archived, so continue from where it stopped
+        List<CardTransactionDto> items = new ArrayList<>(limit + 1);
+        rows.stream().map(cardTransactionMapper::toDto).forEach(items::add);
+        CardTransactionView oldest = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        items.addAll(archive.findBefore(card.getId(),
+                oldest != null ? oldest.getTimestamp() : position.timestamp(),
+                oldest != null ? oldest.getId() : position.id(),
+                limit + 1 - rows.size()));
+
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            CardTransactionDto last = items.get(limit - 1);
+            nextCursor = new HistoryCursor(last.getTimestamp(), last.getId()).encode();
+        }
+
+        return TransactionHistoryPageDto.builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private RuntimeException debitFailure(Long cardId, Long userId) {
+        RuntimeException failure = cardFailure(cardId, userId);
+        return failure != null ? failure : new InsufficientFunds(cardId);
+    }
+
+    private RuntimeException creditFailure(Long cardId, Long userId) {
+        RuntimeException failure = cardFailure(cardId, userId);
+        // the card changed back between the update and the read, let the client retry
+        return failure != null ? failure : new IllegalStateException("Card " + cardId + " changed during transfer");
+    }
 
+    /**
+     * Why an update on the card matched no row: missing or foreign, or not active.
+     * {@code null} if neither, which for a debit means the balance was short.
+     */
+    private RuntimeException cardFailure(Long cardId, Long userId) {
+        Card card = cardRepository.findByIdAndOwnerId(cardId, userId).orElse(null);
+        if (card == null) {
+            return new CardNotFoundOrAccessDenied(cardId);
+        }
+        if (card.getStatus() != CardStatus.ACTIVE) {
+            return new CardIsNotActive(card.getStatus());
+        }
+        return null;
+    }
+}
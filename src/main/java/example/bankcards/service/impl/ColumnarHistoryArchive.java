@@ -0,0 +1,208 @@
+package example.bankcards.service.impl;
+
+import example.bankcards.config.partition.PartitionProperties;
+import example.bankcards.dto.card.CardTransactionDto;
+import example.bankcards.until.ColumnarSegmentReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Transaction history of archived partitions, served from the columnar segments
+ * {@link example.bankcards.until.TransactionArchiveJob} writes next to the NDJSON dumps.
+ * <p>
+ * Every {@code *.seg} file in the archive directory is mapped once and kept open. Partitions
+ * never overlap, so segments are searched newest first and the search stops as soon as the
+ * page is full. The directory is rescanned after each archive run and every
+ * {@code segment-refresh-ms}, so segments copied in by hand show up without a restart.
+ */
+@Slf4j
+@Component
+public class ColumnarHistoryArchive {
+
+    public static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * {@link #archivedUntil()} when there are no segments: before any stored timestamp.
+     */
+    public static final LocalDateTime NOTHING_ARCHIVED = LocalDateTime.of(1, 1, 1, 0, 0);
+
+    private final PartitionProperties properties;
+    private final Map<Path, OpenSegment> open = new HashMap<>();
+    // newest first; replaced as a whole so readers never see a half-built list
+    private volatile List<ColumnarSegmentReader> segments = List.of();
+
+    public ColumnarHistoryArchive(PartitionProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${cards.partitions.archive.segment-refresh-ms:60000}",
+            initialDelayString = "${cards.partitions.archive.segment-refresh-ms:60000}")
+    public synchronized void refresh() {
+        Path directory = Path.of(properties.getArchive().getDirectory());
+        Map<Path, OpenSegment> found = new HashMap<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+                for (Path file : files) {
+                    FileTime modified = Files.getLastModifiedTime(file);
+                    OpenSegment segment = open.get(file);
+                    // a rewritten segment is a new file moved over the old one, so reopen it
+                    if (segment == null || !segment.modified().equals(modified)) {
+                        segment = openSegment(file, modified);
+                    } else {
+                        open.remove(file);
+                    }
+                    if (segment != null) {
+                        found.put(file, segment);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Не удалось прочитать каталог архива {}", directory, e);
+                return;
+            }
+        }
+        // whatever is left was deleted or replaced
+        List<ColumnarSegmentReader> stale = open.values().stream().map(OpenSegment::reader).toList();
+        open.clear();
+        open.putAll(found);
+
+        segments = found.values().stream()
+                .map(OpenSegment::reader)
+                .filter(reader -> !reader.isEmpty())
+                .sorted(Comparator.comparing(ColumnarSegmentReader::maxTimestamp).reversed())
+                .toList();
+        // closing the channel leaves the mapping valid, so a search still running on it finishes
+        stale.forEach(this::closeQuietly);
+    }
+
+    /**
+     * Up to {@code limit} archived transactions of the card strictly before
+     * {@code (beforeTimestamp, beforeId)}, newest first.
+     */
+    public List<CardTransactionDto> findBefore(Long cardId, LocalDateTime beforeTimestamp, long beforeId, int limit) {
+        List<CardTransactionDto> result = new ArrayList<>();
+        for (ColumnarSegmentReader segment : segments) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (segment.minTimestamp().isAfter(beforeTimestamp)) {
+                continue; // the whole segment is newer than the cursor
+            }
+            ColumnarSegmentReader.Block block = segment.block(cardId);
+            if (block != null) {
+                block.collectBefore(beforeTimestamp, beforeId, limit - result.size(), result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} archived transactions of the card, newest first, after skipping the
+     * {@code skip} newest.
+     */
+    public List<CardTransactionDto> findPage(Long cardId, long skip, int limit) {
+        List<CardTransactionDto> result = new ArrayList<>();
+        for (ColumnarSegmentReader segment : segments) {
+            if (result.size() >= limit) {
+                break;
+            }
+            ColumnarSegmentReader.Block block = segment.block(cardId);
+            if (block == null) {
+                continue;
+            }
+            if (skip >= block.rows()) {
+                skip -= block.rows();
+                continue;
+            }
+            block.collectFrom((int) skip, limit - result.size(), result);
+            skip = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Archived transactions of the card; read from the segment directories, no rows are touched.
+     */
+    public long count(Long cardId) {
+        long count = 0;
+        for (ColumnarSegmentReader segment : segments) {
+            ColumnarSegmentReader.Block block = segment.block(cardId);
+            if (block != null) {
+                count += block.rows();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Every archived transaction of the card, oldest first.
+     */
+    public void forEachOldestFirst(Long cardId, Consumer<CardTransactionDto> action) {
+        List<ColumnarSegmentReader> current = segments;
+        for (int i = current.size() - 1; i >= 0; i--) {
+            ColumnarSegmentReader.Block block = current.get(i).block(cardId);
+            if (block != null) {
+                block.forEach(action);
+            }
+        }
+    }
+
+    /**
+     * Newest archived timestamp, {@link #NOTHING_ARCHIVED} if none. Partitions do not overlap,
+     * so every row after it is still in the database, and a query for rows after it never
+     * returns one that is also archived, even before the archived partition is dropped.
+     */
+    public LocalDateTime archivedUntil() {
+        List<ColumnarSegmentReader> current = segments;
+        return current.isEmpty() ? NOTHING_ARCHIVED : current.get(0).maxTimestamp();
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        open.values().forEach(segment -> closeQuietly(segment.reader()));
+        open.clear();
+        segments = List.of();
+    }
+
+    private OpenSegment openSegment(Path file, FileTime modified) {
+        try {
+            ColumnarSegmentReader reader = ColumnarSegmentReader.open(file);
+            log.info("Открыт сегмент архива {}", file);
+            return new OpenSegment(reader, modified);
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось открыть сегмент архива {}", file, e);
+            return null;
+        }
+    }
+
+    private void closeQuietly(ColumnarSegmentReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть сегмент архива {}", reader.file(), e);
+        }
+    }
+
+    private record OpenSegment(ColumnarSegmentReader reader, FileTime modified) {
+    }
+}
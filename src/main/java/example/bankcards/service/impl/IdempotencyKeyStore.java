@@ -0,0 +1,150 @@
+package example.bankcards.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import example.bankcards.config.transfer.TransferProperties;
+import example.bankcards.dto.card.CardTransactionDto;
+import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.entity.IdempotencyKey;
+import example.bankcards.exception.card.IdempotencyKeyInUse;
+import example.bankcards.exception.card.IdempotencyKeyReused;
+import example.bankcards.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Responses of transfers made under an {@code Idempotency-Key}, per user.
+ * <p>
+ * The {@code idempotency_keys} table is the source of truth. A transfer claims its key with an
+ * insert in the same transaction that moves the money, so the key and the transfer commit or
+ * roll back together, and a concurrent duplicate waits on the unique index until the first one
+ * is done. Completed responses are also kept in a bounded in-memory LRU, so a client retrying
+ * a timed-out request is answered without touching the database. Hits and misses are
+ * published under {@code cache.*} with {@code cache=transfers.idempotency}.
+ */
+@Component
+public class IdempotencyKeyStore {
+
+    private final IdempotencyKeyRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Cache<Key, Stored> responses;
+
+    public IdempotencyKeyStore(IdempotencyKeyRepository repository,
+                               ObjectMapper objectMapper,
+                               TransferProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(properties.getIdempotency().getCacheSize())
+                .expireAfterWrite(Duration.ofMillis(properties.getIdempotency().getTtlMs()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "transfers.idempotency");
+    }
+
+    /**
+     * Response remembered in memory, or {@code null}.
+     */
+    public CardTransactionDto cached(Long userId, String key, String requestHash) {
+        Stored stored = responses.getIfPresent(new Key(userId, key));
+        return stored != null ? stored.matching(key, requestHash) : null;
+    }
+
+    /**
+     * Claims the key inside the caller's transaction. Returns {@code null} if it was free and
+     * the caller should go on with the transfer, or the response of the transfer that took it.
+     */
+    public CardTransactionDto claim(Long userId, String key, String requestHash) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (repository.insertIfAbsent(userId, key, requestHash, LocalDateTime.now()) == 1) {
+                return null;
+            }
+            Optional<IdempotencyKey> existing = repository.findByUserIdAndIdempotencyKey(userId, key);
+            if (existing.isPresent()) {
+                if (!existing.get().getRequestHash().equals(requestHash)) {
+                    throw new IdempotencyKeyReused(key);
+                }
+                return read(existing.get().getResponseBody());
+            }
+            // swept between the insert and the read, so the key is free again
+        }
+        throw new IdempotencyKeyInUse(key);
+    }
+
+    /**
+     * Stores the response in the caller's transaction, next to the claim.
+     */
+    public void complete(Long userId, String key, CardTransactionDto response) {
+        repository.saveResponse(userId, key, write(response));
+    }
+
+    /**
+     * Keeps a committed response in memory.
+     */
+    public void remember(Long userId, String key, String requestHash, CardTransactionDto response) {
+        responses.put(new Key(userId, key), new Stored(requestHash, response));
+    }
+
+    /**
+     * SHA-256 over the fields that make a transfer, so a retry with the same body matches and
+     * a different transfer under the same key does not. Amounts compare by value, {@code 10}
+     * and {@code 10.00} are the same request.
+     */
+    public static String requestHash(CardTransferRequestDto dto) {
+        BigDecimal amount = dto.getAmount();
+        String canonical = dto.getFromCardId() + "|" + dto.getToCardId() + "|"
+                + (amount != null ? amount.stripTrailingZeros().toPlainString() : "") + "|"
+                + (dto.getDescription() != null ? dto.getDescription() : "");
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(CardTransactionDto response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store transfer response", e);
+        }
+    }
+
+    private CardTransactionDto read(String responseBody) {
+        if (responseBody == null) {
+            throw new IllegalStateException("Idempotency key has no stored response");
+        }
+        try {
+            return objectMapper.readValue(responseBody, CardTransactionDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored transfer response", e);
+        }
+    }
+
+    private record Key(Long userId, String key) {
+    }
+
+    private record Stored(String requestHash, CardTransactionDto response) {
+
+        CardTransactionDto matching(String key, String otherHash) {
+            if (!requestHash.equals(otherHash)) {
+                throw new IdempotencyKeyReused(key);
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package example.bankcards.service.impl;
+
+import example.bankcards.dto.card.CardBalanceDto;
+import example.bankcards.entity.BalanceCheckpoint;
+import example.bankcards.repository.BalanceCheckpointRepository;
+import example.bankcards.repository.LedgerEntryRepository;
+import example.bankcards.service.api.LedgerServiceInterface;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Balances read from the ledger. A balance at a moment is the last checkpoint before it plus
+ * the entries between the two, so the scan is bounded by the checkpoint interval rather than
+ * the card's whole history.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class LedgerService implements LedgerServiceInterface {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceCheckpointRepository balanceCheckpointRepository;
+
+    @Override
+    public CardBalanceDto balanceAt(Long cardId, LocalDateTime at) {
+        Optional<BalanceCheckpoint> checkpoint =
+                balanceCheckpointRepository.findFirstByCardIdAndAsOfLessThanEqualOrderByAsOfDesc(cardId, at);
+        BigDecimal balance = checkpoint
+                .map(cp -> cp.getBalance().add(ledgerEntryRepository.sumBetween(cardId, cp.getAsOf(), at)))
+                .orElseGet(() -> ledgerEntryRepository.sumUpTo(cardId, at));
+
+        return CardBalanceDto.builder()
+                .cardId(cardId)
+                .at(at)
+                .balance(balance)
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+package example.bankcards.service.impl;
+
+import example.bankcards.entity.Card;
+import example.bankcards.entity.CardTransaction;
+import example.bankcards.entity.LedgerEntry;
+import example.bankcards.entity.LedgerEntryType;
+import example.bankcards.repository.LedgerEntryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Appends ledger entries in the caller's transaction, next to the balance change they describe.
+ */
+@Component
+@RequiredArgsConstructor
+public class LedgerWriter {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+
+    /**
+     * A debit on the source card and a credit on the target card per saved transaction.
+     */
+    public void recordTransfers(Collection<CardTransaction> transactions) {
+        List<LedgerEntry> entries = new ArrayList<>(transactions.size() * 2);
+        for (CardTransaction transaction : transactions) {
+            LocalDateTime at = transaction.getTimestamp() != null ? transaction.getTimestamp() : LocalDateTime.now();
+            entries.add(entry(transaction.getFromCard().getId(), transaction.getId(),
+                    LedgerEntryType.DEBIT, transaction.getAmount().negate(), at));
+            entries.add(entry(transaction.getToCard().getId(), transaction.getId(),
+                    LedgerEntryType.CREDIT, transaction.getAmount(), at));
+        }
+        ledgerEntryRepository.saveAll(entries);
+    }
+
+    public void recordOpening(Card card) {
+        BigDecimal balance = card.getBalance() != null ? card.getBalance() : BigDecimal.ZERO;
+        ledgerEntryRepository.save(entry(card.getId(), null, LedgerEntryType.OPENING, balance, LocalDateTime.now()));
+    }
+
+    private static LedgerEntry entry(Long cardId, Long transactionId, LedgerEntryType type, BigDecimal amount, LocalDateTime at) {
+        return LedgerEntry.builder()
+                .cardId(cardId)
+                .transactionId(transactionId)
+                .entryType(type)
+                .amount(amount)
+                .createdAt(at)
+                .build();
+    }
+}
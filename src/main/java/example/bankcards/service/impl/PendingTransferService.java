@@ -0,0 +1,77 @@
+package example.bankcards.service.impl;
+
+import example.bankcards.config.mapper.PendingTransferMapper;
+import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.dto.card.PendingTransferDto;
+import example.bankcards.entity.Card;
+import example.bankcards.entity.CardStatus;
+import example.bankcards.entity.PendingTransfer;
+import example.bankcards.entity.PendingTransferStatus;
+import example.bankcards.exception.card.CardIsNotActive;
+import example.bankcards.exception.card.CardNotFoundOrAccessDenied;
+import example.bankcards.exception.card.InvalidTransferAmount;
+import example.bankcards.exception.card.PendingTransferNotFound;
+import example.bankcards.repository.CardRepository;
+import example.bankcards.repository.PendingTransferRepository;
+import example.bankcards.service.api.PendingTransferServiceInterface;
+import example.bankcards.until.PendingTransferSettler;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Accept-then-settle transfers. {@link #accept} checks what can be checked without locking,
+ * that the amount is positive and both cards are the user's and active, and stores the
+ * transfer as PENDING; the funds are checked when {@link PendingTransferSettler} applies it.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class PendingTransferService implements PendingTransferServiceInterface {
+
+    private final PendingTransferRepository pendingTransferRepository;
+    private final CardRepository cardRepository;
+    private final PendingTransferMapper pendingTransferMapper;
+
+    @Override
+    public PendingTransferDto accept(Long userId, CardTransferRequestDto dto) {
+        BigDecimal amount = dto.getAmount();
+        if (amount == null || amount.signum() <= 0) {
+            throw new InvalidTransferAmount(amount);
+        }
+        requireActiveCard(userId, dto.getFromCardId());
+        requireActiveCard(userId, dto.getToCardId());
+
+        PendingTransfer transfer = PendingTransfer.builder()
+                .userId(userId)
+                .fromCardId(dto.getFromCardId())
+                .toCardId(dto.getToCardId())
+                .amount(amount)
+                .description(dto.getDescription())
+                .status(PendingTransferStatus.PENDING)
+                .createdAt(LocalDateTime.now())
+                .build();
+        return pendingTransferMapper.toDto(pendingTransferRepository.save(transfer));
+    }
+
+    @Override
+    public PendingTransferDto getStatus(Long userId, Long transferId) {
+        return pendingTransferRepository.findByIdAndUserId(transferId, userId)
+                .map(pendingTransferMapper::toDto)
+                .orElseThrow(() -> new PendingTransferNotFound(transferId));
+    }
+
+    private void requireActiveCard(Long userId, Long cardId) {
+        if (cardId == null) {
+            throw new CardNotFoundOrAccessDenied(null);
+        }
+        Card card = cardRepository.findByIdAndOwnerId(cardId, userId)
+                .orElseThrow(() -> new CardNotFoundOrAccessDenied(cardId));
+        if (card.getStatus() != CardStatus.ACTIVE) {
+            throw new CardIsNotActive(card.getStatus());
+        }
+    }
+}
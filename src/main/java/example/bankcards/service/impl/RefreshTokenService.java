@@ -0,0 +1,99 @@
+package example.bankcards.service.impl;
+
+import example.bankcards.entity.RefreshToken;
+import example.bankcards.entity.User;
+import example.bankcards.exception.auth.InvalidRefreshToken;
+import example.bankcards.repository.RefreshTokenRepository;
+import example.bankcards.service.api.RefreshTokenServiceInterface;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Issues and rotates refresh tokens.
+ * <p>
+ * A refresh token is 256 random bits, so a plain SHA-256 is enough to store it: there is nothing
+ * to brute-force and lookups go through the unique index on the hash. Every token is single-use;
+ * {@link #consume(String)} deletes it and the caller issues a new one.
+ */
+@Slf4j
+@Service
+@Transactional
+public class RefreshTokenService implements RefreshTokenServiceInterface {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Duration ttl;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${spring.security.jwt.refresh-ttl-ms:2592000000}") long ttlMs) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.ttl = Duration.ofMillis(ttlMs);
+    }
+
+    @Override
+    public String issue(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(token))
+                .user(user)
+                .createdAt(now)
+                .expiresAt(now.plus(ttl))
+                .build());
+        return token;
+    }
+
+    @Override
+    public User consume(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new InvalidRefreshToken();
+        }
+        RefreshToken stored = refreshTokenRepository.findByTokenHashWithUser(hash(refreshToken))
+                .orElseThrow(InvalidRefreshToken::new);
+
+        // the delete is the claim: of two requests racing with the same token only one gets a row back
+        if (refreshTokenRepository.deleteByIdIfPresent(stored.getId()) == 0) {
+            log.warn("Refresh token {} used concurrently", stored.getId());
+            throw new InvalidRefreshToken();
+        }
+        if (stored.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new InvalidRefreshToken();
+        }
+        return stored.getUser();
+    }
+
+    @Override
+    public void revoke(String refreshToken) {
+        refreshTokenRepository.deleteByTokenHash(hash(refreshToken));
+    }
+
+    @Override
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.deleteAllByUserId(userId);
+    }
+
+    static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
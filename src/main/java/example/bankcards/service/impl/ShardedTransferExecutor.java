@@ -0,0 +1,219 @@
+package example.bankcards.service.impl;
+
+import example.bankcards.config.mapper.CardTransactionMapper;
+import example.bankcards.config.transfer.TransferProperties;
+import example.bankcards.dto.card.CardTransactionDto;
+import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.exception.card.TransferQueueFull;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-writer shards for transfers, used when {@code cards.transfer.write-mode=sharded}.
+ * <p>
+ * A transfer only moves money between cards of one owner, so routing by owner id sends every
+ * transfer touching a card to the same worker. Each worker takes whatever is queued, up to
+ * {@code max-batch-size}, and applies it in one transaction through
+ * {@link BatchTransferApplier}: one lock query and one balance write per card, one batched
+ * insert, one commit. Transfers on the same cards never wait on each other's row locks, and
+ * the commit cost is shared by the whole batch. A rejected transfer fails only its own caller.
+ * <p>
+ * Metrics per shard: {@code cards.transfer.shard.queue} (waiting transfers),
+ * {@code cards.transfer.shard.batch} (transfers per commit) and
+ * {@code cards.transfer.shard.commit} (time per batch).
+ */
+@Slf4j
+@Component
+public class ShardedTransferExecutor {
+
+    private final BatchTransferApplier applier;
+    private final CardTransactionMapper cardTransactionMapper;
+    private final TransferProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private Shard[] shards = new Shard[0];
+    private volatile boolean running;
+
+    public ShardedTransferExecutor(BatchTransferApplier applier,
+                                   CardTransactionMapper cardTransactionMapper,
+                                   TransferProperties properties,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+        this.applier = applier;
+        this.cardTransactionMapper = cardTransactionMapper;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.getWriteMode() != TransferProperties.WriteMode.SHARDED) {
+            return;
+        }
+        TransferProperties.Sharding sharding = properties.getSharding();
+        int count = sharding.getShards() > 0 ? sharding.getShards() : Runtime.getRuntime().availableProcessors();
+        running = true;
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i, Math.max(sharding.getQueueCapacity(), 1));
+            shards[i].thread.start();
+        }
+        log.info("Запущено {} шардов для переводов", count);
+    }
+
+    /**
+     * Queues the transfer on its owner's shard. Refuses it with {@link TransferQueueFull} when
+     * that shard is already {@code queue-capacity} transfers behind.
+     */
+    public CompletableFuture<CardTransactionDto> submit(Long userId, CardTransferRequestDto dto) {
+        if (!running) {
+            throw new IllegalStateException("Sharded transfer executor is not running");
+        }
+        Task task = new Task(userId, dto, new CompletableFuture<>());
+        if (!shardOf(userId).queue.offer(task)) {
+            throw new TransferQueueFull();
+        }
+        return task.result();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.thread.interrupt();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<Task> left = new ArrayList<>();
+            shard.queue.drainTo(left);
+            left.forEach(task -> task.result().completeExceptionally(new TransferQueueFull()));
+        }
+    }
+
+    private Shard shardOf(Long userId) {
+        // spread sequential ids, then fold into the shard range
+        long mixed = userId * 0x9E3779B97F4A7C15L;
+        return shards[(int) Math.floorMod(mixed ^ (mixed >>> 32), (long) shards.length)];
+    }
+
+    private final class Shard implements Runnable {
+
+        private final BlockingQueue<Task> queue;
+        private final Thread thread;
+        private final DistributionSummary batchSizes;
+        private final Timer commits;
+
+        Shard(int index, int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this, "transfer-shard-" + index);
+            this.thread.setDaemon(true);
+            String shard = Integer.toString(index);
+            Gauge.builder("cards.transfer.shard.queue", queue, BlockingQueue::size)
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+            this.batchSizes = DistributionSummary.builder("cards.transfer.shard.batch")
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+            this.commits = Timer.builder("cards.transfer.shard.commit")
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public void run() {
+            int maxBatch = Math.max(properties.getSharding().getMaxBatchSize(), 1);
+            List<Task> batch = new ArrayList<>(maxBatch);
+            while (running) {
+                try {
+                    Task first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatch - 1);
+                    batchSizes.record(batch.size());
+                    commits.record(() -> process(batch));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    // never let one bad batch stop the shard
+                    log.error("Ошибка при обработке пакета переводов", e);
+                    batch.forEach(task -> task.result().completeExceptionally(e));
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void process(List<Task> batch) {
+            Map<Long, List<Task>> byOwner = new LinkedHashMap<>();
+            for (Task task : batch) {
+                byOwner.computeIfAbsent(task.userId(), id -> new ArrayList<>()).add(task);
+            }
+
+            Map<Task, Object> results = null;
+            for (int attempt = 1; results == null; attempt++) {
+                try {
+                    results = transactionTemplate.execute(status -> apply(byOwner));
+                } catch (ConcurrencyFailureException e) {
+                    if (attempt >= properties.getMaxAttempts()) {
+                        throw e;
+                    }
+                    log.warn("Пакет переводов прерван СУБД, попытка {}: {}", attempt, e.getMessage());
+                }
+            }
+
+            // answer callers only after the commit
+            results.forEach((task, result) -> {
+                if (result instanceof CardTransactionDto dto) {
+                    task.result().complete(dto);
+                } else {
+                    task.result().completeExceptionally((RuntimeException) result);
+                }
+            });
+        }
+
+        private Map<Task, Object> apply(Map<Long, List<Task>> byOwner) {
+            Map<Task, Object> results = new LinkedHashMap<>();
+            byOwner.forEach((userId, tasks) -> {
+                List<CardTransferRequestDto> legs = tasks.stream().map(Task::dto).toList();
+                List<BatchTransferApplier.Outcome> outcomes = applier.apply(userId, legs, false);
+                for (int i = 0; i < tasks.size(); i++) {
+                    BatchTransferApplier.Outcome outcome = outcomes.get(i);
+                    results.put(tasks.get(i), outcome.transaction() != null
+                            ? cardTransactionMapper.toDto(outcome.transaction())
+                            : outcome.failure());
+                }
+            });
+            return results;
+        }
+    }
+
+    private record Task(Long userId, CardTransferRequestDto dto, CompletableFuture<CardTransactionDto> result) {
+    }
+}
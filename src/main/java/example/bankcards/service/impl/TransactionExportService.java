@@ -0,0 +1,37 @@
+package example.bankcards.service.impl;
+
+import example.bankcards.dto.card.TransactionExportFormat;
+import example.bankcards.entity.Card;
+import example.bankcards.exception.card.CardNotFoundOrAccessDenied;
+import example.bankcards.repository.CardRepository;
+import example.bankcards.service.api.TransactionExportServiceInterface;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionExportService implements TransactionExportServiceInterface {
+
+    private final CardRepository cardRepository;
+    private final TransactionExportWriter exportWriter;
+
+    /**
+     * Checks access before anything is sent, so a foreign card still gets a 404; the rows are
+     * written later on the response thread.
+     */
+    @Override
+    public StreamingResponseBody exportCardHistory(Long userId, Long cardId, TransactionExportFormat format, boolean gzip) {
+        Card card = cardRepository.findByIdAndOwnerId(cardId, userId)
+                .orElseThrow(() -> new CardNotFoundOrAccessDenied(cardId));
+        Long id = card.getId();
+
+        return out -> {
+            long started = System.nanoTime();
+            long rows = exportWriter.writeCardHistory(id, format, gzip, out);
+            log.info("Выгрузка истории карты {}: {} строк, {} мс", id, rows, (System.nanoTime() - started) / 1_000_000);
+        };
+    }
+}
@@ -0,0 +1,284 @@
+package example.bankcards.service.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import example.bankcards.config.export.ExportProperties;
+import example.bankcards.dto.card.CardTransactionDto;
+import example.bankcards.dto.card.TransactionExportFormat;
+import example.bankcards.until.ColumnarSegmentWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes card transactions to a stream as NDJSON or CSV while the rows are read.
+ * <p>
+ * The query runs in a read-only transaction so the Postgres driver uses a server-side cursor
+ * and fetches {@code fetch-size} rows at a time; each row is written and dropped before the
+ * next, so memory use does not grow with the history. No entities are built.
+ */
+@Component
+public class TransactionExportWriter {
+
+    static final String CSV_HEADER = "id,timestamp,from_card_id,to_card_id,amount,description";
+
+    // two index scans merged in order, the same shape as the keyset history query; rows up to the
+    // newest archived timestamp come from the segments, so archived partitions are pruned
+    private static final String CARD_HISTORY_SQL = "SELECT h.id, h.timestamp, h.from_card_id, h.to_card_id, h.amount, h.description FROM (" +
+            "SELECT t.* FROM card_transactions t WHERE t.from_card_id = ? AND t.timestamp > ? " +
+            "UNION ALL " +
+            "SELECT t.* FROM card_transactions t WHERE t.to_card_id = ? AND t.from_card_id IS DISTINCT FROM ? AND t.timestamp > ?" +
+            ") h ORDER BY h.timestamp, h.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExportProperties properties;
+    private final ColumnarHistoryArchive archive;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public TransactionExportWriter(DataSource dataSource,
+                                   PlatformTransactionManager transactionManager,
+                                   ExportProperties properties,
+                                   ColumnarHistoryArchive archive) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(Math.max(properties.getFetchSize(), 1));
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.properties = properties;
+        this.archive = archive;
+    }
+
+    /**
+     * Every transaction from or to the card, oldest first: the archived ones from the segments,
+     * then the rest from the database. Returns the number of rows written.
+     */
+    public long writeCardHistory(Long cardId, TransactionExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        LocalDateTime after = archive.archivedUntil();
+        return write(CARD_HISTORY_SQL, new Object[]{cardId, after, cardId, cardId, after}, cardId, format, gzip, out);
+    }
+
+    /**
+     * Every row of one table, in storage order. Used to archive a {@code card_transactions}
+     * partition; the caller passes a name read from the catalog, quoted.
+     */
+    public long writeTable(String quotedTable, TransactionExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        return write("SELECT id, timestamp, from_card_id, to_card_id, amount, description FROM " + quotedTable,
+                new Object[0], null, format, gzip, out);
+    }
+
+    /**
+     * Every row of one table as a {@link ColumnarSegmentWriter} segment, each transfer under both
+     * of its cards. The sort by card runs in the database; the writer holds one card's rows at a
+     * time. Returns the number of segment rows, two for most transfers.
+     */
+    public long writeSegment(String quotedTable, Path file) throws IOException {
+        String sql = "SELECT h.card_id, h.id, h.timestamp, h.amount, h.counterparty, h.outgoing, h.description FROM (" +
+                "SELECT t.from_card_id AS card_id, t.id, t.timestamp, t.amount, t.to_card_id AS counterparty, " +
+                "true AS outgoing, t.description FROM " + quotedTable + " t WHERE t.from_card_id IS NOT NULL " +
+                "UNION ALL " +
+                "SELECT t.to_card_id, t.id, t.timestamp, t.amount, t.from_card_id, false, t.description FROM " +
+                quotedTable + " t WHERE t.to_card_id IS NOT NULL AND t.from_card_id IS DISTINCT FROM t.to_card_id" +
+                ") h ORDER BY h.card_id, h.timestamp, h.id";
+        long[] rows = {0};
+        try (ColumnarSegmentWriter segment = new ColumnarSegmentWriter(file)) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                long counterparty = rs.getLong(5);
+                Long other = rs.wasNull() ? null : counterparty;
+                try {
+                    // read as the wall-clock value stored, like JPA does, not through the JVM time zone
+                    segment.add(rs.getLong(1), rs.getLong(2), rs.getObject(3, LocalDateTime.class), rs.getBigDecimal(4),
+                            other, rs.getBoolean(6), rs.getString(7));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    /**
+     * Runs the query into {@code out}; with an {@code archivedCardId} the card's archived rows
+     * are written first, so the query must only return rows after {@link ColumnarHistoryArchive#archivedUntil()}.
+     */
+    long write(String sql, Object[] args, Long archivedCardId, TransactionExportFormat format, boolean gzip,
+               OutputStream out) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, properties.getBufferSize()) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(compressed != null ? compressed : out, StandardCharsets.UTF_8),
+                properties.getBufferSize());
+        RowWriter rows = format == TransactionExportFormat.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+        try {
+            rows.begin();
+            if (archivedCardId != null) {
+                archive.forEachOldestFirst(archivedCardId, rows::writeArchived);
+            }
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(sql, rows, args));
+            rows.end();
+        } catch (UncheckedIOException e) {
+            // the client went away or the disk is full, the cause says which
+            throw e.getCause();
+        }
+        writer.flush();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        out.flush();
+        return rows.count;
+    }
+
+    private abstract static class RowWriter implements RowCallbackHandler {
+
+        long count;
+
+        void begin() throws IOException {
+        }
+
+        void end() throws IOException {
+        }
+
+        abstract void write(long id, LocalDateTime timestamp, Long fromCardId, Long toCardId,
+                            BigDecimal amount, String description) throws IOException;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                // the stored wall-clock value, the same one the segments hold
+                write(rs.getLong(1), rs.getObject(2, LocalDateTime.class), nullableLong(rs, 3), nullableLong(rs, 4),
+                        rs.getBigDecimal(5), rs.getString(6));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+        }
+
+        void writeArchived(CardTransactionDto row) {
+            try {
+                write(row.getId(), row.getTimestamp(), row.getFromCardId(), row.getToCardId(),
+                        row.getAmount(), row.getDescription());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+        }
+
+        private static Long nullableLong(ResultSet rs, int column) throws SQLException {
+            long value = rs.getLong(column);
+            return rs.wasNull() ? null : value;
+        }
+    }
+
+    private final class NdjsonRowWriter extends RowWriter {
+
+        private final Writer writer;
+        private JsonGenerator json;
+
+        NdjsonRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        void begin() throws IOException {
+            json = jsonFactory.createGenerator(writer);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // one object per line, written below; no extra separator between root values
+            json.setRootValueSeparator(null);
+        }
+
+        @Override
+        void write(long id, LocalDateTime timestamp, Long fromCardId, Long toCardId,
+                   BigDecimal amount, String description) throws IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", id);
+            json.writeStringField("timestamp", timestamp != null ? timestamp.toString() : null);
+            writeNullableNumber("fromCardId", fromCardId);
+            writeNullableNumber("toCardId", toCardId);
+            json.writeNumberField("amount", amount);
+            json.writeStringField("description", description);
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        void end() throws IOException {
+            json.close();
+        }
+
+        private void writeNullableNumber(String name, Long value) throws IOException {
+            if (value == null) {
+                json.writeNullField(name);
+            } else {
+                json.writeNumberField(name, value);
+            }
+        }
+    }
+
+    private static final class CsvRowWriter extends RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        void begin() throws IOException {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        void write(long id, LocalDateTime timestamp, Long fromCardId, Long toCardId,
+                   BigDecimal amount, String description) throws IOException {
+            writer.write(Long.toString(id));
+            writer.write(',');
+            if (timestamp != null) {
+                writer.write(timestamp.toString());
+            }
+            writer.write(',');
+            if (fromCardId != null) {
+                writer.write(fromCardId.toString());
+            }
+            writer.write(',');
+            if (toCardId != null) {
+                writer.write(toCardId.toString());
+            }
+            writer.write(',');
+            if (amount != null) {
+                writer.write(amount.toPlainString());
+            }
+            writer.write(',');
+            if (description != null) {
+                writer.write(quote(description));
+            }
+            writer.write('\n');
+        }
+
+        private static String quote(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
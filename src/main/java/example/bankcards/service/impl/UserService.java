@@ -9,12 +9,16 @@ import example.bankcards.exception.role.RoleNotFound;
 import example.bankcards.exception.user.UserNotFound;
 import example.bankcards.repository.RoleRepository;
 import example.bankcards.repository.UserRepository;
+import example.bankcards.security.TokenVersionRegistry;
+import example.bankcards.security.UserDetailsCache;
+import example.bankcards.service.api.RefreshTokenServiceInterface;
 import example.bankcards.service.api.UserServiceInterface;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -26,6 +30,9 @@ public class UserService implements UserServiceInterface {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final UserMapper userMapper;
+    private final TokenVersionRegistry tokenVersions;
+    private final UserDetailsCache userDetailsCache;
+    private final RefreshTokenServiceInterface refreshTokenService;
 
     @Override
     public List<UserResponseDto> getAllUsers() {
@@ -47,13 +54,19 @@ public class UserService implements UserServiceInterface {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFound(id));
 
-        user.setUsername(requestDto.getUsername());
-
         Set<Role> roles = requestDto.getRoleIds().stream()
                 .map(roleId -> roleRepository.findById(roleId)
                         .orElseThrow(() -> new RoleNotFound(roleId)))
                 .collect(Collectors.toSet());
 
+        // issued tokens carry the username and roles, make them stale if either changes
+        if (!Objects.equals(user.getUsername(), requestDto.getUsername())
+                || !roleIds(user.getRoles()).equals(requestDto.getRoleIds())) {
+            tokenVersions.bump(user);
+        }
+        userDetailsCache.invalidate(user.getUsername());
+
+        user.setUsername(requestDto.getUsername());
         user.setRoles(roles);
         User saved = userRepository.save(user);
         return userMapper.toDto(saved);
@@ -62,6 +75,29 @@ public class UserService implements UserServiceInterface {
 
     public void deleteUser(Long id) {
         userRepository.deleteById(id);
+        tokenVersions.evict(id);
+        userDetailsCache.invalidateUser(id);
+    }
+
+    /**
+     * Kill switch: every access token issued to the user so far stops working and their
+     * refresh tokens are deleted, so they have to log in again.
+     */
+    @Override
+    public void revokeTokens(Long id) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new UserNotFound(id));
+
+        tokenVersions.bump(user);
+        userRepository.save(user);
+        refreshTokenService.revokeAll(id);
+        userDetailsCache.invalidate(user.getUsername());
+    }
+
+    private static Set<Long> roleIds(Set<Role> roles) {
+        return roles.stream()
+                .map(Role::getId)
+                .collect(Collectors.toSet());
     }
 }
 
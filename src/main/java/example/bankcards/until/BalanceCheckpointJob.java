@@ -0,0 +1,62 @@
+package example.bankcards.until;
+
+import example.bankcards.config.ledger.LedgerProperties;
+import example.bankcards.repository.BalanceCheckpointRepository;
+import example.bankcards.repository.CardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Writes per-card balance checkpoints, one chunk of card ids per transaction.
+ * <p>
+ * A checkpoint is taken {@code lag-ms} in the past: an entry is written with the time its
+ * transfer started, and a transfer still open at checkpoint time would otherwise commit an
+ * entry dated before a checkpoint that does not include it. Cards without new entries get no
+ * new checkpoint. Checkpoints older than {@code retention-ms} are dropped once a newer one
+ * exists.
+ */
+@Slf4j
+@Component
+public class BalanceCheckpointJob {
+
+    private final CardRepository cardRepository;
+    private final BalanceCheckpointRepository balanceCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerProperties properties;
+
+    public BalanceCheckpointJob(CardRepository cardRepository,
+                                BalanceCheckpointRepository balanceCheckpointRepository,
+                                PlatformTransactionManager transactionManager,
+                                LedgerProperties properties) {
+        this.cardRepository = cardRepository;
+        this.balanceCheckpointRepository = balanceCheckpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${cards.ledger.checkpoint.delay-ms:3600000}",
+            initialDelayString = "${cards.ledger.checkpoint.delay-ms:3600000}")
+    public void checkpoint() {
+        LedgerProperties.Checkpoint config = properties.getCheckpoint();
+        LocalDateTime asOf = LocalDateTime.now().minus(Duration.ofMillis(config.getLagMs()));
+        long chunk = Math.max(config.getChunkSize(), 1);
+        long maxId = cardRepository.findMaxId();
+
+        long written = 0;
+        for (long afterId = 0; afterId < maxId; afterId += chunk) {
+            long from = afterId;
+            written += transactionTemplate.execute(status ->
+                    balanceCheckpointRepository.insertCheckpoints(asOf, from, from + chunk));
+        }
+
+        LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(config.getRetentionMs()));
+        int dropped = transactionTemplate.execute(status -> balanceCheckpointRepository.deleteSupersededBefore(before));
+        log.info("Контрольные точки балансов на {}: записано {}, удалено устаревших {}", asOf, written, dropped);
+    }
+}
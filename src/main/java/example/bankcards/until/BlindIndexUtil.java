@@ -0,0 +1,47 @@
+package example.bankcards.until;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+/**
+ * Keyed HMAC-SHA256 of a card number, stored next to the ciphertext as a blind index.
+ * <p>
+ * The AES ciphertext cannot be searched, the HMAC can: equal card numbers give equal
+ * hashes, so duplicate checks and lookups by number go through a unique index
+ * instead of decrypting every row. Without the key the hash reveals nothing usable.
+ */
+@Component
+public class BlindIndexUtil {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+
+    public BlindIndexUtil(@Value("${security.encryption.hmac-key}") String hmacKey) {
+        this.key = new SecretKeySpec(hmacKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(this::newMac);
+        newMac();
+    }
+
+    public String hash(String cardNumber) {
+        byte[] digest = mac.get().doFinal(cardNumber.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise " + ALGORITHM, e);
+        }
+    }
+}
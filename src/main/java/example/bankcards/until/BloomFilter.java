@@ -0,0 +1,92 @@
+package example.bankcards.until;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over strings, safe for concurrent {@link #put} and {@link #mightContain}.
+ * <p>
+ * {@code mightContain} never answers {@code false} for a value that was put, and answers
+ * {@code true} for a value that was not with roughly the configured probability. Values cannot
+ * be removed; callers drop them by building a new filter. A lookup is a 64-bit hash of the
+ * value and {@code k} bit reads, with no allocation.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    private BloomFilter(long bitCount, int hashCount) {
+        int wordCount = (int) Math.min((bitCount + 63) / 64, Integer.MAX_VALUE);
+        this.words = new AtomicLongArray(Math.max(wordCount, 1));
+        this.bitCount = (long) words.length() * 64;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Filter sized for {@code expectedInsertions} values at {@code falsePositiveRate}.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(expectedInsertions, 1);
+        double p = Math.min(Math.max(falsePositiveRate, 1e-9), 0.5);
+        long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(bits, hashes);
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            setBit(index(h1 + i * h2));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long index(int combined) {
+        // Kirsch-Mitzenmacher double hashing, folded into the bit range
+        return (combined & 0x7fffffffL) % bitCount;
+    }
+
+    private void setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+    }
+
+    /**
+     * FNV-1a over the characters, finished with the MurmurHash3 64-bit mix so both halves are usable.
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,146 @@
+package example.bankcards.until;
+
+import example.bankcards.config.encryption.EncryptionProperties;
+import example.bankcards.repository.CardRepository;
+import example.bankcards.repository.projection.CardCiphertextView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves card numbers onto the active key of the key ring after a rotation.
+ * <p>
+ * The {@code cards} table is walked in id order in chunks of {@code chunk-size} rows, each
+ * chunk in its own short transaction, and the run is paced to {@code rows-per-second}.
+ * Every row is replaced only if its ciphertext is still the one that was read, so a card
+ * changed in the meantime is left alone and picked up by the next run. Nothing is locked
+ * beyond the rows of the current chunk.
+ * <p>
+ * Finding the stale rows is a scan of {@code cards}, so once a run sees none left the job stops
+ * looking until the active key changes. New cards are always written under the active key; a
+ * card written under an old one after that, by an instance still on the previous key ring
+ * during a rolling deploy, is moved after the next restart.
+ * <p>
+ * Metrics: {@code cards.reencryption.rows} (rewritten and skipped rows),
+ * {@code cards.reencryption.chunk} (time per chunk), {@code cards.reencryption.lag}
+ * (rows still under an old key) and {@code cards.reencryption.throughput} (rows per second
+ * of the current or last run).
+ */
+@Slf4j
+@Component
+public class CardReencryptionJob {
+
+    private final CardRepository cardRepository;
+    private final EncryptionUtil encryptionUtil;
+    private final EncryptionProperties.Reencryption settings;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter rewritten;
+    private final Counter skipped;
+    private final Timer chunkTimer;
+    private final AtomicLong lag = new AtomicLong();
+    private final AtomicLong throughput = new AtomicLong();
+
+    // runs never overlap, so this is only touched by one thread at a time
+    private String completedPrefix;
+
+    public CardReencryptionJob(CardRepository cardRepository,
+                               EncryptionUtil encryptionUtil,
+                               EncryptionProperties properties,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        this.cardRepository = cardRepository;
+        this.encryptionUtil = encryptionUtil;
+        this.settings = properties.getReencryption();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.rewritten = Counter.builder("cards.reencryption.rows").tag("outcome", "rewritten").register(meterRegistry);
+        this.skipped = Counter.builder("cards.reencryption.rows").tag("outcome", "skipped").register(meterRegistry);
+        this.chunkTimer = Timer.builder("cards.reencryption.chunk").register(meterRegistry);
+        meterRegistry.gauge("cards.reencryption.lag", lag);
+        meterRegistry.gauge("cards.reencryption.throughput", throughput);
+    }
+
+    @Scheduled(fixedDelayString = "${security.encryption.reencryption.delay-ms:60000}")
+    public void reencryptStaleCardNumbers() {
+        String activePrefix = encryptionUtil.activeKeyPrefix();
+        if (!settings.isEnabled() || activePrefix == null || activePrefix.equals(completedPrefix)) {
+            return;
+        }
+
+        lag.set(cardRepository.countCiphertextsNotUnderKey(activePrefix));
+        if (lag.get() == 0) {
+            completedPrefix = activePrefix;
+            return;
+        }
+        log.info("Перешифрование номеров карт: {} строк не на ключе {}", lag.get(), activePrefix);
+
+        long started = System.nanoTime();
+        long processed = 0;
+        long lastId = 0;
+        while (true) {
+            List<CardCiphertextView> chunk =
+                    cardRepository.findCiphertextsNotUnderKey(lastId, activePrefix, settings.getChunkSize());
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            int updated = chunkTimer.record(() -> transactionTemplate.execute(status -> rewrite(chunk)));
+            rewritten.increment(updated);
+            skipped.increment(chunk.size() - updated);
+            lag.addAndGet(-updated);
+
+            lastId = chunk.get(chunk.size() - 1).getId();
+            processed += chunk.size();
+            long elapsed = System.nanoTime() - started;
+            throughput.set(processed * TimeUnit.SECONDS.toNanos(1) / Math.max(elapsed, 1));
+
+            if (!pace(started, processed)) {
+                log.warn("Перешифрование прервано на карте с ID {}", lastId);
+                return;
+            }
+        }
+
+        lag.set(cardRepository.countCiphertextsNotUnderKey(activePrefix));
+        if (lag.get() == 0) {
+            completedPrefix = activePrefix;
+        }
+        log.info("Перешифрование завершено: обработано {}, осталось {}", processed, lag.get());
+    }
+
+    private int rewrite(List<CardCiphertextView> chunk) {
+        int updated = 0;
+        for (CardCiphertextView row : chunk) {
+            String reencrypted = encryptionUtil.encrypt(encryptionUtil.decrypt(row.getCardNumber()));
+            updated += cardRepository.replaceCiphertext(row.getId(), row.getCardNumber(), reencrypted);
+        }
+        return updated;
+    }
+
+    /**
+     * Sleeps until {@code processed} rows fit the rows-per-second budget. Returns {@code false} if interrupted.
+     */
+    private boolean pace(long started, long processed) {
+        long due = started + processed * TimeUnit.SECONDS.toNanos(1) / Math.max(settings.getRowsPerSecond(), 1);
+        long wait = due - System.nanoTime();
+        if (wait <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
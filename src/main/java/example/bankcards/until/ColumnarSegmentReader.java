@@ -0,0 +1,288 @@
+package example.bankcards.until;
+
+import example.bankcards.dto.card.CardTransactionDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static example.bankcards.until.ColumnarSegmentWriter.DIRECTORY_ENTRY_SIZE;
+import static example.bankcards.until.ColumnarSegmentWriter.HEADER_SIZE;
+import static example.bankcards.until.ColumnarSegmentWriter.STRIDE;
+
+/**
+ * Reads a segment written by {@link ColumnarSegmentWriter} through a read-only memory map.
+ * <p>
+ * Fixed-width columns are read in place by absolute index, so a scan copies nothing but the
+ * values it returns and the pages come from the OS page cache. Timestamps are found through the
+ * block's skip index and only the groups of rows being returned are decoded. Reads never move
+ * the buffer's position, so one reader serves any number of threads.
+ */
+public final class ColumnarSegmentReader implements Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int cardCount;
+    private final int directoryOffset;
+    private final long minMicros;
+    private final long maxMicros;
+
+    private ColumnarSegmentReader(Path file, FileChannel channel, MappedByteBuffer buffer) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != ColumnarSegmentWriter.MAGIC) {
+            throw new IllegalArgumentException(file + " is not a transaction segment");
+        }
+        if (buffer.getInt(4) != ColumnarSegmentWriter.VERSION) {
+            throw new IllegalArgumentException(file + " has unsupported segment version " + buffer.getInt(4));
+        }
+        this.cardCount = buffer.getInt(8);
+        this.directoryOffset = Math.toIntExact(buffer.getLong(16));
+        this.minMicros = buffer.getLong(24);
+        this.maxMicros = buffer.getLong(32);
+    }
+
+    public static ColumnarSegmentReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            // a single mapping addresses up to 2 GB; monthly partitions stay well below that
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ColumnarSegmentReader(file, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public boolean isEmpty() {
+        return cardCount == 0;
+    }
+
+    public LocalDateTime minTimestamp() {
+        return ColumnarSegmentWriter.fromMicros(minMicros);
+    }
+
+    public LocalDateTime maxTimestamp() {
+        return ColumnarSegmentWriter.fromMicros(maxMicros);
+    }
+
+    /**
+     * The card's rows in this segment, or {@code null} if it has none.
+     */
+    public Block block(long cardId) {
+        int low = 0;
+        int high = cardCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = directoryOffset + middle * DIRECTORY_ENTRY_SIZE;
+            long id = buffer.getLong(entry);
+            if (id < cardId) {
+                low = middle + 1;
+            } else if (id > cardId) {
+                high = middle - 1;
+            } else {
+                return new Block(cardId, Math.toIntExact(buffer.getLong(entry + 8)), buffer.getInt(entry + 16));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static boolean isBefore(long micros, long id, long beforeMicros, long beforeId) {
+        return micros < beforeMicros || micros == beforeMicros && id < beforeId;
+    }
+
+    /**
+     * One card's rows, oldest first.
+     */
+    public final class Block {
+
+        private final long cardId;
+        private final int rows;
+        private final int groups;
+        private final int ids;
+        private final int amounts;
+        private final int counterparties;
+        private final int flags;
+        private final int descOffsets;
+        private final int skipMicros;
+        private final int skipOffsets;
+        private final int deltas;
+        private final int descriptions;
+
+        private Block(long cardId, int offset, int rows) {
+            this.cardId = cardId;
+            this.rows = rows;
+            this.groups = (rows + STRIDE - 1) / STRIDE;
+            this.ids = offset;
+            this.amounts = ids + rows * 8;
+            this.counterparties = amounts + rows * 8;
+            this.flags = counterparties + rows * 8;
+            this.descOffsets = flags + rows;
+            this.skipMicros = descOffsets + (rows + 1) * 4;
+            this.skipOffsets = skipMicros + groups * 8;
+            this.deltas = skipOffsets + groups * 4 + 4;
+            this.descriptions = deltas + buffer.getInt(skipOffsets + groups * 4);
+        }
+
+        public int rows() {
+            return rows;
+        }
+
+        public long id(int row) {
+            return buffer.getLong(ids + row * 8);
+        }
+
+        public long amountMinor(int row) {
+            return buffer.getLong(amounts + row * 8);
+        }
+
+        public CardTransactionDto toDto(int row, long timestampMicros) {
+            long counterparty = buffer.getLong(counterparties + row * 8);
+            Long other = counterparty == ColumnarSegmentWriter.NO_CARD ? null : counterparty;
+            Long self = cardId;
+            byte flag = buffer.get(flags + row);
+            boolean outgoing = (flag & ColumnarSegmentWriter.OUTGOING) != 0;
+            long amount = amountMinor(row);
+            return CardTransactionDto.builder()
+                    .id(id(row))
+                    .amount(amount == ColumnarSegmentWriter.NO_AMOUNT ? null : BigDecimal.valueOf(amount, 2))
+                    .timestamp(ColumnarSegmentWriter.fromMicros(timestampMicros))
+                    .fromCardId(outgoing ? self : other)
+                    .toCardId(outgoing ? other : self)
+                    .description((flag & ColumnarSegmentWriter.NO_DESCRIPTION) != 0 ? null : description(row))
+                    .build();
+        }
+
+        /**
+         * Adds up to {@code limit} rows strictly before {@code (beforeTimestamp, beforeId)}, newest
+         * first, and returns how many were added. Only the skip index is searched; timestamps are
+         * decoded one group of {@value ColumnarSegmentWriter#STRIDE} rows at a time, for the rows
+         * returned.
+         */
+        public int collectBefore(LocalDateTime beforeTimestamp, long beforeId, int limit, List<CardTransactionDto> out) {
+            long beforeMicros = ColumnarSegmentWriter.toMicros(beforeTimestamp);
+            // last group whose first row is before the cursor
+            int group = -1;
+            int low = 0;
+            int high = groups - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (isBefore(buffer.getLong(skipMicros + middle * 8), id(middle * STRIDE), beforeMicros, beforeId)) {
+                    group = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (group < 0) {
+                return 0;
+            }
+            long[] micros = new long[STRIDE];
+            int count = decodeGroup(group, micros);
+            int end = 1;
+            while (end < count && isBefore(micros[end], id(group * STRIDE + end), beforeMicros, beforeId)) {
+                end++;
+            }
+            return collectDown(group, end, micros, limit, out);
+        }
+
+        /**
+         * Adds up to {@code limit} rows newest first, skipping the {@code skip} newest, and returns
+         * how many were added.
+         */
+        public int collectFrom(int skip, int limit, List<CardTransactionDto> out) {
+            if (skip >= rows) {
+                return 0;
+            }
+            int newest = rows - 1 - skip;
+            int group = newest / STRIDE;
+            long[] micros = new long[STRIDE];
+            decodeGroup(group, micros);
+            return collectDown(group, newest - group * STRIDE + 1, micros, limit, out);
+        }
+
+        /**
+         * Every row, oldest first.
+         */
+        public void forEach(Consumer<CardTransactionDto> action) {
+            long[] micros = new long[STRIDE];
+            for (int group = 0; group < groups; group++) {
+                int count = decodeGroup(group, micros);
+                for (int i = 0; i < count; i++) {
+                    action.accept(toDto(group * STRIDE + i, micros[i]));
+                }
+            }
+        }
+
+        /**
+         * Adds the first {@code end} rows of the decoded {@code group}, then the groups before it,
+         * newest first.
+         */
+        private int collectDown(int group, int end, long[] micros, int limit, List<CardTransactionDto> out) {
+            int added = 0;
+            while (true) {
+                for (int i = end - 1; i >= 0 && added < limit; i--, added++) {
+                    out.add(toDto(group * STRIDE + i, micros[i]));
+                }
+                if (added >= limit || group == 0) {
+                    return added;
+                }
+                group--;
+                end = decodeGroup(group, micros);
+            }
+        }
+
+        /**
+         * Timestamps of the group's rows into {@code micros}; returns how many rows it has.
+         */
+        private int decodeGroup(int group, long[] micros) {
+            int count = Math.min(STRIDE, rows - group * STRIDE);
+            long current = buffer.getLong(skipMicros + group * 8);
+            micros[0] = current;
+            int position = deltas + buffer.getInt(skipOffsets + group * 4);
+            for (int i = 1; i < count; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = buffer.get(position++);
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                current += delta;
+                micros[i] = current;
+            }
+            return count;
+        }
+
+        private String description(int row) {
+            int start = buffer.getInt(descOffsets + row * 4);
+            int end = buffer.getInt(descOffsets + (row + 1) * 4);
+            if (start == end) {
+                return "";
+            }
+            byte[] bytes = new byte[end - start];
+            buffer.get(descriptions + start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package example.bankcards.until;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Writes a columnar segment of archived transactions, read back by {@link ColumnarSegmentReader}.
+ * <p>
+ * Rows must arrive ordered by card id, then timestamp, then transaction id. A transfer between
+ * two cards is added once for each of them. Each card gets one block with its rows in time order,
+ * stored column by column:
+ * <pre>
+ * ids            long[n]
+ * amounts        long[n]   minor units (amount * 100), {@link #NO_AMOUNT} if none
+ * counterparties long[n]   the other card, {@link #NO_CARD} if none
+ * flags          byte[n]   {@link #OUTGOING}, {@link #NO_DESCRIPTION}
+ * descOffsets    int[n+1]  into the description bytes; equal neighbours are an empty or no description
+ * skipMicros     long[g]   timestamp of every {@value #STRIDE}th row, microseconds since the epoch
+ * skipOffsets    int[g]    where the deltas after that row start
+ * tsLength       int
+ * tsDeltas       varint[]  distance to the previous timestamp, for rows not in the skip index
+ * descriptions   UTF-8 bytes
+ * </pre>
+ * with {@code g = ceil(n / STRIDE)}, so a reader decodes at most {@value #STRIDE} timestamps to
+ * reach any row.
+ * The file starts with a {@value #HEADER_SIZE}-byte header and ends with a directory of
+ * {@value #DIRECTORY_ENTRY_SIZE}-byte entries ordered by card id. One card's block is built in
+ * memory before it is written.
+ */
+public final class ColumnarSegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x43545347; // "CTSG"
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 40;
+    static final int DIRECTORY_ENTRY_SIZE = 24;
+    static final long NO_CARD = Long.MIN_VALUE;
+    static final long NO_AMOUNT = Long.MIN_VALUE;
+    static final byte OUTGOING = 1;
+    static final byte NO_DESCRIPTION = 2;
+    static final int STRIDE = 64;
+
+    private final FileChannel channel;
+    private long position = HEADER_SIZE;
+
+    private ByteBuffer directory = ByteBuffer.allocate(DIRECTORY_ENTRY_SIZE * 64);
+    private int cardCount;
+    private long minMicros = Long.MAX_VALUE;
+    private long maxMicros = Long.MIN_VALUE;
+
+    private long cardId;
+    private int rows;
+    private long[] ids = new long[64];
+    private long[] amounts = new long[64];
+    private long[] counterparties = new long[64];
+    private byte[] flags = new byte[64];
+    private int[] descOffsets = new int[65];
+    private long[] micros = new long[64];
+    private final ByteArrayOutputStream descriptions = new ByteArrayOutputStream();
+
+    public ColumnarSegmentWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public void add(long cardId, long id, LocalDateTime timestamp, BigDecimal amount,
+                    Long counterparty, boolean outgoing, String description) throws IOException {
+        long at = toMicros(timestamp);
+        if (rows > 0 && cardId != this.cardId) {
+            if (cardId < this.cardId) {
+                throw new IllegalArgumentException("Rows must be ordered by card id");
+            }
+            flushBlock();
+        }
+        if (rows > 0 && (at < micros[rows - 1] || at == micros[rows - 1] && id < ids[rows - 1])) {
+            throw new IllegalArgumentException("Rows of card " + cardId + " must be ordered by timestamp and id");
+        }
+        if (rows == ids.length) {
+            grow();
+        }
+
+        this.cardId = cardId;
+        ids[rows] = id;
+        amounts[rows] = amount != null ? amount.movePointRight(2).longValueExact() : NO_AMOUNT;
+        counterparties[rows] = counterparty != null ? counterparty : NO_CARD;
+        flags[rows] = (byte) ((outgoing ? OUTGOING : 0) | (description == null ? NO_DESCRIPTION : 0));
+        micros[rows] = at;
+        if (description != null) {
+            descriptions.writeBytes(description.getBytes(StandardCharsets.UTF_8));
+        }
+        descOffsets[rows + 1] = descriptions.size();
+        rows++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows > 0) {
+                flushBlock();
+            }
+            directory.flip();
+            long directoryOffset = position;
+            write(directory);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(cardCount)
+                    .putInt(0)
+                    .putLong(directoryOffset)
+                    .putLong(cardCount > 0 ? minMicros : 0)
+                    .putLong(cardCount > 0 ? maxMicros : 0)
+                    .flip();
+            position = 0;
+            write(header);
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        int groups = (rows + STRIDE - 1) / STRIDE;
+        int[] skipOffsets = new int[groups];
+        ByteArrayOutputStream deltas = new ByteArrayOutputStream(rows * 2);
+        for (int i = 0; i < rows; i++) {
+            if (i % STRIDE == 0) {
+                skipOffsets[i / STRIDE] = deltas.size();
+            } else {
+                writeVarint(deltas, micros[i] - micros[i - 1]);
+            }
+        }
+        int blockLength = rows * (8 + 8 + 8 + 1) + (rows + 1) * 4 + groups * (8 + 4) + 4
+                + deltas.size() + descriptions.size();
+
+        ByteBuffer block = ByteBuffer.allocate(blockLength);
+        for (int i = 0; i < rows; i++) {
+            block.putLong(ids[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            block.putLong(amounts[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            block.putLong(counterparties[i]);
+        }
+        block.put(flags, 0, rows);
+        for (int i = 0; i <= rows; i++) {
+            block.putInt(descOffsets[i]);
+        }
+        for (int i = 0; i < rows; i += STRIDE) {
+            block.putLong(micros[i]);
+        }
+        for (int i = 0; i < groups; i++) {
+            block.putInt(skipOffsets[i]);
+        }
+        block.putInt(deltas.size());
+        block.put(deltas.toByteArray());
+        block.put(descriptions.toByteArray());
+        block.flip();
+
+        if (directory.remaining() < DIRECTORY_ENTRY_SIZE) {
+            directory = ByteBuffer.allocate(directory.capacity() * 2).put(directory.flip());
+        }
+        directory.putLong(cardId).putLong(position).putInt(rows).putInt(blockLength);
+        cardCount++;
+        minMicros = Math.min(minMicros, micros[0]);
+        maxMicros = Math.max(maxMicros, micros[rows - 1]);
+
+        write(block);
+        rows = 0;
+        descriptions.reset();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        counterparties = Arrays.copyOf(counterparties, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        descOffsets = Arrays.copyOf(descOffsets, capacity + 1);
+        micros = Arrays.copyOf(micros, capacity);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
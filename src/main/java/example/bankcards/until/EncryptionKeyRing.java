@@ -0,0 +1,83 @@
+package example.bankcards.until;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Set of AES keys used for card numbers, parsed once at startup.
+ * <p>
+ * Values written with a ring key are prefixed with its id ({@code k2:...}), so any key that
+ * is still in the ring can read them while new writes go to the active key. Values without a
+ * prefix predate the ring and are read with the legacy ECB key.
+ */
+public final class EncryptionKeyRing {
+
+    private static final Pattern KEY_ID = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final SecretKeySpec legacyKey;
+    private final Map<String, SecretKeySpec> keys;
+    private final String activeKeyId;
+
+    /**
+     * @param legacyKey   raw key of the pre-ring ECB values, may be {@code null} once none are left
+     * @param base64Keys  ring keys by id, Base64 encoded, 16, 24 or 32 bytes each
+     * @param activeKeyId id of the key for new writes; {@code null} keeps writing the legacy format
+     */
+    public EncryptionKeyRing(String legacyKey, Map<String, String> base64Keys, String activeKeyId) {
+        this.legacyKey = legacyKey == null ? null
+                : new SecretKeySpec(legacyKey.getBytes(StandardCharsets.UTF_8), "AES");
+
+        Map<String, SecretKeySpec> parsed = new LinkedHashMap<>();
+        base64Keys.forEach((id, value) -> {
+            if (!KEY_ID.matcher(id).matches()) {
+                throw new IllegalArgumentException("Invalid encryption key id: " + id);
+            }
+            byte[] bytes = Base64.getDecoder().decode(value);
+            if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+                throw new IllegalArgumentException("Encryption key " + id + " must be 16, 24 or 32 bytes");
+            }
+            parsed.put(id, new SecretKeySpec(bytes, "AES"));
+        });
+        this.keys = Collections.unmodifiableMap(parsed);
+
+        if (activeKeyId != null && !keys.containsKey(activeKeyId)) {
+            throw new IllegalArgumentException("Active encryption key " + activeKeyId + " is not in the key ring");
+        }
+        if (activeKeyId == null && this.legacyKey == null) {
+            throw new IllegalArgumentException("Neither an active nor a legacy encryption key is configured");
+        }
+        this.activeKeyId = activeKeyId;
+    }
+
+    public static EncryptionKeyRing legacyOnly(String legacyKey) {
+        return new EncryptionKeyRing(legacyKey, Map.of(), null);
+    }
+
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    public SecretKeySpec getLegacyKey() {
+        if (legacyKey == null) {
+            throw new IllegalStateException("Legacy encryption key is not configured");
+        }
+        return legacyKey;
+    }
+
+    public SecretKeySpec getKey(String keyId) {
+        SecretKeySpec key = keys.get(keyId);
+        if (key == null) {
+            throw new IllegalStateException("Unknown encryption key id: " + keyId);
+        }
+        return key;
+    }
+
+    public boolean hasLegacyKey() {
+        return legacyKey != null;
+    }
+}
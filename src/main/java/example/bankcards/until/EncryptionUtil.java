@@ -1,44 +1,168 @@
 package example.bankcards.until;
 
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 
+/**
+ * AES helper for card numbers.
+ * <p>
+ * New values are written with AES-GCM under the active key of the {@link EncryptionKeyRing}
+ * as {@code <keyId>:<base64(iv | ciphertext | tag)>}. Values without a key id are the old
+ * AES/ECB format and are still readable with the legacy key.
+ * <p>
+ * Keys are parsed once by the ring and every thread keeps its own ciphers, so a call costs an
+ * init and a {@code doFinal} instead of a provider lookup and key setup. GCM needs a fresh IV
+ * per message, so unlike ECB the cipher has to be re-initialised on every call. {@link Cipher}
+ * is not thread-safe, which is why the instances are confined to the calling thread.
+ */
 @Component
 public class EncryptionUtil {
 
-    private final String secretKey;
+    private static final String LEGACY_TRANSFORMATION = "AES";
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final char KEY_ID_SEPARATOR = ':';
 
-    public EncryptionUtil(@Value("${security.encryption.aes-key}") String secretKey) {
-        this.secretKey = secretKey;
+    private final EncryptionKeyRing keyRing;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> gcmCipher;
+    private final ThreadLocal<Cipher> legacyEncryptCipher;
+    private final ThreadLocal<Cipher> legacyDecryptCipher;
+
+    @Autowired
+    public EncryptionUtil(EncryptionKeyRing keyRing) {
+        this.keyRing = keyRing;
+        this.gcmCipher = ThreadLocal.withInitial(() -> newCipher(GCM_TRANSFORMATION));
+        this.legacyEncryptCipher = ThreadLocal.withInitial(() -> newLegacyCipher(Cipher.ENCRYPT_MODE));
+        this.legacyDecryptCipher = ThreadLocal.withInitial(() -> newLegacyCipher(Cipher.DECRYPT_MODE));
+        // fail at startup rather than on the first request if a key is unusable
+        if (keyRing.hasLegacyKey()) {
+            newLegacyCipher(Cipher.ENCRYPT_MODE);
+        }
+        if (keyRing.getActiveKeyId() != null) {
+            encrypt("");
+        }
+    }
+
+    /**
+     * Reads and writes only the pre-ring ECB format, for migrations and tools.
+     */
+    public EncryptionUtil(String legacyKey) {
+        this(EncryptionKeyRing.legacyOnly(legacyKey));
     }
 
     public String encrypt(String input) {
+        String keyId = keyRing.getActiveKeyId();
+        if (keyId == null) {
+            return encryptLegacy(input);
+        }
+        Cipher cipher = gcmCipher.get();
         try {
-            Cipher cipher = Cipher.getInstance("AES");
-            SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES");
-            cipher.init(Cipher.ENCRYPT_MODE, key);
-            return Base64.getEncoder().encodeToString(cipher.doFinal(input.getBytes(StandardCharsets.UTF_8)));
+            byte[] iv = new byte[GCM_IV_LENGTH];
+            random.nextBytes(iv);
+            cipher.init(Cipher.ENCRYPT_MODE, keyRing.getKey(keyId), new GCMParameterSpec(GCM_TAG_BITS, iv));
+            byte[] encrypted = cipher.doFinal(input.getBytes(StandardCharsets.UTF_8));
+            byte[] message = ByteBuffer.allocate(iv.length + encrypted.length).put(iv).put(encrypted).array();
+            return keyId + KEY_ID_SEPARATOR + Base64.getEncoder().encodeToString(message);
         } catch (Exception e) {
+            gcmCipher.remove();
             throw new RuntimeException("Error encrypting", e);
         }
     }
 
     public String decrypt(String encrypted) {
+        int separator = encrypted.indexOf(KEY_ID_SEPARATOR);
+        if (separator < 0) {
+            return decryptLegacy(legacyDecryptCipher.get(), encrypted);
+        }
+        Cipher cipher = gcmCipher.get();
+        try {
+            SecretKeySpec key = keyRing.getKey(encrypted.substring(0, separator));
+            byte[] message = Base64.getDecoder().decode(encrypted.substring(separator + 1));
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, message, 0, GCM_IV_LENGTH));
+            byte[] plain = cipher.doFinal(message, GCM_IV_LENGTH, message.length - GCM_IV_LENGTH);
+            return new String(plain, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            gcmCipher.remove();
+            throw new RuntimeException("Error decrypting", e);
+        }
+    }
+
+    /**
+     * Decrypts a batch on the calling thread's ciphers. The result keeps the order of the input.
+     */
+    public List<String> decryptAll(List<String> encrypted) {
+        List<String> result = new ArrayList<>(encrypted.size());
+        for (String value : encrypted) {
+            result.add(decrypt(value));
+        }
+        return result;
+    }
+
+    /**
+     * Id of the key a stored value was written with, {@code null} for the legacy format.
+     */
+    public static String keyIdOf(String encrypted) {
+        int separator = encrypted.indexOf(KEY_ID_SEPARATOR);
+        return separator < 0 ? null : encrypted.substring(0, separator);
+    }
+
+    /**
+     * Prefix carried by values written under the active key, {@code null} when writes are still legacy.
+     */
+    public String activeKeyPrefix() {
+        String keyId = keyRing.getActiveKeyId();
+        return keyId == null ? null : keyId + KEY_ID_SEPARATOR;
+    }
+
+    private String encryptLegacy(String input) {
+        try {
+            byte[] encrypted = legacyEncryptCipher.get().doFinal(input.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(encrypted);
+        } catch (Exception e) {
+            legacyEncryptCipher.remove();
+            throw new RuntimeException("Error encrypting", e);
+        }
+    }
+
+    private String decryptLegacy(Cipher cipher, String encrypted) {
         try {
-            Cipher cipher = Cipher.getInstance("AES");
-            SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(), "AES");
-            cipher.init(Cipher.DECRYPT_MODE, key);
             byte[] decoded = Base64.getDecoder().decode(encrypted);
-            return new String(cipher.doFinal(decoded));
+            return new String(cipher.doFinal(decoded), StandardCharsets.UTF_8);
         } catch (Exception e) {
+            // a failed doFinal may leave the cipher half-used, start over with a fresh one
+            legacyDecryptCipher.remove();
             throw new RuntimeException("Error decrypting", e);
         }
     }
-}
 
+    private Cipher newLegacyCipher(int mode) {
+        Cipher cipher = newCipher(LEGACY_TRANSFORMATION);
+        try {
+            cipher.init(mode, keyRing.getLegacyKey());
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise AES cipher", e);
+        }
+    }
 
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot create " + transformation + " cipher", e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package example.bankcards.until;
+
+import example.bankcards.exception.card.InvalidHistoryCursor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a card's transaction history: the {@code (timestamp, id)} of the last row
+ * returned. Sent to clients as an opaque URL-safe string so they do not depend on its shape.
+ */
+public record HistoryCursor(LocalDateTime timestamp, long id) {
+
+    /**
+     * Sorts after every real row, used for the first page.
+     */
+    public static final HistoryCursor START = new HistoryCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * {@link #START} for a blank cursor, {@link InvalidHistoryCursor} for anything not made by {@link #encode()}.
+     */
+    public static HistoryCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new InvalidHistoryCursor();
+            }
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidHistoryCursor();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package example.bankcards.until;
+
+import example.bankcards.config.transfer.TransferProperties;
+import example.bankcards.repository.IdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Forgets idempotency keys older than {@code ttl-ms}, in batches of {@code sweep-batch-size}
+ * rows with one short transaction each.
+ */
+@Slf4j
+@Component
+public class IdempotencyKeySweeper {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferProperties properties;
+
+    public IdempotencyKeySweeper(IdempotencyKeyRepository idempotencyKeyRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 TransferProperties properties) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${cards.transfer.idempotency.sweep-delay-ms:600000}")
+    public void deleteExpiredKeys() {
+        int batchSize = Math.max(properties.getIdempotency().getSweepBatchSize(), 1);
+        LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(properties.getIdempotency().getTtlMs()));
+        long deleted = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> idempotencyKeyRepository.deleteExpiredBatch(before, batchSize));
+            deleted += batch;
+        } while (batch == batchSize);
+
+        if (deleted > 0) {
+            log.info("Удалено устаревших ключей идемпотентности: {}", deleted);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package example.bankcards.until;
+
+import example.bankcards.config.ledger.LedgerProperties;
+import example.bankcards.dto.card.ReconciliationReportDto;
+import example.bankcards.repository.CardRepository;
+import example.bankcards.repository.LedgerEntryRepository;
+import example.bankcards.repository.projection.BalanceMismatchView;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares {@code cards.balance} with the ledger for every card.
+ * <p>
+ * The card id range is split in halves on a {@link ForkJoinPool} until a range is at most
+ * {@code chunk-size} ids wide; each such range is one query that returns only the cards whose
+ * balance disagrees with their last checkpoint plus later entries. The balance and the entries
+ * are read by the same statement, so transfers running meanwhile cannot show up as false
+ * mismatches. Mismatches are logged and counted in the {@code cards.ledger.mismatches} gauge.
+ */
+@Slf4j
+@Component
+public class LedgerReconciliationJob {
+
+    private final CardRepository cardRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerProperties properties;
+    private final AtomicLong lastMismatches = new AtomicLong();
+
+    public LedgerReconciliationJob(CardRepository cardRepository,
+                                   LedgerEntryRepository ledgerEntryRepository,
+                                   LedgerProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.cardRepository = cardRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.properties = properties;
+        meterRegistry.gauge("cards.ledger.mismatches", lastMismatches);
+    }
+
+    @Scheduled(cron = "${cards.ledger.reconciliation.cron:0 30 2 * * ?}")
+    public void scheduledReconcile() {
+        if (properties.getReconciliation().isEnabled()) {
+            reconcile();
+        }
+    }
+
+    public synchronized ReconciliationReportDto reconcile() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long started = System.nanoTime();
+        long maxId = cardRepository.findMaxId();
+        int chunk = Math.max(properties.getReconciliation().getChunkSize(), 1);
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(properties.getReconciliation().getParallelism(), 1));
+        List<BalanceMismatchView> found;
+        try {
+            found = pool.invoke(new RangeTask(0, maxId + 1, chunk));
+        } finally {
+            pool.shutdown();
+        }
+
+        List<ReconciliationReportDto.Mismatch> mismatches = new ArrayList<>(found.size());
+        for (BalanceMismatchView view : found) {
+            log.warn("Баланс карты {} не сходится с журналом: {} в карте, {} по журналу",
+                    view.getCardId(), view.getBalance(), view.getLedgerBalance());
+            mismatches.add(ReconciliationReportDto.Mismatch.builder()
+                    .cardId(view.getCardId())
+                    .balance(view.getBalance())
+                    .ledgerBalance(view.getLedgerBalance())
+                    .build());
+        }
+        lastMismatches.set(mismatches.size());
+
+        long durationMs = (System.nanoTime() - started) / 1_000_000;
+        log.info("Сверка балансов с журналом: карт до id {}, расхождений {}, {} мс", maxId, mismatches.size(), durationMs);
+        return ReconciliationReportDto.builder()
+                .startedAt(startedAt)
+                .durationMs(durationMs)
+                .mismatches(mismatches)
+                .build();
+    }
+
+    /**
+     * Mismatches among card ids in {@code [fromId, toId)}.
+     */
+    private final class RangeTask extends RecursiveTask<List<BalanceMismatchView>> {
+
+        private final long fromId;
+        private final long toId;
+        private final int chunk;
+
+        RangeTask(long fromId, long toId, int chunk) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected List<BalanceMismatchView> compute() {
+            if (toId - fromId <= chunk) {
+                return ledgerEntryRepository.findMismatches(fromId, toId);
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            RangeTask left = new RangeTask(fromId, middle, chunk);
+            RangeTask right = new RangeTask(middle, toId, chunk);
+            left.fork();
+            List<BalanceMismatchView> result = new ArrayList<>(right.compute());
+            result.addAll(left.join());
+            return result;
+        }
+    }
+}
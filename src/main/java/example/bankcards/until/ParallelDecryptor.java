@@ -0,0 +1,82 @@
+package example.bankcards.until;
+
+import example.bankcards.entity.CardNumber;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decrypts the card numbers of a bulk result on a bounded pool.
+ * <p>
+ * Lists shorter than {@code threshold} are decrypted on the caller thread, where handing work
+ * to the pool would cost more than it saves. Longer lists are cut into chunks that the pool
+ * decrypts in parallel; each {@link CardNumber} caches its plain value, so the caller reads
+ * the results back in the original order. When the pool queue is full the caller decrypts
+ * the chunk itself instead of waiting.
+ */
+@Component
+public class ParallelDecryptor {
+
+    private final int threshold;
+    private final int chunkSize;
+    private final ExecutorService executor;
+
+    public ParallelDecryptor(@Value("${security.encryption.parallel.threshold:512}") int threshold,
+                             @Value("${security.encryption.parallel.chunk-size:256}") int chunkSize,
+                             @Value("${security.encryption.parallel.threads:0}") int threads) {
+        this.threshold = threshold;
+        this.chunkSize = Math.max(chunkSize, 1);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(poolSize * 16),
+                task -> {
+                    Thread thread = new Thread(task, "card-decrypt-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public void revealAll(List<CardNumber> cardNumbers) {
+        if (cardNumbers.size() < threshold) {
+            cardNumbers.forEach(CardNumber::reveal);
+            return;
+        }
+
+        List<Future<?>> chunks = new ArrayList<>(cardNumbers.size() / chunkSize + 1);
+        for (int from = 0; from < cardNumbers.size(); from += chunkSize) {
+            List<CardNumber> chunk = cardNumbers.subList(from, Math.min(from + chunkSize, cardNumbers.size()));
+            chunks.add(executor.submit(() -> chunk.forEach(CardNumber::reveal)));
+        }
+        for (Future<?> chunk : chunks) {
+            await(chunk);
+        }
+    }
+
+    private void await(Future<?> chunk) {
+        try {
+            chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while decrypting card numbers", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error decrypting", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
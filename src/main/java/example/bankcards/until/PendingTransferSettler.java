@@ -0,0 +1,238 @@
+package example.bankcards.until;
+
+import example.bankcards.config.transfer.TransferProperties;
+import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.entity.PendingTransfer;
+import example.bankcards.entity.PendingTransferStatus;
+import example.bankcards.repository.PendingTransferRepository;
+import example.bankcards.service.impl.BatchTransferApplier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Settles transfers accepted by the asynchronous endpoint.
+ * <p>
+ * Each worker locks up to {@code batch-size} pending rows with {@code FOR UPDATE SKIP LOCKED},
+ * applies them through {@link BatchTransferApplier} grouped by owner, marks each row SETTLED or
+ * REJECTED and commits once. Owners are handled in ascending id order and cards within an owner
+ * in ascending id order, so two workers never lock the same cards in opposite order. A worker
+ * that finds nothing waits {@code poll-ms}.
+ * <p>
+ * A batch that throws instead of returning outcomes rolls back as a whole. The worker then
+ * settles the next {@code batch-size} rows one per transaction, so the row at fault is found
+ * and marked FAILED while its neighbours go through. Failures that say nothing about the row
+ * (a lost connection, a lock timeout) leave it pending for the next poll. Published as
+ * {@code cards.transfer.settled} tagged {@code result=settled|rejected|failed}.
+ */
+@Slf4j
+@Component
+public class PendingTransferSettler {
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final PendingTransferRepository pendingTransferRepository;
+    private final BatchTransferApplier applier;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferProperties properties;
+    private final Counter settled;
+    private final Counter rejected;
+    private final Counter failed;
+
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    public PendingTransferSettler(PendingTransferRepository pendingTransferRepository,
+                                  BatchTransferApplier applier,
+                                  PlatformTransactionManager transactionManager,
+                                  TransferProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.pendingTransferRepository = pendingTransferRepository;
+        this.applier = applier;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.settled = Counter.builder("cards.transfer.settled").tag("result", "settled").register(meterRegistry);
+        this.rejected = Counter.builder("cards.transfer.settled").tag("result", "rejected").register(meterRegistry);
+        this.failed = Counter.builder("cards.transfer.settled").tag("result", "failed").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        TransferProperties.Settlement settlement = properties.getSettlement();
+        if (!settlement.isEnabled() || settlement.getWorkers() <= 0) {
+            return;
+        }
+        running = true;
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(settlement.getWorkers(), task -> {
+            Thread thread = new Thread(task, "transfer-settlement-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < settlement.getWorkers(); i++) {
+            workers.submit(this::work);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (workers != null) {
+            workers.shutdownNow();
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                if (settleBatch() == 0) {
+                    Thread.sleep(properties.getSettlement().getPollMs());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // the batch rolled back; find the row at fault instead of retrying the same batch
+                log.warn("Ошибка при проведении отложенных переводов, проводим по одному: {}", e.getMessage());
+                try {
+                    settleOneByOne();
+                } catch (RuntimeException again) {
+                    log.warn("Ошибка при проведении отложенных переводов по одному: {}", again.getMessage());
+                }
+                try {
+                    Thread.sleep(properties.getSettlement().getPollMs());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Settles one batch in one transaction and returns how many rows it took.
+     */
+    public int settleBatch() {
+        return settle(Math.max(properties.getSettlement().getBatchSize(), 1), new Long[1]);
+    }
+
+    /**
+     * Settles up to {@code batch-size} rows, each in its own transaction, and returns how many
+     * it took. A row whose transaction throws is marked FAILED in a new one.
+     */
+    public int settleOneByOne() {
+        int limit = Math.max(properties.getSettlement().getBatchSize(), 1);
+        int taken = 0;
+        while (taken < limit) {
+            Long[] current = new Long[1];
+            try {
+                if (settle(1, current) == 0) {
+                    break;
+                }
+            } catch (RuntimeException e) {
+                if (current[0] == null || !isRowFault(e)) {
+                    throw e;
+                }
+                markFailed(current[0], e);
+            }
+            taken++;
+        }
+        return taken;
+    }
+
+    private int settle(int limit, Long[] lastLocked) {
+        int[] counts = transactionTemplate.execute(status -> {
+            List<PendingTransfer> batch = pendingTransferRepository.lockPendingBatch(limit);
+            if (!batch.isEmpty()) {
+                lastLocked[0] = batch.get(batch.size() - 1).getId();
+            }
+            Map<Long, List<PendingTransfer>> byOwner = new TreeMap<>();
+            for (PendingTransfer transfer : batch) {
+                byOwner.computeIfAbsent(transfer.getUserId(), id -> new ArrayList<>()).add(transfer);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            int settledCount = 0;
+            for (Map.Entry<Long, List<PendingTransfer>> owner : byOwner.entrySet()) {
+                List<PendingTransfer> transfers = owner.getValue();
+                List<BatchTransferApplier.Outcome> outcomes = applier.apply(owner.getKey(), legs(transfers), false);
+                for (int i = 0; i < transfers.size(); i++) {
+                    PendingTransfer transfer = transfers.get(i);
+                    BatchTransferApplier.Outcome outcome = outcomes.get(i);
+                    transfer.setSettledAt(now);
+                    if (outcome.transaction() != null) {
+                        transfer.setStatus(PendingTransferStatus.SETTLED);
+                        transfer.setTransactionId(outcome.transaction().getId());
+                        settledCount++;
+                    } else {
+                        transfer.setStatus(PendingTransferStatus.REJECTED);
+                        transfer.setError(truncate(outcome.failure().getMessage()));
+                    }
+                }
+            }
+            return new int[]{batch.size(), settledCount};
+        });
+
+        settled.increment(counts[1]);
+        rejected.increment(counts[0] - counts[1]);
+        return counts[0];
+    }
+
+    private void markFailed(Long id, RuntimeException cause) {
+        Integer marked = transactionTemplate.execute(status ->
+                pendingTransferRepository.markFailed(id, truncate(String.valueOf(cause.getMessage())), LocalDateTime.now()));
+        if (marked != null && marked > 0) {
+            failed.increment();
+            log.error("Отложенный перевод {} не удалось провести", id, cause);
+        }
+    }
+
+    /**
+     * Whether the failure came from the row itself rather than from the database being
+     * unavailable or busy, in which case the row is worth another try later.
+     */
+    private static boolean isRowFault(RuntimeException e) {
+        return !(e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException);
+    }
+
+    private static List<CardTransferRequestDto> legs(List<PendingTransfer> transfers) {
+        return transfers.stream()
+                .map(transfer -> CardTransferRequestDto.builder()
+                        .fromCardId(transfer.getFromCardId())
+                        .toCardId(transfer.getToCardId())
+                        .amount(transfer.getAmount())
+                        .description(transfer.getDescription())
+                        .build())
+                .toList();
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
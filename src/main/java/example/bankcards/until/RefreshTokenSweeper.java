@@ -0,0 +1,47 @@
+package example.bankcards.until;
+
+import example.bankcards.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Removes expired refresh tokens in batches of {@code batch-size} rows, one short transaction
+ * per batch, so the sweep never holds locks on a large part of the table.
+ */
+@Slf4j
+@Component
+public class RefreshTokenSweeper {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public RefreshTokenSweeper(RefreshTokenRepository refreshTokenRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${spring.security.jwt.refresh-sweep.batch-size:1000}") int batchSize) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    @Scheduled(fixedDelayString = "${spring.security.jwt.refresh-sweep.delay-ms:3600000}")
+    public void deleteExpiredTokens() {
+        LocalDateTime now = LocalDateTime.now();
+        long deleted = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> refreshTokenRepository.deleteExpiredBatch(now, batchSize));
+            deleted += batch;
+        } while (batch == batchSize);
+
+        if (deleted > 0) {
+            log.info("Удалено просроченных refresh-токенов: {}", deleted);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package example.bankcards.until;
+
+import example.bankcards.config.partition.PartitionProperties;
+import example.bankcards.dto.card.TransactionExportFormat;
+import example.bankcards.service.impl.ColumnarHistoryArchive;
+import example.bankcards.service.impl.TransactionExportWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Moves {@code card_transactions} partitions older than {@code retention-months} out of the
+ * database.
+ * <p>
+ * Each partition is first written as gzipped NDJSON and as a {@link ColumnarSegmentWriter}
+ * segment through {@link TransactionExportWriter}, each to a temporary file that is synced and
+ * renamed into place. Only then, in one transaction, the partition is locked against writes,
+ * its row count checked against the NDJSON file, detached and dropped. A failure at any step
+ * leaves the partition attached and is retried on the next run. Once dropped, its history is
+ * served from the segment by {@link ColumnarHistoryArchive}.
+ */
+@Slf4j
+@Component
+public class TransactionArchiveJob {
+
+    private final TransactionPartitions partitions;
+    private final TransactionExportWriter exportWriter;
+    private final ColumnarHistoryArchive history;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitionProperties properties;
+
+    public TransactionArchiveJob(TransactionPartitions partitions,
+                                 TransactionExportWriter exportWriter,
+                                 ColumnarHistoryArchive history,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 PartitionProperties properties) {
+        this.partitions = partitions;
+        this.exportWriter = exportWriter;
+        this.history = history;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    @Scheduled(cron = "${cards.partitions.archive.cron:0 15 3 * * ?}")
+    public void scheduledArchive() {
+        if (properties.getArchive().isEnabled()) {
+            archive();
+        }
+    }
+
+    /**
+     * Archives every partition that ends on or before the cutoff; returns how many.
+     */
+    public int archive() {
+        LocalDateTime cutoff = YearMonth.now()
+                .minusMonths(Math.max(properties.getArchive().getRetentionMonths(), 1))
+                .atDay(1)
+                .atStartOfDay();
+        Path directory = Path.of(properties.getArchive().getDirectory());
+
+        int archived = 0;
+        for (TransactionPartitions.Partition partition : partitions.list()) {
+            if (partition.to() == null || partition.to().isAfter(cutoff)) {
+                break; // ordered by upper bound, the rest are newer
+            }
+            try {
+                archiveOne(partition, directory);
+                archived++;
+            } catch (IOException | RuntimeException e) {
+                log.error("Не удалось архивировать партицию {}", partition.name(), e);
+                break;
+            }
+        }
+        return archived;
+    }
+
+    private void archiveOne(TransactionPartitions.Partition partition, Path directory) throws IOException {
+        String table = TransactionPartitions.quote(partition.name());
+        Files.createDirectories(directory);
+        Path target = directory.resolve(partition.name() + ".ndjson.gz");
+        Path temporary = directory.resolve(partition.name() + ".ndjson.gz.part");
+
+        long rows;
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            rows = exportWriter.writeTable(table, TransactionExportFormat.NDJSON, true, out);
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        // the segment writer syncs on close; a new file is moved over an old one, never rewritten
+        // in place, so a reader still mapping the old one is unaffected
+        Path segment = directory.resolve(partition.name() + ColumnarHistoryArchive.SEGMENT_SUFFIX);
+        Path segmentTemporary = directory.resolve(partition.name() + ColumnarHistoryArchive.SEGMENT_SUFFIX + ".part");
+        exportWriter.writeSegment(table, segmentTemporary);
+        Files.move(segmentTemporary, segment, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // served before the drop: history only falls through to rows older than the oldest in
+        // the database, so the same row is never returned twice
+        history.refresh();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE " + table + " IN SHARE MODE");
+            Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+            if (count == null || count != rows) {
+                throw new IllegalStateException("Partition " + partition.name() + " has " + count
+                        + " rows, the archive has " + rows);
+            }
+            jdbcTemplate.execute("ALTER TABLE " + TransactionPartitions.PARENT + " DETACH PARTITION " + table);
+            jdbcTemplate.execute("DROP TABLE " + table);
+        });
+        log.info("Партиция {} архивирована в {}: {} строк", partition.name(), target, rows);
+    }
+}
@@ -0,0 +1,71 @@
+package example.bankcards.until;
+
+import example.bankcards.config.partition.PartitionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Keeps monthly partitions of {@code card_transactions} created {@code months-ahead} months in
+ * advance, so an insert never waits on DDL and never finds no partition for its timestamp.
+ * New partitions start where the last one ends; runs at startup and then daily.
+ */
+@Slf4j
+@Component
+public class TransactionPartitionJob {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final TransactionPartitions partitions;
+    private final JdbcTemplate jdbcTemplate;
+    private final PartitionProperties properties;
+
+    public TransactionPartitionJob(TransactionPartitions partitions,
+                                   JdbcTemplate jdbcTemplate,
+                                   PartitionProperties properties) {
+        this.partitions = partitions;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${cards.partitions.maintenance-delay-ms:86400000}")
+    public void createAhead() {
+        LocalDateTime coveredUntil = partitions.list().stream()
+                .map(TransactionPartitions.Partition::to)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+
+        List<LocalDateTime> months = monthsToCreate(coveredUntil, YearMonth.now(), Math.max(properties.getMonthsAhead(), 0));
+        for (LocalDateTime start : months) {
+            String name = TransactionPartitions.PARENT + "_p" + SUFFIX.format(start);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TransactionPartitions.quote(name)
+                    + " PARTITION OF " + TransactionPartitions.PARENT
+                    + " FOR VALUES FROM ('" + BOUND.format(start) + "') TO ('" + BOUND.format(start.plusMonths(1)) + "')");
+            log.info("Создана партиция {}", name);
+        }
+    }
+
+    /**
+     * Month starts still missing between the end of the last partition and the end of the
+     * month {@code monthsAhead} after the current one.
+     */
+    static List<LocalDateTime> monthsToCreate(LocalDateTime coveredUntil, YearMonth current, int monthsAhead) {
+        LocalDateTime end = current.plusMonths(monthsAhead + 1L).atDay(1).atStartOfDay();
+        LocalDateTime start = coveredUntil != null ? coveredUntil : current.atDay(1).atStartOfDay();
+        List<LocalDateTime> months = new ArrayList<>();
+        for (LocalDateTime month = start; month.isBefore(end); month = month.plusMonths(1)) {
+            months.add(month);
+        }
+        return months;
+    }
+}
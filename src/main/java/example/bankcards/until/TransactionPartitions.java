@@ -0,0 +1,72 @@
+package example.bankcards.until;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the partitions of {@code card_transactions} and their bounds from the Postgres catalog.
+ */
+@Component
+public class TransactionPartitions {
+
+    static final String PARENT = "card_transactions";
+
+    private static final Pattern RANGE = Pattern.compile("FROM \\((.+?)\\) TO \\((.+?)\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransactionPartitions(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Range partitions ordered by upper bound.
+     */
+    public List<Partition> list() {
+        return jdbcTemplate.query("""
+                        SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+                        FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                        WHERE i.inhparent = 'card_transactions'::regclass""",
+                        (rs, row) -> Partition.parse(rs.getString(1), rs.getString(2)))
+                .stream()
+                .filter(partition -> partition != null)
+                .sorted(Comparator.comparing(Partition::to, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    public static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * One range partition; {@code from} is {@code null} for MINVALUE and {@code to} for MAXVALUE.
+     */
+    public record Partition(String name, LocalDateTime from, LocalDateTime to) {
+
+        /**
+         * Parses the bound as printed by {@code pg_get_expr}, e.g.
+         * {@code FOR VALUES FROM ('2025-05-01 00:00:00') TO ('2025-06-01 00:00:00')};
+         * {@code null} for a default partition.
+         */
+        static Partition parse(String name, String bound) {
+            Matcher matcher = RANGE.matcher(bound);
+            if (!matcher.find()) {
+                return null;
+            }
+            return new Partition(name, value(matcher.group(1)), value(matcher.group(2)));
+        }
+
+        private static LocalDateTime value(String literal) {
+            if (!literal.startsWith("'")) {
+                return null; // MINVALUE or MAXVALUE
+            }
+            return LocalDateTime.parse(literal.substring(1, literal.length() - 1).replace(' ', 'T'));
+        }
+    }
+}
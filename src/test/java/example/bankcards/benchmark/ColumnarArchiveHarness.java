@@ -0,0 +1,171 @@
+package example.bankcards.benchmark;
+
+import example.bankcards.BankcardsApplication;
+import example.bankcards.dto.card.CardTransactionDto;
+import example.bankcards.repository.CardTransactionRepository;
+import example.bankcards.repository.projection.CardTransactionView;
+import example.bankcards.service.impl.ColumnarHistoryArchive;
+import example.bankcards.service.impl.TransactionExportWriter;
+import example.bankcards.until.HistoryCursor;
+import example.bankcards.until.TransactionPartitions;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keyset history pages read from Postgres against the same pages read from a columnar segment.
+ * <p>
+ * Boots the application without the web layer against an embedded Postgres and fills the
+ * {@code card_transactions_legacy} partition with {@value #ROWS} transfers from 2020 between
+ * {@value #CARDS} cards, then writes that partition as a segment the way
+ * {@link example.bankcards.until.TransactionArchiveJob} does, without dropping it. Both stores
+ * then serve the same workloads, {@value #ROUNDS} random cards each:
+ * <ul>
+ *     <li>first page: the newest {@value #PAGE} rows of a card;</li>
+ *     <li>full history: every page of a card, following the cursor.</li>
+ * </ul>
+ * The harness prints rows per second and time per card for both, plus the size of the segment
+ * against the partition's table and index size in Postgres.
+ * <p>
+ * Run with {@code mvn test-compile} and then
+ * {@code java -cp target/test-classes:target/classes:<test classpath> example.bankcards.benchmark.ColumnarArchiveHarness}.
+ */
+public class ColumnarArchiveHarness {
+
+    private static final int CARDS = 1_000;
+    private static final int ROWS = 2_000_000;
+    private static final int PAGE = 100;
+    private static final int ROUNDS = 200;
+    private static final String PARTITION = "card_transactions_legacy";
+
+    public static void main(String[] args) throws Exception {
+        Path archive = Files.createTempDirectory("segments");
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(BankcardsApplication.class)
+                     .web(WebApplicationType.NONE)
+                     // arguments, not builder properties: those are defaults that application.yml overrides
+                     .run("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                             "--spring.jpa.show-sql=false",
+                             "--logging.level.root=WARN",
+                             "--security.encryption.reencryption.enabled=false",
+                             "--cards.transfer.settlement.enabled=false",
+                             "--cards.partitions.archive.directory=" + archive)) {
+            run(context, archive);
+        }
+    }
+
+    private static void run(ConfigurableApplicationContext context, Path archive) throws Exception {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        long[] cards = seed(jdbc);
+
+        Path segment = archive.resolve(PARTITION + ColumnarHistoryArchive.SEGMENT_SUFFIX);
+        long started = System.nanoTime();
+        long segmentRows = context.getBean(TransactionExportWriter.class)
+                .writeSegment(TransactionPartitions.quote(PARTITION), segment);
+        System.out.printf("segment written: %d rows in %.1f s, %.1f MB; partition in Postgres %.1f MB%n",
+                segmentRows, (System.nanoTime() - started) / 1e9, Files.size(segment) / 1e6,
+                jdbc.queryForObject("SELECT pg_total_relation_size(?::regclass)", Long.class, PARTITION) / 1e6);
+
+        ColumnarHistoryArchive history = context.getBean(ColumnarHistoryArchive.class);
+        history.refresh();
+        CardTransactionRepository repository = context.getBean(CardTransactionRepository.class);
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        tx.setReadOnly(true);
+
+        for (int pass = 0; pass < 2; pass++) {
+            String label = pass == 0 ? " (warm-up)" : "";
+            measure("postgres first page" + label, cards, cardId -> tx.execute(status ->
+                    postgresPages(repository, cardId, 1)));
+            measure("segment first page" + label, cards, cardId -> segmentPages(history, cardId, 1));
+            measure("postgres full history" + label, cards, cardId -> tx.execute(status ->
+                    postgresPages(repository, cardId, Integer.MAX_VALUE)));
+            measure("segment full history" + label, cards, cardId -> segmentPages(history, cardId, Integer.MAX_VALUE));
+        }
+    }
+
+    private static long[] seed(JdbcTemplate jdbc) {
+        Long userId = jdbc.queryForObject(
+                "insert into users (username, password) values ('archive', 'x') returning id", Long.class);
+        // history never decrypts the number, so placeholders are enough
+        List<Long> ids = jdbc.queryForList("""
+                insert into cards (card_number, card_number_hash, card_number_last4,
+                                   expiration_date, status, balance, owner_id)
+                select 'archive-' || g, 'archive-hash-' || g, '0000', current_date + 365, 'ACTIVE', 1000, ?
+                from generate_series(1, ?) g
+                returning id""", Long.class, userId, CARDS);
+        long first = ids.stream().mapToLong(Long::longValue).min().orElseThrow();
+
+        long started = System.nanoTime();
+        jdbc.update("""
+                insert into card_transactions (amount, timestamp, from_card_id, to_card_id, description)
+                select (random() * 1000)::numeric(19, 2),
+                       timestamp '2020-01-01' + g * interval '10 seconds',
+                       ? + (g % ?), ? + ((g * 7 + 1) % ?),
+                       'archived ' || g
+                from generate_series(1, ?) g""", first, CARDS, first, CARDS, ROWS);
+        jdbc.execute("ANALYZE card_transactions");
+        System.out.printf("seeded %d transactions in %.1f s%n", ROWS, (System.nanoTime() - started) / 1e9);
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static int postgresPages(CardTransactionRepository repository, long cardId, int maxPages) {
+        LocalDateTime timestamp = HistoryCursor.START.timestamp();
+        long id = HistoryCursor.START.id();
+        int rows = 0;
+        for (int page = 0; page < maxPages; page++) {
+            List<CardTransactionView> views = repository.findHistoryBefore(cardId, timestamp, id, PAGE);
+            rows += views.size();
+            if (views.size() < PAGE) {
+                break;
+            }
+            CardTransactionView last = views.get(views.size() - 1);
+            timestamp = last.getTimestamp();
+            id = last.getId();
+        }
+        return rows;
+    }
+
+    private static int segmentPages(ColumnarHistoryArchive history, long cardId, int maxPages) {
+        LocalDateTime timestamp = HistoryCursor.START.timestamp();
+        long id = HistoryCursor.START.id();
+        int rows = 0;
+        for (int page = 0; page < maxPages; page++) {
+            List<CardTransactionDto> dtos = history.findBefore(cardId, timestamp, id, PAGE);
+            rows += dtos.size();
+            if (dtos.size() < PAGE) {
+                break;
+            }
+            CardTransactionDto last = dtos.get(dtos.size() - 1);
+            timestamp = last.getTimestamp();
+            id = last.getId();
+        }
+        return rows;
+    }
+
+    private static void measure(String label, long[] cards, CardReader reader) {
+        long rows = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            long cardId = cards[ThreadLocalRandom.current().nextInt(cards.length)];
+            rows += reader.read(cardId);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("%-35s %10.0f rows/s, %8.3f ms per card%n",
+                label, rows / seconds, seconds * 1000 / ROUNDS);
+    }
+
+    @FunctionalInterface
+    private interface CardReader {
+        int read(long cardId);
+    }
+}
@@ -0,0 +1,99 @@
+package example.bankcards.benchmark;
+
+import example.bankcards.until.EncryptionKeyRing;
+import example.bankcards.until.EncryptionUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decrypting a page of card numbers: the old per-call cipher setup against the reusable engine.
+ * <p>
+ * Run with {@code mvn test-compile} and then
+ * {@code java -cp target/test-classes:<test classpath> example.bankcards.benchmark.EncryptionUtilBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptionUtilBenchmark {
+
+    private static final String KEY = "my32bytekey123456789012345678901";
+
+    @Param({"1", "100"})
+    private int pageSize;
+
+    private EncryptionUtil encryptionUtil;
+    private List<String> encrypted;
+    private EncryptionUtil keyRingUtil;
+    private List<String> encryptedGcm;
+
+    @Setup
+    public void setUp() {
+        encryptionUtil = new EncryptionUtil(KEY);
+        encrypted = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            encrypted.add(encryptionUtil.encrypt(String.format("4000%012d", i)));
+        }
+        keyRingUtil = new EncryptionUtil(new EncryptionKeyRing(KEY,
+                Map.of("k1", "eshFAMzSzG3Ug/eR8MZEP9sI3QjWpw9FQIdIL49tNvQ="), "k1"));
+        encryptedGcm = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            encryptedGcm.add(keyRingUtil.encrypt(String.format("4000%012d", i)));
+        }
+    }
+
+    @Benchmark
+    public void perCallCipher(Blackhole bh) throws Exception {
+        for (String value : encrypted) {
+            bh.consume(legacyDecrypt(value));
+        }
+    }
+
+    @Benchmark
+    public void threadConfinedCipher(Blackhole bh) {
+        for (String value : encrypted) {
+            bh.consume(encryptionUtil.decrypt(value));
+        }
+    }
+
+    @Benchmark
+    public List<String> batchDecrypt() {
+        return encryptionUtil.decryptAll(encrypted);
+    }
+
+    @Benchmark
+    public List<String> batchDecryptGcm() {
+        return keyRingUtil.decryptAll(encryptedGcm);
+    }
+
+    /**
+     * The implementation {@link EncryptionUtil} replaced, kept here as the baseline.
+     */
+    private static String legacyDecrypt(String value) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        SecretKeySpec key = new SecretKeySpec(KEY.getBytes(), "AES");
+        cipher.init(Cipher.DECRYPT_MODE, key);
+        byte[] decoded = Base64.getDecoder().decode(value);
+        return new String(cipher.doFinal(decoded), StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EncryptionUtilBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
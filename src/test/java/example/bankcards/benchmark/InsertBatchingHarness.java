@@ -0,0 +1,124 @@
+package example.bankcards.benchmark;
+
+import example.bankcards.BankcardsApplication;
+import example.bankcards.config.mapper.CardMapper;
+import example.bankcards.dto.card.CardRequestDto;
+import example.bankcards.entity.Card;
+import example.bankcards.entity.CardTransaction;
+import example.bankcards.entity.User;
+import example.bankcards.repository.CardRepository;
+import example.bankcards.repository.CardTransactionRepository;
+import example.bankcards.repository.UserRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Statements per row for bulk card issuance and transfer logging, with JDBC batching off
+ * ({@code batch_size=1}) and on.
+ * <p>
+ * Each configuration boots the application without the web layer against a fresh embedded
+ * Postgres and saves {@value #ROWS} cards and then {@value #ROWS} transactions with
+ * {@code saveAll} in one transaction, {@value #ROUNDS} times. Hibernate statistics give the
+ * prepared statements per row (inserts plus sequence calls); with batching on they should be
+ * close to {@code 1/batch_size + 1/50}.
+ * <p>
+ * Run with {@code mvn test-compile} and then
+ * {@code java -cp target/test-classes:target/classes:<test classpath> example.bankcards.benchmark.InsertBatchingHarness}.
+ */
+public class InsertBatchingHarness {
+
+    private static final int ROWS = 5_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        for (int batchSize : new int[]{1, 50}) {
+            try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+                 ConfigurableApplicationContext context = new SpringApplicationBuilder(BankcardsApplication.class)
+                         .web(WebApplicationType.NONE)
+                         // arguments, not builder properties: those are defaults that application.yml overrides
+                         .run("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true",
+                                 "--spring.jpa.show-sql=false",
+                                 "--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                                 "--spring.jpa.properties.hibernate.generate_statistics=true",
+                                 "--logging.level.root=WARN",
+                                 "--security.encryption.reencryption.enabled=false")) {
+                run(context, batchSize);
+            }
+        }
+    }
+
+    private static void run(ConfigurableApplicationContext context, int batchSize) {
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        UserRepository users = context.getBean(UserRepository.class);
+        CardRepository cards = context.getBean(CardRepository.class);
+        CardTransactionRepository transactions = context.getBean(CardTransactionRepository.class);
+        CardMapper cardMapper = context.getBean(CardMapper.class);
+        Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        User owner = tx.execute(status -> {
+            User user = new User();
+            user.setUsername("bench");
+            user.setPassword("x");
+            return users.save(user);
+        });
+
+        long[] serial = {4_000_000_000_000_000L};
+        List<Long> issued = new ArrayList<>();
+        measure("batch_size=" + batchSize + " card issuance", statistics, () -> tx.execute(status -> {
+            List<Card> batch = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                CardRequestDto request = CardRequestDto.builder()
+                        .cardNumber(Long.toString(serial[0]++))
+                        .expirationDate(LocalDate.now().plusYears(3))
+                        .balance(new BigDecimal("1000.00"))
+                        .build();
+                batch.add(cardMapper.toEntity(request, owner));
+            }
+            cards.saveAll(batch).forEach(card -> issued.add(card.getId()));
+            return ROWS;
+        }));
+
+        measure("batch_size=" + batchSize + " transfer logging", statistics, () -> tx.execute(status -> {
+            List<CardTransaction> batch = new ArrayList<>(ROWS);
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < ROWS; i++) {
+                batch.add(CardTransaction.builder()
+                        .fromCard(cards.getReferenceById(issued.get(i % issued.size())))
+                        .toCard(cards.getReferenceById(issued.get((i + 1) % issued.size())))
+                        .amount(BigDecimal.ONE)
+                        .timestamp(now)
+                        .description("bench")
+                        .build());
+            }
+            transactions.saveAll(batch);
+            return ROWS;
+        }));
+    }
+
+    private static void measure(String name, Statistics statistics, Supplier<Integer> round) {
+        round.get(); // warm-up
+        statistics.clear();
+        long rows = 0;
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            rows += round.get();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        System.out.printf("%-35s %9.0f rows/s, %.3f statements per row%n",
+                name, rows / seconds, (double) statistics.getPrepareStatementCount() / rows);
+    }
+}
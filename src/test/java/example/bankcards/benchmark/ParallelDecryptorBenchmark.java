@@ -0,0 +1,85 @@
+package example.bankcards.benchmark;
+
+import example.bankcards.entity.CardNumber;
+import example.bankcards.until.EncryptionKeyRing;
+import example.bankcards.until.EncryptionUtil;
+import example.bankcards.until.ParallelDecryptor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decrypting the card numbers of an admin listing ({@code getAllCards}) on the caller thread
+ * against the parallel stage.
+ * <p>
+ * Run with {@code mvn test-compile} and then
+ * {@code java -cp target/test-classes:<test classpath> example.bankcards.benchmark.ParallelDecryptorBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelDecryptorBenchmark {
+
+    @Param({"10000", "100000"})
+    private int cardCount;
+
+    private EncryptionUtil encryptionUtil;
+    private List<String> ciphertexts;
+    private ParallelDecryptor sequential;
+    private ParallelDecryptor parallel;
+    private List<CardNumber> cardNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        encryptionUtil = new EncryptionUtil(new EncryptionKeyRing(null,
+                Map.of("k1", "eshFAMzSzG3Ug/eR8MZEP9sI3QjWpw9FQIdIL49tNvQ="), "k1"));
+        ciphertexts = new ArrayList<>(cardCount);
+        for (int i = 0; i < cardCount; i++) {
+            ciphertexts.add(encryptionUtil.encrypt(String.format("4000%012d", i)));
+        }
+        sequential = new ParallelDecryptor(Integer.MAX_VALUE, 256, 1);
+        parallel = new ParallelDecryptor(512, 256, 0);
+    }
+
+    @Setup(Level.Invocation)
+    public void freshCardNumbers() {
+        // numbers cache their plain value, so every call needs a new, still encrypted list
+        cardNumbers = new ArrayList<>(cardCount);
+        for (String ciphertext : ciphertexts) {
+            cardNumbers.add(CardNumber.ofCiphertext(ciphertext, encryptionUtil::decrypt));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sequential.shutdown();
+        parallel.shutdown();
+    }
+
+    @Benchmark
+    public List<CardNumber> callerThread() {
+        sequential.revealAll(cardNumbers);
+        return cardNumbers;
+    }
+
+    @Benchmark
+    public List<CardNumber> parallelStage() {
+        parallel.revealAll(cardNumbers);
+        return cardNumbers;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ParallelDecryptorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
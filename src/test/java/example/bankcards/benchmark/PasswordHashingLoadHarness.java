@@ -0,0 +1,114 @@
+package example.bankcards.benchmark;
+
+import example.bankcards.exception.auth.PasswordHashingBusy;
+import example.bankcards.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transfer latency while a burst of logins arrives, with BCrypt on the request threads and
+ * with {@link BoundedPasswordEncoder}.
+ * <p>
+ * A fixed pool of 200 threads stands in for Tomcat's workers. Transfers arrive at a steady rate and each
+ * holds a worker for about two milliseconds, roughly one short transaction. Halfway through,
+ * a burst of logins is submitted to the same pool. The harness prints transfer p50/p99 from
+ * submission to completion, and how many logins succeeded or were refused with 503.
+ * <p>
+ * Run with {@code mvn test-compile} and then
+ * {@code java -cp target/test-classes:<test classpath> example.bankcards.benchmark.PasswordHashingLoadHarness}.
+ */
+public class PasswordHashingLoadHarness {
+
+    private static final int REQUEST_THREADS = 200;
+    private static final int TRANSFERS = 4_000;
+    private static final long TRANSFER_INTERVAL_MICROS = 500;
+    private static final int LOGIN_BURST = 2_000;
+    private static final int STRENGTH = 10;
+
+    public static void main(String[] args) throws Exception {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(STRENGTH);
+        String hash = bcrypt.encode("password");
+
+        run("bcrypt on request threads", bcrypt, hash);
+
+        int hashThreads = Math.max(Runtime.getRuntime().availableProcessors() / 2, 1);
+        try (BoundedPasswordEncoder bounded = new BoundedPasswordEncoder(bcrypt, hashThreads, 32, new SimpleMeterRegistry())) {
+            run("bounded executor (" + hashThreads + " threads, queue 32)", bounded, hash);
+        }
+    }
+
+    private static void run(String name, PasswordEncoder encoder, String hash) throws Exception {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        List<Long> transferLatencies = Collections.synchronizedList(new ArrayList<>(TRANSFERS));
+        AtomicInteger loginsOk = new AtomicInteger();
+        AtomicInteger loginsRefused = new AtomicInteger();
+        List<Future<?>> pending = new ArrayList<>(TRANSFERS + LOGIN_BURST);
+
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < TRANSFERS; i++) {
+            if (i == TRANSFERS / 2) {
+                for (int j = 0; j < LOGIN_BURST; j++) {
+                    pending.add(requestThreads.submit(() -> {
+                        try {
+                            encoder.matches("password", hash);
+                            loginsOk.incrementAndGet();
+                        } catch (PasswordHashingBusy e) {
+                            loginsRefused.incrementAndGet();
+                        }
+                    }));
+                }
+            }
+
+            long submitted = System.nanoTime();
+            pending.add(requestThreads.submit(() -> {
+                sleepMillis(2);
+                transferLatencies.add(System.nanoTime() - submitted);
+            }));
+            pace(startedAt, i + 1);
+        }
+        for (Future<?> future : pending) {
+            future.get();
+        }
+        requestThreads.shutdown();
+
+        List<Long> sorted = new ArrayList<>(transferLatencies);
+        Collections.sort(sorted);
+        System.out.printf("%-45s transfer p50 %6.1f ms, p99 %7.1f ms, logins ok %d, refused %d%n",
+                name, percentile(sorted, 0.50), percentile(sorted, 0.99), loginsOk.get(), loginsRefused.get());
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+    }
+
+    private static void pace(long startedAt, int sent) {
+        long due = startedAt + TimeUnit.MICROSECONDS.toNanos(TRANSFER_INTERVAL_MICROS * sent);
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+            sleepNanos(wait);
+        }
+    }
+
+    private static void sleepMillis(long millis) {
+        sleepNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static void sleepNanos(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
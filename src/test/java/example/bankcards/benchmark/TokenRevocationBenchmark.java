@@ -0,0 +1,57 @@
+package example.bankcards.benchmark;
+
+import example.bankcards.until.BloomFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the revocation check for a token that was never revoked, which only touches the
+ * Bloom filter, with the filter holding {@code revoked} tokens.
+ * <p>
+ * Run with {@code mvn test-compile} and then
+ * {@code java -cp target/test-classes:<test classpath> example.bankcards.benchmark.TokenRevocationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenRevocationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int revoked;
+
+    private BloomFilter filter;
+    private String[] candidates;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        filter = BloomFilter.create(Math.max(100_000, revoked * 2L), 0.001);
+        for (int i = 0; i < revoked; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+        candidates = new String[1024];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @Benchmark
+    public boolean notRevoked() {
+        next = (next + 1) & (candidates.length - 1);
+        return filter.mightContain(candidates[next]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TokenRevocationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,179 @@
+package example.bankcards.benchmark;
+
+import example.bankcards.BankcardsApplication;
+import example.bankcards.config.transfer.TransferProperties;
+import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.service.api.CardTransactionServiceInterface;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput and latency of {@code transferBetweenOwnCards} under contention, for both
+ * {@link TransferProperties.Locking} modes.
+ * <p>
+ * Starts an embedded Postgres, boots the application against it without the web layer and
+ * seeds {@value #USERS} users with {@value #CARDS_PER_USER} cards each. Two workloads run
+ * with {@value #THREADS} threads:
+ * <ul>
+ *     <li>hot: every transfer moves money between the same two cards, half of them in each
+ *     direction, which is the case that deadlocks without a lock order;</li>
+ *     <li>uniform: each transfer picks a random user and two of their cards.</li>
+ * </ul>
+ * The harness prints transfers per second, p50/p99 latency, retries after a database abort
+ * and transfers that failed after all attempts. Balances are summed before and after each run
+ * as a check that no money appeared or vanished.
+ * <p>
+ * Run with {@code mvn test-compile} and then
+ * {@code java -cp target/test-classes:target/classes:<test classpath> example.bankcards.benchmark.TransferContentionHarness}.
+ */
+public class TransferContentionHarness {
+
+    private static final int THREADS = 32;
+    private static final int TRANSFERS_PER_THREAD = 500;
+    private static final int USERS = 10;
+    private static final int CARDS_PER_USER = 100;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    public static void main(String[] args) throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(BankcardsApplication.class)
+                     .web(WebApplicationType.NONE)
+                     // arguments, not builder properties: those are defaults that application.yml overrides
+                     .run("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                             "--spring.datasource.hikari.maximum-pool-size=" + (THREADS + 4),
+                             "--spring.jpa.show-sql=false",
+                             "--logging.level.root=WARN",
+                             "--security.encryption.reencryption.enabled=false")) {
+
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            List<List<Long>> cardsByUser = seed(jdbc);
+            List<Long> userIds = jdbc.queryForList("select id from users order by id", Long.class);
+
+            CardTransactionServiceInterface transfers = context.getBean(CardTransactionServiceInterface.class);
+            TransferProperties properties = context.getBean(TransferProperties.class);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+
+            for (TransferProperties.Locking locking : TransferProperties.Locking.values()) {
+                properties.setLocking(locking);
+                run(locking + " hot", jdbc, transfers, meterRegistry, () -> {
+                    List<Long> cards = cardsByUser.get(0);
+                    boolean forward = ThreadLocalRandom.current().nextBoolean();
+                    return new Pick(userIds.get(0), cards.get(forward ? 0 : 1), cards.get(forward ? 1 : 0));
+                });
+                run(locking + " uniform", jdbc, transfers, meterRegistry, () -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int user = random.nextInt(USERS);
+                    List<Long> cards = cardsByUser.get(user);
+                    int from = random.nextInt(CARDS_PER_USER);
+                    int to = (from + 1 + random.nextInt(CARDS_PER_USER - 1)) % CARDS_PER_USER;
+                    return new Pick(userIds.get(user), cards.get(from), cards.get(to));
+                });
+            }
+        }
+    }
+
+    private static List<List<Long>> seed(JdbcTemplate jdbc) {
+        List<List<Long>> cardsByUser = new ArrayList<>(USERS);
+        for (int u = 0; u < USERS; u++) {
+            Long userId = jdbc.queryForObject(
+                    "insert into users (username, password) values (?, 'x') returning id", Long.class, "bench" + u);
+            List<Long> cards = new ArrayList<>(CARDS_PER_USER);
+            for (int c = 0; c < CARDS_PER_USER; c++) {
+                // transfers never decrypt the number, so a placeholder is enough
+                cards.add(jdbc.queryForObject("""
+                                insert into cards (card_number, card_number_hash, card_number_last4,
+                                                   expiration_date, status, balance, owner_id)
+                                values (?, ?, '0000', current_date + 365, 'ACTIVE', 1000000, ?)
+                                returning id""",
+                        Long.class, "bench-" + u + "-" + c, "bench-hash-" + u + "-" + c, userId));
+            }
+            Collections.sort(cards);
+            cardsByUser.add(cards);
+        }
+        return cardsByUser;
+    }
+
+    private static void run(String name, JdbcTemplate jdbc, CardTransactionServiceInterface transfers,
+                            MeterRegistry meterRegistry, PickSource picks) throws Exception {
+        BigDecimal totalBefore = jdbc.queryForObject("select sum(balance) from cards", BigDecimal.class);
+        double retriesBefore = meterRegistry.counter("cards.transfer.retries").count();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>(THREADS * TRANSFERS_PER_THREAD));
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        Pick pick = picks.next();
+                        CardTransferRequestDto request = CardTransferRequestDto.builder()
+                                .fromCardId(pick.fromCardId())
+                                .toCardId(pick.toCardId())
+                                .amount(AMOUNT)
+                                .build();
+                        long startedAt = System.nanoTime();
+                        try {
+                            transfers.transferBetweenOwnCards(pick.userId(), request);
+                            latencies.add(System.nanoTime() - startedAt);
+                        } catch (RuntimeException e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        done.await();
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        executor.shutdown();
+
+        BigDecimal totalAfter = jdbc.queryForObject("select sum(balance) from cards", BigDecimal.class);
+        double retries = meterRegistry.counter("cards.transfer.retries").count() - retriesBefore;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("%-20s %8.0f transfers/s, p50 %6.2f ms, p99 %7.2f ms, retries %5.0f, failed %4d, balance %s%n",
+                name, sorted.size() / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99),
+                retries, failed.get(), totalBefore.compareTo(totalAfter) == 0 ? "ok" : "MISMATCH");
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+    }
+
+    private record Pick(Long userId, Long fromCardId, Long toCardId) {
+    }
+
+    @FunctionalInterface
+    private interface PickSource {
+        Pick next();
+    }
+}
@@ -0,0 +1,59 @@
+package example.bankcards.config.converter;
+
+import example.bankcards.entity.CardNumber;
+import example.bankcards.until.EncryptionUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardNumberConverterTest {
+
+    @Mock
+    private EncryptionUtil encryptionUtil;
+
+    @InjectMocks
+    private CardNumberConverter converter;
+
+    @Test
+    void convertToEntityAttribute_doesNotDecrypt() {
+        CardNumber cardNumber = converter.convertToEntityAttribute("cipher");
+
+        assertEquals("cipher", cardNumber.getCiphertext());
+        assertFalse(cardNumber.isRevealed());
+        verifyNoInteractions(encryptionUtil);
+    }
+
+    @Test
+    void reveal_decryptsOnceAndCaches() {
+        when(encryptionUtil.decrypt("cipher")).thenReturn("1234567812345678");
+        CardNumber cardNumber = converter.convertToEntityAttribute("cipher");
+
+        assertEquals("1234567812345678", cardNumber.reveal());
+        assertEquals("1234567812345678", cardNumber.reveal());
+        verify(encryptionUtil, times(1)).decrypt("cipher");
+    }
+
+    @Test
+    void convertToDatabaseColumn_encryptsPlainNumberOnce() {
+        when(encryptionUtil.encrypt("1234567812345678")).thenReturn("cipher");
+        CardNumber cardNumber = CardNumber.ofPlain("1234567812345678");
+
+        assertEquals("cipher", converter.convertToDatabaseColumn(cardNumber));
+        assertEquals("cipher", converter.convertToDatabaseColumn(cardNumber));
+        verify(encryptionUtil, times(1)).encrypt("1234567812345678");
+    }
+
+    @Test
+    void convertToDatabaseColumn_loadedNumberIsWrittenBackUnchanged() {
+        CardNumber cardNumber = converter.convertToEntityAttribute("cipher");
+
+        assertEquals("cipher", converter.convertToDatabaseColumn(cardNumber));
+        verifyNoInteractions(encryptionUtil);
+    }
+}
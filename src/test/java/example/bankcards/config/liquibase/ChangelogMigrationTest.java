@@ -0,0 +1,157 @@
+package example.bankcards.config.liquibase;
+
+import example.bankcards.until.BlindIndexUtil;
+import example.bankcards.until.EncryptionUtil;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the real changelog against an embedded Postgres. Each test gets a fresh database, applies
+ * the initial schema, seeds rows the way a database from before the later changesets holds
+ * them, and then applies the changesets under test with the parameters the application passes.
+ */
+class ChangelogMigrationTest {
+
+    private static final String CHANGELOG = "db/migration/master.yml";
+    private static final String AES_KEY = "my32bytekey123456789012345678901";
+    private static final String HMAC_KEY = "card-number-blind-index-key-0001";
+    private static final String CARD_NUMBER = "4276123456781234";
+
+    // changesets per file of the changelog, in the order master.yml includes them
+    private static final int INIT_SCHEMA = 2;
+    private static final int CARD_NUMBER_HASH = 3;
+    private static final int CARD_NUMBER_LAST4 = 2;
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private static EmbeddedPostgres postgres;
+
+    private JdbcTemplate jdbc;
+    private Liquibase liquibase;
+
+    @BeforeAll
+    static void start() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    void createDatabase() throws SQLException, LiquibaseException {
+        String name = "migration_" + DATABASES.incrementAndGet();
+        new JdbcTemplate(postgres.getPostgresDatabase()).execute("CREATE DATABASE " + name);
+        DataSource dataSource = postgres.getDatabase("postgres", name);
+        jdbc = new JdbcTemplate(dataSource);
+
+        Database database = DatabaseFactory.getInstance()
+                .findCorrectDatabaseImplementation(new JdbcConnection(dataSource.getConnection()));
+        liquibase = new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database);
+        liquibase.setChangeLogParameter("aesKey", AES_KEY);
+        liquibase.setChangeLogParameter("hmacKey", HMAC_KEY);
+    }
+
+    @AfterEach
+    void closeDatabase() throws LiquibaseException {
+        liquibase.close();
+    }
+
+    @Test
+    void cardNumberHash_isFilledForExistingCards() throws LiquibaseException {
+        migrate(INIT_SCHEMA);
+        long cardId = seedCard(CARD_NUMBER);
+
+        migrate(CARD_NUMBER_HASH);
+
+        assertEquals(new BlindIndexUtil(HMAC_KEY).hash(CARD_NUMBER),
+                jdbc.queryForObject("select card_number_hash from cards where id = ?", String.class, cardId));
+    }
+
+    @Test
+    void cardNumberLast4_isFilledForExistingCards() throws LiquibaseException {
+        migrate(INIT_SCHEMA);
+        long cardId = seedCard(CARD_NUMBER);
+
+        migrate(CARD_NUMBER_HASH + CARD_NUMBER_LAST4);
+
+        assertEquals("1234", jdbc.queryForObject("select card_number_last4 from cards where id = ?", String.class, cardId));
+    }
+
+    @Test
+    void partitioning_attachesSeededTableWithoutBuildingIndexesOrForeignKeys() throws LiquibaseException {
+        migrate(INIT_SCHEMA);
+        long from = seedCard(CARD_NUMBER);
+        long to = seedCard("4276000011112222");
+        jdbc.update("""
+                insert into card_transactions (amount, timestamp, from_card_id, to_card_id, description)
+                select 1.00, timestamp '2024-01-01' + g * interval '1 day', ?, ?, 'seed ' || g
+                from generate_series(1, 100) g""", from, to);
+
+        liquibase.update(new Contexts(), new LabelExpression());
+
+        assertEquals("p", jdbc.queryForObject(
+                "select relkind::text from pg_class where relname = 'card_transactions'", String.class));
+        assertEquals(List.of("card_transactions_legacy"), jdbc.queryForList(
+                "select child.relname from pg_inherits join pg_class child on child.oid = inhrelid " +
+                "where inhparent = 'card_transactions'::regclass and child.relname like '%legacy'", String.class));
+        assertEquals(100, jdbc.queryForObject("select count(*) from card_transactions", Integer.class));
+
+        // the index and constraints changesets 15, 19 and 20 left were attached, not built again
+        assertEquals(List.of("card_transactions_legacy_pkey", "ix_card_transactions_legacy_from_card_history",
+                        "ix_card_transactions_legacy_to_card_history"),
+                jdbc.queryForList("select indexname from pg_indexes where tablename = 'card_transactions_legacy' " +
+                        "order by indexname", String.class));
+        assertEquals("PRIMARY KEY (id, \"timestamp\")", jdbc.queryForObject(
+                "select pg_get_constraintdef(oid) from pg_constraint " +
+                "where conrelid = 'card_transactions_legacy'::regclass and contype = 'p'", String.class));
+        assertEquals(List.of("fk_card_transactions_legacy_from_card_id", "fk_card_transactions_legacy_to_card_id"),
+                jdbc.queryForList("select conname from pg_constraint " +
+                        "where conrelid = 'card_transactions_legacy'::regclass and contype = 'f' and conparentid <> 0 " +
+                        "order by conname", String.class));
+        assertEquals(0, jdbc.queryForObject("select count(*) from pg_constraint " +
+                "where conrelid = 'card_transactions_legacy'::regclass and contype = 'c'", Integer.class));
+
+        // a transfer written now lands in a monthly partition
+        jdbc.update("insert into card_transactions (amount, timestamp, from_card_id, to_card_id) " +
+                "values (1.00, date_trunc('month', localtimestamp) + interval '1 month', ?, ?)", from, to);
+        assertEquals(101, jdbc.queryForObject("select count(*) from card_transactions", Integer.class));
+    }
+
+    private void migrate(int changeSets) throws LiquibaseException {
+        liquibase.update(changeSets, new Contexts(), new LabelExpression());
+    }
+
+    private long seedCard(String cardNumber) {
+        Long userId = jdbc.queryForObject(
+                "insert into users (username, password) values (?, 'x') returning id", Long.class, "owner-" + cardNumber);
+        return jdbc.queryForObject("""
+                insert into cards (card_number, expiration_date, status, balance, owner_id)
+                values (?, current_date + 365, 'ACTIVE', 100.00, ?)
+                returning id""", Long.class, new EncryptionUtil(AES_KEY).encrypt(cardNumber), userId);
+    }
+}
@@ -3,6 +3,7 @@ package example.bankcards.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import example.bankcards.dto.login.AuthResponseDto;
 import example.bankcards.dto.login.LoginRequestDto;
+import example.bankcards.dto.login.RefreshRequestDto;
 import example.bankcards.dto.login.RegisterRequestDto;
 import example.bankcards.service.api.AuthServiceInterface;
 
@@ -47,7 +48,7 @@ class AuthControllerTest {
     @Test
     void testRegister() throws Exception {
         RegisterRequestDto request = new RegisterRequestDto("user", "pass", Set.of(1L));
-        AuthResponseDto response = new AuthResponseDto("jwt-token");
+        AuthResponseDto response = new AuthResponseDto("jwt-token", "refresh-token");
 
         Mockito.when(authService.register(any(RegisterRequestDto.class))).thenReturn(response);
 
@@ -62,7 +63,7 @@ class AuthControllerTest {
     @Test
     void testLogin() throws Exception {
         LoginRequestDto request = new LoginRequestDto("user", "pass");
-        AuthResponseDto response = new AuthResponseDto("jwt-token");
+        AuthResponseDto response = new AuthResponseDto("jwt-token", "refresh-token");
 
         Mockito.when(authService.authenticate(any(LoginRequestDto.class))).thenReturn(response);
 
@@ -73,4 +74,40 @@ class AuthControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").value("jwt-token"));
     }
+
+    @Test
+    void testRefresh() throws Exception {
+        RefreshRequestDto request = new RefreshRequestDto("refresh-token");
+        AuthResponseDto response = new AuthResponseDto("new-jwt-token", "new-refresh-token");
+
+        Mockito.when(authService.refresh(any(RefreshRequestDto.class))).thenReturn(response);
+
+        mockMvc.perform(post("/api/auth/refresh")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("new-jwt-token"))
+                .andExpect(jsonPath("$.refreshToken").value("new-refresh-token"));
+    }
+
+    @Test
+    void testLogout() throws Exception {
+        mockMvc.perform(post("/api/auth/logout")
+                        .with(csrf())
+                        .header("Authorization", "Bearer jwt-token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshRequestDto("refresh-token"))))
+                .andExpect(status().isNoContent());
+
+        Mockito.verify(authService).logout("jwt-token", "refresh-token");
+    }
+
+    @Test
+    void testLogout_withoutBearerToken() throws Exception {
+        mockMvc.perform(post("/api/auth/logout").with(csrf()))
+                .andExpect(status().isUnauthorized());
+
+        Mockito.verifyNoInteractions(authService);
+    }
 }
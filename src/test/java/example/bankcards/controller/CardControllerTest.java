@@ -3,6 +3,8 @@ package example.bankcards.controller;
 import example.bankcards.dto.card.CardRequestDto;
 import example.bankcards.dto.card.CardResponseDto;
 import example.bankcards.entity.CardStatus;
+import example.bankcards.security.TokenRevocationRegistry;
+import example.bankcards.security.TokenVersionRegistry;
 import example.bankcards.security.jwt.JwtService;
 import example.bankcards.service.api.CardServiceInterface;
 
@@ -43,6 +45,12 @@ class CardControllerTest {
     @MockBean
     private JwtService jwtService;
 
+    @MockBean
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @MockBean
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
 
     @MockBean
     private CardServiceInterface cardService;
@@ -1,9 +1,19 @@
 package example.bankcards.controller;
 
+import example.bankcards.dto.card.BatchTransferLegResultDto;
+import example.bankcards.dto.card.BatchTransferRequestDto;
+import example.bankcards.dto.card.BatchTransferResponseDto;
 import example.bankcards.dto.card.CardTransactionDto;
 import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.dto.card.PendingTransferDto;
+import example.bankcards.dto.card.TransactionExportFormat;
+import example.bankcards.entity.PendingTransferStatus;
+import example.bankcards.security.TokenRevocationRegistry;
+import example.bankcards.security.TokenVersionRegistry;
 import example.bankcards.security.jwt.JwtService;
 import example.bankcards.service.api.CardTransactionServiceInterface;
+import example.bankcards.service.api.PendingTransferServiceInterface;
+import example.bankcards.service.api.TransactionExportServiceInterface;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -17,8 +27,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -36,9 +49,21 @@ class CardTransactionControllerTest {
     @MockBean
     private CardTransactionServiceInterface cardTransactionService;
 
+    @MockBean
+    private PendingTransferServiceInterface pendingTransferService;
+
+    @MockBean
+    private TransactionExportServiceInterface transactionExportService;
+
     @MockBean
     private JwtService jwtService;
 
+    @MockBean
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @MockBean
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -62,7 +87,7 @@ class CardTransactionControllerTest {
                 .description(requestDto.getDescription())
                 .build();
 
-        Mockito.when(cardTransactionService.transferBetweenOwnCards(eq(userId), any(CardTransferRequestDto.class)))
+        Mockito.when(cardTransactionService.transferBetweenOwnCards(eq(userId), any(CardTransferRequestDto.class), isNull()))
                 .thenReturn(responseDto);
 
         mockMvc.perform(post("/api/transactions/transfer/{userId}", userId)
@@ -77,6 +102,95 @@ class CardTransactionControllerTest {
                 .andExpect(jsonPath("$.description").value(responseDto.getDescription()));
     }
 
+    @Test
+    @WithMockUser(roles = {"USER"})
+    void testTransferPassesIdempotencyKey() throws Exception {
+        CardTransferRequestDto requestDto = CardTransferRequestDto.builder()
+                .fromCardId(100L)
+                .toCardId(200L)
+                .amount(BigDecimal.valueOf(500))
+                .build();
+
+        Mockito.when(cardTransactionService.transferBetweenOwnCards(eq(1L), any(CardTransferRequestDto.class), eq("retry-42")))
+                .thenReturn(CardTransactionDto.builder().id(10L).build());
+
+        mockMvc.perform(post("/api/transactions/transfer/{userId}", 1L)
+                        .with(csrf())
+                        .header("Idempotency-Key", "retry-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(10L));
+    }
+
+    @Test
+    @WithMockUser(roles = {"USER"})
+    void testTransferBatch() throws Exception {
+        BatchTransferRequestDto requestDto = BatchTransferRequestDto.builder()
+                .mode(BatchTransferRequestDto.Mode.PER_LEG)
+                .transfers(List.of(CardTransferRequestDto.builder()
+                        .fromCardId(100L)
+                        .toCardId(200L)
+                        .amount(BigDecimal.valueOf(5))
+                        .build()))
+                .build();
+
+        BatchTransferResponseDto responseDto = BatchTransferResponseDto.builder()
+                .applied(1)
+                .rejected(0)
+                .results(List.of(BatchTransferLegResultDto.builder()
+                        .index(0)
+                        .status(BatchTransferLegResultDto.Status.APPLIED)
+                        .transaction(CardTransactionDto.builder().id(11L).build())
+                        .build()))
+                .build();
+
+        Mockito.when(cardTransactionService.transferBatch(eq(1L), any(BatchTransferRequestDto.class)))
+                .thenReturn(responseDto);
+
+        mockMvc.perform(post("/api/transactions/transfer/{userId}/batch", 1L)
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(1))
+                .andExpect(jsonPath("$.results[0].status").value("APPLIED"))
+                .andExpect(jsonPath("$.results[0].transaction.id").value(11L));
+    }
+
+    @Test
+    @WithMockUser(roles = {"USER"})
+    void testTransferAsyncReturnsAccepted() throws Exception {
+        CardTransferRequestDto requestDto = CardTransferRequestDto.builder()
+                .fromCardId(100L)
+                .toCardId(200L)
+                .amount(BigDecimal.valueOf(5))
+                .build();
+
+        Mockito.when(pendingTransferService.accept(eq(1L), any(CardTransferRequestDto.class)))
+                .thenReturn(PendingTransferDto.builder().id(77L).status(PendingTransferStatus.PENDING).build());
+
+        mockMvc.perform(post("/api/transactions/transfer/{userId}/async", 1L)
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(77L))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    @WithMockUser(roles = {"USER"})
+    void testTransferStatus() throws Exception {
+        Mockito.when(pendingTransferService.getStatus(1L, 77L))
+                .thenReturn(PendingTransferDto.builder().id(77L).status(PendingTransferStatus.SETTLED).transactionId(5L).build());
+
+        mockMvc.perform(get("/api/transactions/transfer/{userId}/async/{transferId}", 1L, 77L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SETTLED"))
+                .andExpect(jsonPath("$.transactionId").value(5L));
+    }
+
     @Test
     @WithMockUser(roles = {"ADMIN"})
     void testGetTransactionHistory() throws Exception {
@@ -116,4 +230,23 @@ class CardTransactionControllerTest {
                 .andExpect(jsonPath("$.content[0].id").value(transaction1.getId()))
                 .andExpect(jsonPath("$.content[1].id").value(transaction2.getId()));
     }
+
+    @Test
+    @WithMockUser(roles = {"USER"})
+    void testExportStreamsCsvAttachment() throws Exception {
+        StreamingResponseBody body = out -> out.write("id,timestamp\n1,2025-03-01T12:00\n".getBytes(StandardCharsets.UTF_8));
+        Mockito.when(transactionExportService.exportCardHistory(1L, 5L, TransactionExportFormat.CSV, false))
+                .thenReturn(body);
+
+        MvcResult started = mockMvc.perform(get("/api/transactions/export/{userId}/card/{cardId}", 1L, 5L)
+                        .param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"card-5-transactions.csv\""))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("id,timestamp\n1,2025-03-01T12:00\n"));
+    }
 }
@@ -4,6 +4,8 @@ package example.bankcards.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import example.bankcards.dto.user.UserRequestDto;
 import example.bankcards.dto.user.UserResponseDto;
+import example.bankcards.security.TokenRevocationRegistry;
+import example.bankcards.security.TokenVersionRegistry;
 import example.bankcards.security.jwt.JwtService;
 import example.bankcards.service.api.UserServiceInterface;
 import org.junit.jupiter.api.Test;
@@ -31,6 +33,12 @@ class UserControllerTest {
     @MockBean
     private JwtService jwtService;
 
+    @MockBean
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @MockBean
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     @MockBean
     private UserServiceInterface userService;
 
@@ -126,4 +134,15 @@ class UserControllerTest {
 
         Mockito.verify(userService).deleteUser(userId);
     }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    void testRevokeTokens() throws Exception {
+        mockMvc.perform(post("/api/users/{id}/revoke-tokens", 1L)
+                        .with(csrf())
+                )
+                .andExpect(status().isNoContent());
+
+        Mockito.verify(userService).revokeTokens(1L);
+    }
 }
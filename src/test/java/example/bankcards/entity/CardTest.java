@@ -0,0 +1,22 @@
+package example.bankcards.entity;
+
+import example.bankcards.exception.card.InvalidCardNumberException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardTest {
+
+    @Test
+    void lastFourOf_returnsTrailingDigits() {
+        assertEquals("1234", Card.lastFourOf("4276123456781234"));
+        assertEquals("1234", Card.lastFourOf("1234"));
+    }
+
+    @Test
+    void lastFourOf_rejectsShortOrMissingNumber() {
+        assertThrows(InvalidCardNumberException.class, () -> Card.lastFourOf("123"));
+        assertThrows(InvalidCardNumberException.class, () -> Card.lastFourOf(""));
+        assertThrows(InvalidCardNumberException.class, () -> Card.lastFourOf(null));
+    }
+}
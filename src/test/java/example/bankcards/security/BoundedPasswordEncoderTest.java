@@ -0,0 +1,84 @@
+package example.bankcards.security;
+
+import example.bankcards.exception.auth.PasswordHashingBusy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (encoder != null) {
+            encoder.close();
+        }
+    }
+
+    @Test
+    void encodeAndMatches_delegateAndRecordLatency() {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 1, meterRegistry);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("other", hash));
+        assertEquals(1, meterRegistry.get("auth.password.hash").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("auth.password.hash").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void encode_whenPoolAndQueueAreFull_failsFast() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(started, release), 1, 1, meterRegistry);
+
+        callers.submit(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        callers.submit(() -> encoder.encode("queued"));
+        waitForQueued();
+
+        assertThrows(PasswordHashingBusy.class, () -> encoder.encode("rejected"));
+        release.countDown();
+    }
+
+    private void waitForQueued() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.get("auth.password.queue.size").gauge().value() < 1) {
+            assertTrue(System.currentTimeMillis() < deadline, "second call was not queued");
+            Thread.sleep(10);
+        }
+    }
+
+    private record BlockingEncoder(CountDownLatch started, CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package example.bankcards.security;
+
+import example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenVersionRegistryTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TokenVersionRegistry registry = new TokenVersionRegistry(userRepository, 60_000, 100);
+
+    @Test
+    void isCurrent_comparesWithCachedVersion() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(2));
+
+        assertFalse(registry.isCurrent(1L, 1));
+        assertTrue(registry.isCurrent(1L, 2));
+        verify(userRepository, times(1)).findTokenVersionById(1L);
+    }
+
+    @Test
+    void isCurrent_cachesMissingUser() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.empty());
+
+        assertFalse(registry.isCurrent(1L, 0));
+        assertFalse(registry.isCurrent(1L, 0));
+        verify(userRepository, times(1)).findTokenVersionById(1L);
+    }
+
+    @Test
+    void evict_dropsCachedMissOnceUserIsCreated() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.empty(), Optional.of(0));
+
+        assertFalse(registry.isCurrent(1L, 0));
+        registry.evict(1L);
+
+        assertTrue(registry.isCurrent(1L, 0));
+        verify(userRepository, times(2)).findTokenVersionById(1L);
+    }
+}
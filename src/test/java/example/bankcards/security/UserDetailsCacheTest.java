@@ -0,0 +1,56 @@
+package example.bankcards.security;
+
+import example.bankcards.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDetailsCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserDetailsCache cache = new UserDetailsCache(60_000, 100, meterRegistry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<String, UserDetailsConfig> loader = login -> {
+        loads.incrementAndGet();
+        User user = new User();
+        user.setId(1L);
+        user.setUsername(login);
+        user.setPassword("hash");
+        user.setRoles(Set.of());
+        return new UserDetailsConfig(user);
+    };
+
+    @Test
+    void get_loadsOnceAndCountsHits() {
+        cache.get("john", loader);
+        cache.get("john", loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void invalidate_forcesReload() {
+        cache.get("john", loader);
+        cache.invalidate("john");
+        cache.get("john", loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateUser_dropsEntryById() {
+        cache.get("john", loader);
+        cache.invalidateUser(1L);
+        cache.get("john", loader);
+
+        assertEquals(2, loads.get());
+    }
+}
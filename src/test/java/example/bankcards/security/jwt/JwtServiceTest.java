@@ -0,0 +1,98 @@
+package example.bankcards.security.jwt;
+
+import example.bankcards.entity.Role;
+import example.bankcards.security.UserDetailsConfig;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "tXKBU6A4Znere1R9DiqeCWSj6tdJAN+CcSgV3teHqNo=";
+
+    private final JwtService jwtService = new JwtService(SECRET, 100, 60_000);
+    private final UserDetails john = new User("john", "secret", List.of());
+
+    @Test
+    void verify_returnsClaimsOfIssuedToken() {
+        String token = jwtService.generateToken(john);
+
+        VerifiedToken verified = jwtService.verify(token);
+
+        assertEquals("john", verified.getSubject());
+        assertFalse(verified.isExpired());
+        assertTrue(jwtService.isTokenValid(token, john));
+    }
+
+    @Test
+    void generateToken_embedsIdRolesAndVersion() {
+        Role role = new Role();
+        role.setName("ROLE_ADMIN");
+        example.bankcards.entity.User user = new example.bankcards.entity.User();
+        user.setId(7L);
+        user.setUsername("admin");
+        user.setPassword("secret");
+        user.setTokenVersion(3);
+        user.setRoles(Set.of(role));
+
+        VerifiedToken verified = jwtService.verify(jwtService.generateToken(new UserDetailsConfig(user)));
+
+        assertTrue(verified.isSelfContained());
+        assertEquals(7L, verified.getUserId());
+        assertEquals(List.of("ROLE_ADMIN"), verified.getRoles());
+        assertEquals(3, verified.getTokenVersion());
+    }
+
+    @Test
+    void verify_tokenWithoutUserClaimsIsNotSelfContained() {
+        assertFalse(jwtService.verify(jwtService.generateToken(john)).isSelfContained());
+    }
+
+    @Test
+    void generateToken_givesEveryTokenItsOwnId() {
+        String first = jwtService.verify(jwtService.generateToken(john)).getTokenId();
+        String second = jwtService.verify(jwtService.generateToken(john)).getTokenId();
+
+        assertNotNull(first);
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void verify_repeatedTokenIsServedFromCache() {
+        String token = jwtService.generateToken(john);
+
+        assertSame(jwtService.verify(token), jwtService.verify(token));
+    }
+
+    @Test
+    void verify_rejectsTamperedToken() {
+        String[] johns = jwtService.generateToken(john).split("\\.");
+        String[] admins = jwtService.generateToken(new User("admin", "secret", List.of())).split("\\.");
+        String tampered = johns[0] + "." + admins[1] + "." + johns[2];
+
+        assertThrows(JwtException.class, () -> jwtService.verify(tampered));
+    }
+
+    @Test
+    void verify_rejectsExpiredToken() {
+        String expired = Jwts.builder()
+                .setSubject("john")
+                .setIssuedAt(new Date(System.currentTimeMillis() - 120_000))
+                .setExpiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThrows(JwtException.class, () -> jwtService.verify(expired));
+    }
+}
@@ -2,15 +2,22 @@ package example.bankcards.service;
 
 import example.bankcards.dto.login.AuthResponseDto;
 import example.bankcards.dto.login.LoginRequestDto;
+import example.bankcards.dto.login.RefreshRequestDto;
 import example.bankcards.dto.login.RegisterRequestDto;
 import example.bankcards.entity.Role;
 import example.bankcards.entity.User;
+import example.bankcards.exception.auth.InvalidRefreshToken;
 import example.bankcards.exception.role.RoleNotFound;
 import example.bankcards.exception.user.UserNotFoundLogin;
 import example.bankcards.exception.user.UsernameExists;
 import example.bankcards.repository.RoleRepository;
 import example.bankcards.repository.UserRepository;
+import example.bankcards.security.TokenRevocationRegistry;
+import example.bankcards.security.TokenVersionRegistry;
+import example.bankcards.security.UserDetailsCache;
 import example.bankcards.security.jwt.JwtService;
+import example.bankcards.security.jwt.VerifiedToken;
+import example.bankcards.service.api.RefreshTokenServiceInterface;
 import example.bankcards.service.impl.AuthService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,6 +27,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Instant;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -42,6 +50,18 @@ class AuthServiceTest {
     @Mock
     private AuthenticationManager authenticationManager;
 
+    @Mock
+    private UserDetailsCache userDetailsCache;
+
+    @Mock
+    private RefreshTokenServiceInterface refreshTokenService;
+
+    @Mock
+    private TokenRevocationRegistry revocations;
+
+    @Mock
+    private TokenVersionRegistry tokenVersions;
+
     @Mock
     private Authentication authentication;
 
@@ -83,6 +103,8 @@ class AuthServiceTest {
         assertNotNull(response);
         assertEquals("mockToken", response.getToken());
         verify(userRepository).save(any(User.class));
+        verify(userDetailsCache).invalidate("john");
+        verify(tokenVersions).evict(1L);
     }
 
     @Test
@@ -136,11 +158,53 @@ class AuthServiceTest {
 
         when(userRepository.findByUsername("john")).thenReturn(Optional.of(user));
         when(jwtService.generateToken(any())).thenReturn("mockToken");
+        when(refreshTokenService.issue(user)).thenReturn("mockRefresh");
 
         AuthResponseDto response = authService.authenticate(request);
 
         assertNotNull(response);
         assertEquals("mockToken", response.getToken());
+        assertEquals("mockRefresh", response.getRefreshToken());
+    }
+
+    @Test
+    void refresh_shouldRotateTokens_withoutPasswordCheck() {
+        User user = User.builder()
+                .id(1L)
+                .username("john")
+                .password("encodedPassword")
+                .roles(Set.of())
+                .build();
+
+        when(refreshTokenService.consume("oldRefresh")).thenReturn(user);
+        when(refreshTokenService.issue(user)).thenReturn("newRefresh");
+        when(jwtService.generateToken(any())).thenReturn("mockToken");
+
+        AuthResponseDto response = authService.refresh(new RefreshRequestDto("oldRefresh"));
+
+        assertEquals("mockToken", response.getToken());
+        assertEquals("newRefresh", response.getRefreshToken());
+        verifyNoInteractions(authenticationManager, passwordEncoder);
+    }
+
+    @Test
+    void logout_shouldRevokeAccessAndRefreshTokens() {
+        Instant expiresAt = Instant.now().plusSeconds(600);
+        when(jwtService.verify("access")).thenReturn(new VerifiedToken(
+                "john", "jti-1", Instant.now(), expiresAt, 1L, List.of("ROLE_USER"), 0));
+
+        authService.logout("access", "refresh");
+
+        verify(revocations).revoke("jti-1", expiresAt);
+        verify(refreshTokenService).revoke("refresh");
+    }
+
+    @Test
+    void refresh_shouldFail_whenTokenRejected() {
+        when(refreshTokenService.consume("used")).thenThrow(new InvalidRefreshToken());
+
+        assertThrows(InvalidRefreshToken.class, () -> authService.refresh(new RefreshRequestDto("used")));
+        verify(refreshTokenService, never()).issue(any());
     }
 
     @Test
@@ -8,6 +8,7 @@ import example.bankcards.exception.card.*;
 import example.bankcards.repository.CardRepository;
 import example.bankcards.repository.UserRepository;
 import example.bankcards.service.impl.CardService;
+import example.bankcards.service.impl.LedgerWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -29,6 +30,8 @@ class CardServiceTest {
     private UserRepository userRepository;
     @Mock
     private CardMapper cardMapper;
+    @Mock
+    private LedgerWriter ledgerWriter;
 
     @InjectMocks
     private CardService cardService;
@@ -49,17 +52,40 @@ class CardServiceTest {
 
         User user = new User();
         Card card = new Card();
+        card.setCardNumberHash("hash");
         Card savedCard = new Card();
         CardResponseDto responseDto = new CardResponseDto();
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(cardRepository.existsByCardNumber(dto.getCardNumber())).thenReturn(false);
         when(cardMapper.toEntity(dto, user)).thenReturn(card);
-        when(cardRepository.save(card)).thenReturn(savedCard);
+        when(cardRepository.existsByCardNumberHash("hash")).thenReturn(false);
+        when(cardRepository.saveAndFlush(card)).thenReturn(savedCard);
         when(cardMapper.toDto(savedCard)).thenReturn(responseDto);
 
         CardResponseDto result = cardService.createCard(userId, dto);
         assertEquals(responseDto, result);
+        // the opening entry needs the saved card's id
+        InOrder order = inOrder(cardRepository, ledgerWriter);
+        order.verify(cardRepository).saveAndFlush(card);
+        order.verify(ledgerWriter).recordOpening(savedCard);
+    }
+
+    @Test
+    void createCard_duplicateNumber_throwsException() {
+        Long userId = 1L;
+        CardRequestDto dto = CardRequestDto.builder()
+                .cardNumber("1234567812345678")
+                .build();
+        User user = new User();
+        Card card = new Card();
+        card.setCardNumberHash("hash");
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(cardMapper.toEntity(dto, user)).thenReturn(card);
+        when(cardRepository.existsByCardNumberHash("hash")).thenReturn(true);
+
+        assertThrows(CardAlreadyExistsException.class, () -> cardService.createCard(userId, dto));
+        verify(cardRepository, never()).saveAndFlush(any());
     }
 
     @Test
@@ -134,8 +160,7 @@ class CardServiceTest {
         CardResponseDto dto2 = new CardResponseDto();
 
         when(cardRepository.findAll()).thenReturn(cards);
-        when(cardMapper.toOpenDto(card1)).thenReturn(dto1);
-        when(cardMapper.toOpenDto(card2)).thenReturn(dto2);
+        when(cardMapper.toOpenDtos(cards)).thenReturn(List.of(dto1, dto2));
 
         List<CardResponseDto> result = cardService.getAllCards();
         assertEquals(2, result.size());
@@ -162,7 +187,7 @@ class CardServiceTest {
         CardResponseDto dto = new CardResponseDto();
 
         when(cardRepository.findAllByStatus(CardStatus.PENDING_BLOCK)).thenReturn(List.of(card));
-        when(cardMapper.toOpenDto(card)).thenReturn(dto);
+        when(cardMapper.toOpenDtos(List.of(card))).thenReturn(List.of(dto));
 
         List<CardResponseDto> result = cardService.findCardsPendingBlock();
         assertEquals(1, result.size());
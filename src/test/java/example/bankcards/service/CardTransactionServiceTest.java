@@ -1,30 +1,53 @@
 package example.bankcards.service;
 
 import example.bankcards.config.mapper.CardTransactionMapper;
+import example.bankcards.config.transfer.TransferProperties;
+import example.bankcards.dto.card.BatchTransferLegResultDto;
+import example.bankcards.dto.card.BatchTransferRequestDto;
+import example.bankcards.dto.card.BatchTransferResponseDto;
 import example.bankcards.dto.card.CardTransactionDto;
 import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.dto.card.TransactionHistoryPageDto;
 import example.bankcards.entity.Card;
 import example.bankcards.entity.CardStatus;
 import example.bankcards.entity.CardTransaction;
+import example.bankcards.exception.card.BatchTransferRejected;
 import example.bankcards.exception.card.CardIsNotActive;
 import example.bankcards.exception.card.CardNotFoundOrAccessDenied;
+import example.bankcards.exception.card.InsufficientFunds;
+import example.bankcards.exception.card.InvalidHistoryCursor;
+import example.bankcards.exception.card.InvalidIdempotencyKey;
+import example.bankcards.exception.card.InvalidTransferAmount;
 import example.bankcards.repository.CardRepository;
 import example.bankcards.repository.CardTransactionRepository;
+import example.bankcards.repository.projection.CardTransactionView;
+import example.bankcards.service.impl.ColumnarHistoryArchive;
 import example.bankcards.service.impl.CardTransactionService;
+import example.bankcards.service.impl.BatchTransferApplier;
+import example.bankcards.service.impl.IdempotencyKeyStore;
+import example.bankcards.service.impl.LedgerWriter;
+import example.bankcards.service.impl.ShardedTransferExecutor;
+import example.bankcards.until.HistoryCursor;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.data.domain.*;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -42,7 +65,23 @@ class CardTransactionServiceTest {
     @Mock
     private CardTransactionMapper cardTransactionMapper;
 
-    @InjectMocks
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private IdempotencyKeyStore idempotencyKeys;
+
+    @Mock
+    private ShardedTransferExecutor shardedExecutor;
+
+    @Mock
+    private LedgerWriter ledgerWriter;
+
+    @Mock
+    private ColumnarHistoryArchive archive;
+
+    private TransferProperties properties;
+    private SimpleMeterRegistry meterRegistry;
     private CardTransactionService cardTransactionService;
 
     private Card fromCard;
@@ -52,6 +91,13 @@ class CardTransactionServiceTest {
 
     @BeforeEach
     void setUp() {
+        properties = new TransferProperties();
+        properties.setRetryBackoffMs(0);
+        meterRegistry = new SimpleMeterRegistry();
+        cardTransactionService = new CardTransactionService(cardRepository, transactionRepository,
+                cardTransactionMapper, idempotencyKeys, new BatchTransferApplier(cardRepository, transactionRepository, ledgerWriter),
+                ledgerWriter, shardedExecutor, archive, properties, transactionManager, meterRegistry);
+
         fromCard = Card.builder()
                 .id(1L)
                 .balance(new BigDecimal("100.00"))
@@ -81,36 +127,41 @@ class CardTransactionServiceTest {
 
     @Test
     void transferBetweenOwnCards_successfulTransfer() {
-        when(cardRepository.findByIdAndOwnerId(1L, 1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByIdAndOwnerId(2L, 1L)).thenReturn(Optional.of(toCard));
-        when(transactionRepository.save(any())).thenReturn(transaction);
-        when(cardTransactionMapper.toDto(any())).thenReturn(new CardTransactionDto());
+        when(cardRepository.debit(1L, 1L, requestDto.getAmount())).thenReturn(1);
+        when(cardRepository.credit(2L, 1L, requestDto.getAmount())).thenReturn(1);
+        when(cardRepository.getReferenceById(1L)).thenReturn(fromCard);
+        when(cardRepository.getReferenceById(2L)).thenReturn(toCard);
+        when(cardTransactionMapper.toDto(any(CardTransaction.class))).thenReturn(new CardTransactionDto());
 
         CardTransactionDto result = cardTransactionService.transferBetweenOwnCards(1L, requestDto);
 
         assertNotNull(result);
-        assertEquals(new BigDecimal("70.00"), fromCard.getBalance());
-        assertEquals(new BigDecimal("80.00"), toCard.getBalance());
-
-        verify(transactionRepository).save(any(CardTransaction.class));
-        verify(cardRepository, times(2)).save(any(Card.class));
+        ArgumentCaptor<CardTransaction> saved = ArgumentCaptor.forClass(CardTransaction.class);
+        verify(transactionRepository).save(saved.capture());
+        assertEquals(new BigDecimal("30.00"), saved.getValue().getAmount());
+        assertNotNull(saved.getValue().getTimestamp());
+        verify(ledgerWriter).recordTransfers(List.of(saved.getValue()));
+        verify(cardRepository, never()).findByIdAndOwnerId(any(), any());
+        verify(cardRepository, never()).save(any(Card.class));
     }
 
     @Test
     void transferBetweenOwnCards_insufficientFunds() {
         requestDto.setAmount(new BigDecimal("200.00")); // больше баланса
+        when(cardRepository.debit(1L, 1L, requestDto.getAmount())).thenReturn(0);
         when(cardRepository.findByIdAndOwnerId(1L, 1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByIdAndOwnerId(2L, 1L)).thenReturn(Optional.of(toCard));
 
-        assertThrows(RuntimeException.class,
+        assertThrows(InsufficientFunds.class,
                 () -> cardTransactionService.transferBetweenOwnCards(1L, requestDto));
+        verify(cardRepository, never()).credit(any(), any(), any());
+        verify(transactionRepository, never()).save(any());
     }
 
     @Test
     void transferBetweenOwnCards_cardNotActive() {
         fromCard.setStatus(CardStatus.BLOCKED);
+        when(cardRepository.debit(1L, 1L, requestDto.getAmount())).thenReturn(0);
         when(cardRepository.findByIdAndOwnerId(1L, 1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByIdAndOwnerId(2L, 1L)).thenReturn(Optional.of(toCard));
 
         assertThrows(CardIsNotActive.class,
                 () -> cardTransactionService.transferBetweenOwnCards(1L, requestDto));
@@ -118,27 +169,442 @@ class CardTransactionServiceTest {
 
     @Test
     void transferBetweenOwnCards_cardNotFound() {
+        when(cardRepository.debit(1L, 1L, requestDto.getAmount())).thenReturn(0);
         when(cardRepository.findByIdAndOwnerId(1L, 1L)).thenReturn(Optional.empty());
 
         assertThrows(CardNotFoundOrAccessDenied.class,
                 () -> cardTransactionService.transferBetweenOwnCards(1L, requestDto));
     }
 
+    @Test
+    void transferBetweenOwnCards_targetCardNotActive() {
+        toCard.setStatus(CardStatus.BLOCKED);
+        when(cardRepository.debit(1L, 1L, requestDto.getAmount())).thenReturn(1);
+        when(cardRepository.credit(2L, 1L, requestDto.getAmount())).thenReturn(0);
+        when(cardRepository.findByIdAndOwnerId(2L, 1L)).thenReturn(Optional.of(toCard));
+
+        assertThrows(CardIsNotActive.class,
+                () -> cardTransactionService.transferBetweenOwnCards(1L, requestDto));
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void transferBetweenOwnCards_nonPositiveAmount() {
+        requestDto.setAmount(new BigDecimal("-5.00"));
+
+        assertThrows(InvalidTransferAmount.class,
+                () -> cardTransactionService.transferBetweenOwnCards(1L, requestDto));
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void transferBetweenOwnCards_updatesLowerIdFirst() {
+        requestDto.setFromCardId(2L);
+        requestDto.setToCardId(1L);
+        when(cardRepository.credit(1L, 1L, requestDto.getAmount())).thenReturn(1);
+        when(cardRepository.debit(2L, 1L, requestDto.getAmount())).thenReturn(1);
+        when(cardTransactionMapper.toDto(any(CardTransaction.class))).thenReturn(new CardTransactionDto());
+
+        cardTransactionService.transferBetweenOwnCards(1L, requestDto);
+
+        InOrder order = inOrder(cardRepository);
+        order.verify(cardRepository).credit(1L, 1L, requestDto.getAmount());
+        order.verify(cardRepository).debit(2L, 1L, requestDto.getAmount());
+    }
+
+    @Test
+    void transferBetweenOwnCards_retriesDeadlock() {
+        when(cardRepository.debit(1L, 1L, requestDto.getAmount()))
+                .thenThrow(new CannotAcquireLockException("deadlock detected"))
+                .thenReturn(1);
+        when(cardRepository.credit(2L, 1L, requestDto.getAmount())).thenReturn(1);
+        when(cardTransactionMapper.toDto(any(CardTransaction.class))).thenReturn(new CardTransactionDto());
+
+        assertNotNull(cardTransactionService.transferBetweenOwnCards(1L, requestDto));
+        verify(transactionRepository, times(1)).save(any());
+        assertEquals(1.0, meterRegistry.counter("cards.transfer.retries").count());
+    }
+
+    @Test
+    void transferBetweenOwnCards_givesUpAfterMaxAttempts() {
+        when(cardRepository.debit(1L, 1L, requestDto.getAmount()))
+                .thenThrow(new CannotAcquireLockException("deadlock detected"));
+
+        assertThrows(CannotAcquireLockException.class,
+                () -> cardTransactionService.transferBetweenOwnCards(1L, requestDto));
+        verify(cardRepository, times(properties.getMaxAttempts())).debit(1L, 1L, requestDto.getAmount());
+    }
+
+    @Test
+    void transferBetweenOwnCards_orderedLocking() {
+        properties.setLocking(TransferProperties.Locking.ORDERED);
+        when(cardRepository.findAllByIdForUpdate(List.of(1L, 2L), 1L)).thenReturn(List.of(fromCard, toCard));
+        when(cardTransactionMapper.toDto(any(CardTransaction.class))).thenReturn(new CardTransactionDto());
+
+        cardTransactionService.transferBetweenOwnCards(1L, requestDto);
+
+        assertEquals(new BigDecimal("70.00"), fromCard.getBalance());
+        assertEquals(new BigDecimal("80.00"), toCard.getBalance());
+        verify(transactionRepository).save(any());
+        verify(cardRepository, never()).debit(any(), any(), any());
+    }
+
+    @Test
+    void transferBetweenOwnCards_orderedLockingInsufficientFunds() {
+        properties.setLocking(TransferProperties.Locking.ORDERED);
+        requestDto.setAmount(new BigDecimal("200.00"));
+        when(cardRepository.findAllByIdForUpdate(List.of(1L, 2L), 1L)).thenReturn(List.of(fromCard, toCard));
+
+        assertThrows(InsufficientFunds.class,
+                () -> cardTransactionService.transferBetweenOwnCards(1L, requestDto));
+        assertEquals(new BigDecimal("100.00"), fromCard.getBalance());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void transferBetweenOwnCards_orderedLockingForeignCard() {
+        properties.setLocking(TransferProperties.Locking.ORDERED);
+        when(cardRepository.findAllByIdForUpdate(List.of(1L, 2L), 1L)).thenReturn(List.of(fromCard));
+
+        assertThrows(CardNotFoundOrAccessDenied.class,
+                () -> cardTransactionService.transferBetweenOwnCards(1L, requestDto));
+    }
+
+    @Test
+    void transferBetweenOwnCards_newIdempotencyKeyStoresResponse() {
+        String hash = IdempotencyKeyStore.requestHash(requestDto);
+        CardTransactionDto response = new CardTransactionDto();
+        when(cardRepository.debit(1L, 1L, requestDto.getAmount())).thenReturn(1);
+        when(cardRepository.credit(2L, 1L, requestDto.getAmount())).thenReturn(1);
+        when(cardTransactionMapper.toDto(any(CardTransaction.class))).thenReturn(response);
+
+        assertSame(response, cardTransactionService.transferBetweenOwnCards(1L, requestDto, "key-1"));
+
+        InOrder order = inOrder(idempotencyKeys, cardRepository);
+        order.verify(idempotencyKeys).claim(1L, "key-1", hash);
+        order.verify(cardRepository).debit(1L, 1L, requestDto.getAmount());
+        order.verify(idempotencyKeys).complete(1L, "key-1", response);
+        order.verify(idempotencyKeys).remember(1L, "key-1", hash, response);
+    }
+
+    @Test
+    void transferBetweenOwnCards_replaysClaimedKey() {
+        CardTransactionDto stored = new CardTransactionDto();
+        when(idempotencyKeys.claim(eq(1L), eq("key-1"), anyString())).thenReturn(stored);
+
+        assertSame(stored, cardTransactionService.transferBetweenOwnCards(1L, requestDto, "key-1"));
+        verifyNoInteractions(cardRepository, transactionRepository);
+        verify(idempotencyKeys, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    void transferBetweenOwnCards_replaysCachedKeyWithoutTransaction() {
+        CardTransactionDto stored = new CardTransactionDto();
+        when(idempotencyKeys.cached(eq(1L), eq("key-1"), anyString())).thenReturn(stored);
+
+        assertSame(stored, cardTransactionService.transferBetweenOwnCards(1L, requestDto, "key-1"));
+        verifyNoInteractions(cardRepository, transactionManager);
+    }
+
+    @Test
+    void transferBetweenOwnCards_rejectsOverlongIdempotencyKey() {
+        assertThrows(InvalidIdempotencyKey.class,
+                () -> cardTransactionService.transferBetweenOwnCards(1L, requestDto, "k".repeat(256)));
+        verifyNoInteractions(idempotencyKeys, cardRepository);
+    }
+
+    @Test
+    void transferBatch_appliesNetChangeAndSavesAllRows() {
+        Card third = Card.builder().id(3L).balance(new BigDecimal("0.00")).status(CardStatus.ACTIVE).build();
+        when(cardRepository.findAllByIdForUpdate(any(), eq(1L))).thenReturn(List.of(fromCard, toCard, third));
+        BatchTransferRequestDto batch = BatchTransferRequestDto.builder()
+                .transfers(List.of(
+                        leg(1L, 2L, "60.00"),
+                        leg(2L, 3L, "100.00"),   // spends what the first leg brought in
+                        leg(1L, 3L, "40.00")))
+                .build();
+
+        BatchTransferResponseDto result = cardTransactionService.transferBatch(1L, batch);
+
+        assertEquals(3, result.getApplied());
+        assertEquals(0, result.getRejected());
+        assertEquals(new BigDecimal("0.00"), fromCard.getBalance());
+        assertEquals(new BigDecimal("10.00"), toCard.getBalance());
+        assertEquals(new BigDecimal("140.00"), third.getBalance());
+        ArgumentCaptor<List<CardTransaction>> saved = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository).saveAll(saved.capture());
+        assertEquals(3, saved.getValue().size());
+        verify(ledgerWriter).recordTransfers(saved.getValue());
+        verify(cardRepository, never()).debit(any(), any(), any());
+    }
+
+    @Test
+    void transferBatch_allOrNothingRejectsWholeBatch() {
+        when(cardRepository.findAllByIdForUpdate(any(), eq(1L))).thenReturn(List.of(fromCard, toCard));
+        BatchTransferRequestDto batch = BatchTransferRequestDto.builder()
+                .transfers(List.of(leg(1L, 2L, "60.00"), leg(1L, 2L, "60.00")))
+                .build();
+
+        BatchTransferRejected e = assertThrows(BatchTransferRejected.class,
+                () -> cardTransactionService.transferBatch(1L, batch));
+        assertTrue(e.getMessage().contains("#1"));
+        verify(transactionRepository, never()).saveAll(any());
+        verify(ledgerWriter, never()).recordTransfers(any());
+    }
+
+    @Test
+    void transferBatch_perLegSkipsRejectedLegs() {
+        when(cardRepository.findAllByIdForUpdate(any(), eq(1L))).thenReturn(List.of(fromCard, toCard));
+        BatchTransferRequestDto batch = BatchTransferRequestDto.builder()
+                .mode(BatchTransferRequestDto.Mode.PER_LEG)
+                .transfers(List.of(leg(1L, 2L, "60.00"), leg(1L, 9L, "10.00"), leg(1L, 2L, "60.00"), leg(2L, 1L, "5.00")))
+                .build();
+
+        BatchTransferResponseDto result = cardTransactionService.transferBatch(1L, batch);
+
+        assertEquals(2, result.getApplied());
+        assertEquals(2, result.getRejected());
+        assertEquals(BatchTransferLegResultDto.Status.REJECTED, result.getResults().get(1).getStatus());
+        assertEquals(BatchTransferLegResultDto.Status.REJECTED, result.getResults().get(2).getStatus());
+        assertEquals(new BigDecimal("45.00"), fromCard.getBalance());
+        assertEquals(new BigDecimal("105.00"), toCard.getBalance());
+    }
+
+    @Test
+    void transferBatch_rejectsOversizedBatch() {
+        properties.setMaxBatchSize(1);
+        BatchTransferRequestDto batch = BatchTransferRequestDto.builder()
+                .transfers(List.of(leg(1L, 2L, "1.00"), leg(1L, 2L, "1.00")))
+                .build();
+
+        assertThrows(BatchTransferRejected.class, () -> cardTransactionService.transferBatch(1L, batch));
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void transferBetweenOwnCards_shardedModeWaitsForShard() {
+        properties.setWriteMode(TransferProperties.WriteMode.SHARDED);
+        CardTransactionDto response = new CardTransactionDto();
+        when(shardedExecutor.submit(1L, requestDto)).thenReturn(CompletableFuture.completedFuture(response));
+
+        assertSame(response, cardTransactionService.transferBetweenOwnCards(1L, requestDto));
+        verifyNoInteractions(cardRepository, transactionManager);
+    }
+
+    @Test
+    void transferBetweenOwnCards_shardedModeRethrowsRejection() {
+        properties.setWriteMode(TransferProperties.WriteMode.SHARDED);
+        when(shardedExecutor.submit(1L, requestDto))
+                .thenReturn(CompletableFuture.failedFuture(new InsufficientFunds(1L)));
+
+        assertThrows(InsufficientFunds.class,
+                () -> cardTransactionService.transferBetweenOwnCards(1L, requestDto));
+    }
+
+    @Test
+    void transferBetweenOwnCards_shardedModeKeepsKeyedTransfersDirect() {
+        properties.setWriteMode(TransferProperties.WriteMode.SHARDED);
+        when(cardRepository.debit(1L, 1L, requestDto.getAmount())).thenReturn(1);
+        when(cardRepository.credit(2L, 1L, requestDto.getAmount())).thenReturn(1);
+
+        cardTransactionService.transferBetweenOwnCards(1L, requestDto, "key-1");
+
+        verifyNoInteractions(shardedExecutor);
+    }
+
+    private static CardTransferRequestDto leg(Long from, Long to, String amount) {
+        return CardTransferRequestDto.builder().fromCardId(from).toCardId(to).amount(new BigDecimal(amount)).build();
+    }
+
     @Test
     void getTransactionHistory_returnsPage() {
         Card card = Card.builder().id(5L).build();
         Pageable pageable = PageRequest.of(0, 10);
-        Page<CardTransaction> page = new PageImpl<>(List.of(transaction));
         CardTransactionDto dto = new CardTransactionDto();
+        Page<CardTransactionDto> page = new PageImpl<>(List.of(dto));
 
         when(cardRepository.findByIdAndOwnerId(5L, 1L)).thenReturn(Optional.of(card));
-        when(transactionRepository.findAllByCardId(5L, pageable)).thenReturn(page);
-        when(cardTransactionMapper.toDto(any())).thenReturn(dto);
+        when(archive.archivedUntil()).thenReturn(ColumnarHistoryArchive.NOTHING_ARCHIVED);
+        when(transactionRepository.findAllByCardId(5L, ColumnarHistoryArchive.NOTHING_ARCHIVED, pageable)).thenReturn(page);
 
         Page<CardTransactionDto> result = cardTransactionService.getTransactionHistory(1L, 5L, pageable);
 
         assertEquals(1, result.getTotalElements());
         assertEquals(dto, result.getContent().get(0));
     }
-}
 
+    @Test
+    void getTransactionHistory_offsetPageContinuesIntoArchive() {
+        Card card = Card.builder().id(5L).build();
+        LocalDateTime archivedUntil = LocalDateTime.of(2022, 12, 31, 23, 59);
+        CardTransactionDto recent = CardTransactionDto.builder().id(30L).build();
+        CardTransactionDto archived1 = CardTransactionDto.builder().id(8L).build();
+        CardTransactionDto archived2 = CardTransactionDto.builder().id(7L).build();
+        // 12 rows after the bound: the second page of 10 holds the last two and eight archived ones
+        Pageable pageable = PageRequest.of(1, 10);
+        Page<CardTransactionDto> page = new PageImpl<>(List.of(recent, recent), pageable, 12);
+
+        when(cardRepository.findByIdAndOwnerId(5L, 1L)).thenReturn(Optional.of(card));
+        when(archive.archivedUntil()).thenReturn(archivedUntil);
+        when(transactionRepository.findAllByCardId(5L, archivedUntil, pageable)).thenReturn(page);
+        when(archive.count(5L)).thenReturn(40L);
+        when(archive.findPage(5L, 0, 8)).thenReturn(List.of(archived1, archived2));
+
+        Page<CardTransactionDto> result = cardTransactionService.getTransactionHistory(1L, 5L, pageable);
+
+        assertEquals(List.of(recent, recent, archived1, archived2), result.getContent());
+        assertEquals(52, result.getTotalElements());
+    }
+
+    @Test
+    void getTransactionHistory_offsetPagePastDatabaseSkipsItsRows() {
+        Card card = Card.builder().id(5L).build();
+        Pageable pageable = PageRequest.of(3, 10);
+        Page<CardTransactionDto> page = new PageImpl<>(List.of(), pageable, 12);
+        CardTransactionDto archived = CardTransactionDto.builder().id(3L).build();
+
+        when(cardRepository.findByIdAndOwnerId(5L, 1L)).thenReturn(Optional.of(card));
+        when(archive.archivedUntil()).thenReturn(ColumnarHistoryArchive.NOTHING_ARCHIVED);
+        when(transactionRepository.findAllByCardId(5L, ColumnarHistoryArchive.NOTHING_ARCHIVED, pageable)).thenReturn(page);
+        when(archive.count(5L)).thenReturn(40L);
+        when(archive.findPage(5L, 18, 10)).thenReturn(List.of(archived));
+
+        Page<CardTransactionDto> result = cardTransactionService.getTransactionHistory(1L, 5L, pageable);
+
+        assertEquals(List.of(archived), result.getContent());
+        assertEquals(52, result.getTotalElements());
+    }
+
+    @Test
+    void getTransactionHistory_seekReturnsCursorWhenMoreRowsExist() {
+        Card card = Card.builder().id(5L).build();
+        LocalDateTime now = LocalDateTime.of(2025, 3, 1, 12, 0);
+        CardTransactionView newer = view(20L, now);
+        CardTransactionView older = view(10L, now.minusMinutes(1));
+        CardTransactionView extra = view(5L, now.minusMinutes(2));
+
+        when(cardRepository.findByIdAndOwnerId(5L, 1L)).thenReturn(Optional.of(card));
+        when(transactionRepository.findHistoryBefore(5L, HistoryCursor.START.timestamp(), HistoryCursor.START.id(), 3))
+                .thenReturn(List.of(newer, older, extra));
+        when(cardTransactionMapper.toDto(any(CardTransactionView.class))).thenReturn(new CardTransactionDto());
+
+        TransactionHistoryPageDto result = cardTransactionService.getTransactionHistory(1L, 5L, null, 2);
+
+        assertEquals(2, result.getItems().size());
+        HistoryCursor next = HistoryCursor.decode(result.getNextCursor());
+        assertEquals(older.getTimestamp(), next.timestamp());
+        assertEquals(10L, next.id());
+    }
+
+    @Test
+    void getTransactionHistory_seekLastPageHasNoCursor() {
+        Card card = Card.builder().id(5L).build();
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2025, 3, 1, 12, 0), 10L);
+
+        when(cardRepository.findByIdAndOwnerId(5L, 1L)).thenReturn(Optional.of(card));
+        when(transactionRepository.findHistoryBefore(5L, cursor.timestamp(), 10L, 11))
+                .thenReturn(List.of(view(9L, cursor.timestamp().minusMinutes(1))));
+        when(cardTransactionMapper.toDto(any(CardTransactionView.class))).thenReturn(new CardTransactionDto());
+
+        TransactionHistoryPageDto result = cardTransactionService.getTransactionHistory(1L, 5L, cursor.encode(), 10);
+
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getTransactionHistory_seekFallsThroughToArchive() {
+        Card card = Card.builder().id(5L).build();
+        LocalDateTime now = LocalDateTime.of(2025, 3, 1, 12, 0);
+        CardTransactionView newest = view(20L, now);
+        CardTransactionDto newestDto = CardTransactionDto.builder().id(20L).timestamp(now).build();
+        CardTransactionDto archived1 = CardTransactionDto.builder().id(7L).timestamp(now.minusYears(3)).build();
+        CardTransactionDto archived2 = CardTransactionDto.builder().id(6L).timestamp(now.minusYears(3).minusDays(1)).build();
+        CardTransactionDto archived3 = CardTransactionDto.builder().id(4L).timestamp(now.minusYears(3).minusDays(2)).build();
+
+        when(cardRepository.findByIdAndOwnerId(5L, 1L)).thenReturn(Optional.of(card));
+        when(transactionRepository.findHistoryBefore(5L, HistoryCursor.START.timestamp(), HistoryCursor.START.id(), 4))
+                .thenReturn(List.of(newest));
+        when(cardTransactionMapper.toDto(newest)).thenReturn(newestDto);
+        when(archive.findBefore(5L, now, 20L, 3)).thenReturn(List.of(archived1, archived2, archived3));
+
+        TransactionHistoryPageDto result = cardTransactionService.getTransactionHistory(1L, 5L, null, 3);
+
+        assertEquals(List.of(newestDto, archived1, archived2), result.getItems());
+        HistoryCursor next = HistoryCursor.decode(result.getNextCursor());
+        assertEquals(archived2.getTimestamp(), next.timestamp());
+        assertEquals(6L, next.id());
+    }
+
+    @Test
+    void getTransactionHistory_seekPastDatabaseReadsOnlyArchive() {
+        Card card = Card.builder().id(5L).build();
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2022, 3, 1, 12, 0), 6L);
+        CardTransactionDto archived = CardTransactionDto.builder().id(4L).timestamp(cursor.timestamp().minusDays(1)).build();
+
+        when(cardRepository.findByIdAndOwnerId(5L, 1L)).thenReturn(Optional.of(card));
+        when(transactionRepository.findHistoryBefore(5L, cursor.timestamp(), 6L, 3)).thenReturn(List.of());
+        when(archive.findBefore(5L, cursor.timestamp(), 6L, 3)).thenReturn(List.of(archived));
+
+        TransactionHistoryPageDto result = cardTransactionService.getTransactionHistory(1L, 5L, cursor.encode(), 2);
+
+        assertEquals(List.of(archived), result.getItems());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getTransactionHistory_seekFullDatabasePageSkipsArchive() {
+        Card card = Card.builder().id(5L).build();
+        LocalDateTime now = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+        when(cardRepository.findByIdAndOwnerId(5L, 1L)).thenReturn(Optional.of(card));
+        when(transactionRepository.findHistoryBefore(5L, HistoryCursor.START.timestamp(), HistoryCursor.START.id(), 2))
+                .thenReturn(List.of(view(2L, now), view(1L, now.minusMinutes(1))));
+        when(cardTransactionMapper.toDto(any(CardTransactionView.class))).thenReturn(new CardTransactionDto());
+
+        cardTransactionService.getTransactionHistory(1L, 5L, null, 1);
+
+        verifyNoInteractions(archive);
+    }
+
+    @Test
+    void getTransactionHistory_seekRejectsMalformedCursor() {
+        assertThrows(InvalidHistoryCursor.class,
+                () -> cardTransactionService.getTransactionHistory(1L, 5L, "not-a-cursor", 10));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    private static CardTransactionView view(Long id, LocalDateTime timestamp) {
+        return new CardTransactionView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public BigDecimal getAmount() {
+                return BigDecimal.ONE;
+            }
+
+            @Override
+            public LocalDateTime getTimestamp() {
+                return timestamp;
+            }
+
+            @Override
+            public Long getFromCardId() {
+                return 1L;
+            }
+
+            @Override
+            public Long getToCardId() {
+                return 5L;
+            }
+
+            @Override
+            public String getDescription() {
+                return null;
+            }
+        };
+    }
+}
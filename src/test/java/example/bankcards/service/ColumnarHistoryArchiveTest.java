@@ -0,0 +1,94 @@
+package example.bankcards.service;
+
+import example.bankcards.config.partition.PartitionProperties;
+import example.bankcards.dto.card.CardTransactionDto;
+import example.bankcards.service.impl.ColumnarHistoryArchive;
+import example.bankcards.until.ColumnarSegmentWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarHistoryArchiveTest {
+
+    private static final LocalDateTime JANUARY = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final LocalDateTime FEBRUARY = LocalDateTime.of(2023, 2, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    private ColumnarHistoryArchive archive;
+
+    @BeforeEach
+    void setUp() {
+        PartitionProperties properties = new PartitionProperties();
+        properties.getArchive().setDirectory(directory.toString());
+        archive = new ColumnarHistoryArchive(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        archive.close();
+    }
+
+    @Test
+    void emptyDirectory_archivesNothing() {
+        archive.refresh();
+
+        assertEquals(ColumnarHistoryArchive.NOTHING_ARCHIVED, archive.archivedUntil());
+        assertEquals(0, archive.count(1L));
+        assertTrue(archive.findPage(1L, 0, 10).isEmpty());
+    }
+
+    @Test
+    void findPage_skipsAcrossSegmentsNewestFirst() throws IOException {
+        // ids 0-9 in January, 10-14 in February
+        segment("card_transactions_2023_01", JANUARY, 0, 10);
+        segment("card_transactions_2023_02", FEBRUARY, 10, 5);
+        archive.refresh();
+
+        assertEquals(FEBRUARY.plusMinutes(4), archive.archivedUntil());
+        assertEquals(15, archive.count(1L));
+        assertEquals(List.of(11L, 10L, 9L, 8L), ids(archive.findPage(1L, 3, 4)));
+        assertEquals(List.of(2L, 1L, 0L), ids(archive.findPage(1L, 12, 10)));
+        assertTrue(archive.findPage(1L, 15, 10).isEmpty());
+        assertTrue(archive.findPage(2L, 0, 10).isEmpty());
+    }
+
+    @Test
+    void forEachOldestFirst_walksSegmentsInTimeOrder() throws IOException {
+        segment("card_transactions_2023_02", FEBRUARY, 10, 5);
+        segment("card_transactions_2023_01", JANUARY, 0, 10);
+        archive.refresh();
+
+        List<CardTransactionDto> rows = new ArrayList<>();
+        archive.forEachOldestFirst(1L, rows::add);
+
+        assertEquals(15, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(i, rows.get(i).getId());
+        }
+    }
+
+    private void segment(String partition, LocalDateTime start, long firstId, int rows) throws IOException {
+        try (ColumnarSegmentWriter writer = new ColumnarSegmentWriter(
+                directory.resolve(partition + ColumnarHistoryArchive.SEGMENT_SUFFIX))) {
+            for (int i = 0; i < rows; i++) {
+                writer.add(1, firstId + i, start.plusMinutes(i), BigDecimal.ONE, 3L, true, null);
+            }
+        }
+    }
+
+    private static List<Long> ids(List<CardTransactionDto> rows) {
+        return rows.stream().map(CardTransactionDto::getId).toList();
+    }
+}
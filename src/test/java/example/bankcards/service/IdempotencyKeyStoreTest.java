@@ -0,0 +1,121 @@
+package example.bankcards.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import example.bankcards.config.transfer.TransferProperties;
+import example.bankcards.dto.card.CardTransactionDto;
+import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.entity.IdempotencyKey;
+import example.bankcards.exception.card.IdempotencyKeyInUse;
+import example.bankcards.exception.card.IdempotencyKeyReused;
+import example.bankcards.repository.IdempotencyKeyRepository;
+import example.bankcards.service.impl.IdempotencyKeyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyKeyStoreTest {
+
+    @Mock
+    private IdempotencyKeyRepository repository;
+
+    private IdempotencyKeyStore store;
+
+    private final CardTransferRequestDto request = CardTransferRequestDto.builder()
+            .fromCardId(1L)
+            .toCardId(2L)
+            .amount(new BigDecimal("10.00"))
+            .description("rent")
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        store = new IdempotencyKeyStore(repository, objectMapper, new TransferProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void requestHash_ignoresAmountScale() {
+        CardTransferRequestDto sameAmount = CardTransferRequestDto.builder()
+                .fromCardId(1L).toCardId(2L).amount(new BigDecimal("10")).description("rent").build();
+        CardTransferRequestDto otherCard = CardTransferRequestDto.builder()
+                .fromCardId(1L).toCardId(3L).amount(new BigDecimal("10")).description("rent").build();
+
+        assertEquals(IdempotencyKeyStore.requestHash(request), IdempotencyKeyStore.requestHash(sameAmount));
+        assertNotEquals(IdempotencyKeyStore.requestHash(request), IdempotencyKeyStore.requestHash(otherCard));
+    }
+
+    @Test
+    void claim_freeKeyReturnsNull() {
+        when(repository.insertIfAbsent(eq(1L), eq("k"), eq("h"), any())).thenReturn(1);
+
+        assertNull(store.claim(1L, "k", "h"));
+        verify(repository, never()).findByUserIdAndIdempotencyKey(any(), any());
+    }
+
+    @Test
+    void claim_takenKeyReplaysStoredResponse() {
+        CardTransactionDto response = CardTransactionDto.builder()
+                .id(7L).amount(new BigDecimal("10.00")).timestamp(LocalDateTime.of(2024, 5, 1, 12, 0))
+                .fromCardId(1L).toCardId(2L).description("rent").build();
+        store.complete(1L, "k", response);
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(repository).saveResponse(eq(1L), eq("k"), body.capture());
+
+        when(repository.insertIfAbsent(eq(1L), eq("k"), eq("h"), any())).thenReturn(0);
+        when(repository.findByUserIdAndIdempotencyKey(1L, "k")).thenReturn(Optional.of(IdempotencyKey.builder()
+                .userId(1L).idempotencyKey("k").requestHash("h").responseBody(body.getValue()).build()));
+
+        assertEquals(response, store.claim(1L, "k", "h"));
+    }
+
+    @Test
+    void claim_takenKeyWithOtherRequestIsRejected() {
+        when(repository.insertIfAbsent(eq(1L), eq("k"), eq("other"), any())).thenReturn(0);
+        when(repository.findByUserIdAndIdempotencyKey(1L, "k")).thenReturn(Optional.of(IdempotencyKey.builder()
+                .userId(1L).idempotencyKey("k").requestHash("h").responseBody("{}").build()));
+
+        assertThrows(IdempotencyKeyReused.class, () -> store.claim(1L, "k", "other"));
+    }
+
+    @Test
+    void claim_keySweptAfterConflictIsClaimedAgain() {
+        when(repository.insertIfAbsent(eq(1L), eq("k"), eq("h"), any())).thenReturn(0, 1);
+        when(repository.findByUserIdAndIdempotencyKey(1L, "k")).thenReturn(Optional.empty());
+
+        assertNull(store.claim(1L, "k", "h"));
+        verify(repository, times(2)).insertIfAbsent(eq(1L), eq("k"), eq("h"), any());
+    }
+
+    @Test
+    void claim_keyKeptChangingIsAConflict() {
+        when(repository.insertIfAbsent(eq(1L), eq("k"), eq("h"), any())).thenReturn(0);
+        when(repository.findByUserIdAndIdempotencyKey(1L, "k")).thenReturn(Optional.empty());
+
+        assertThrows(IdempotencyKeyInUse.class, () -> store.claim(1L, "k", "h"));
+    }
+
+    @Test
+    void cached_answersFromMemoryAndChecksRequest() {
+        CardTransactionDto response = CardTransactionDto.builder().id(7L).build();
+        store.remember(1L, "k", "h", response);
+
+        assertSame(response, store.cached(1L, "k", "h"));
+        assertNull(store.cached(2L, "k", "h"));
+        assertThrows(IdempotencyKeyReused.class, () -> store.cached(1L, "k", "other"));
+        verifyNoInteractions(repository);
+    }
+}
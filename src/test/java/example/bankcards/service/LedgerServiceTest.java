@@ -0,0 +1,70 @@
+package example.bankcards.service;
+
+import example.bankcards.dto.card.CardBalanceDto;
+import example.bankcards.entity.BalanceCheckpoint;
+import example.bankcards.repository.BalanceCheckpointRepository;
+import example.bankcards.repository.LedgerEntryRepository;
+import example.bankcards.service.impl.LedgerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceTest {
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private BalanceCheckpointRepository balanceCheckpointRepository;
+
+    private LedgerService ledgerService;
+
+    private final LocalDateTime at = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = new LedgerService(ledgerEntryRepository, balanceCheckpointRepository);
+    }
+
+    @Test
+    void balanceAt_addsEntriesAfterLatestCheckpoint() {
+        LocalDateTime asOf = at.minusHours(1);
+        when(balanceCheckpointRepository.findFirstByCardIdAndAsOfLessThanEqualOrderByAsOfDesc(5L, at))
+                .thenReturn(Optional.of(BalanceCheckpoint.builder()
+                        .cardId(5L)
+                        .asOf(asOf)
+                        .balance(new BigDecimal("100.00"))
+                        .build()));
+        when(ledgerEntryRepository.sumBetween(5L, asOf, at)).thenReturn(new BigDecimal("-30.00"));
+
+        CardBalanceDto result = ledgerService.balanceAt(5L, at);
+
+        assertEquals(5L, result.getCardId());
+        assertEquals(at, result.getAt());
+        assertEquals(new BigDecimal("70.00"), result.getBalance());
+        verify(ledgerEntryRepository, never()).sumUpTo(any(), any());
+    }
+
+    @Test
+    void balanceAt_sumsWholeHistoryWithoutCheckpoint() {
+        when(balanceCheckpointRepository.findFirstByCardIdAndAsOfLessThanEqualOrderByAsOfDesc(5L, at))
+                .thenReturn(Optional.empty());
+        when(ledgerEntryRepository.sumUpTo(5L, at)).thenReturn(new BigDecimal("42.00"));
+
+        CardBalanceDto result = ledgerService.balanceAt(5L, at);
+
+        assertEquals(new BigDecimal("42.00"), result.getBalance());
+        verify(ledgerEntryRepository, never()).sumBetween(any(), any(), any());
+    }
+}
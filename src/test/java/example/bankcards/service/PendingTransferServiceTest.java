@@ -0,0 +1,98 @@
+package example.bankcards.service;
+
+import example.bankcards.config.mapper.PendingTransferMapper;
+import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.dto.card.PendingTransferDto;
+import example.bankcards.entity.Card;
+import example.bankcards.entity.CardStatus;
+import example.bankcards.entity.PendingTransfer;
+import example.bankcards.entity.PendingTransferStatus;
+import example.bankcards.exception.card.CardIsNotActive;
+import example.bankcards.exception.card.InvalidTransferAmount;
+import example.bankcards.exception.card.PendingTransferNotFound;
+import example.bankcards.repository.CardRepository;
+import example.bankcards.repository.PendingTransferRepository;
+import example.bankcards.service.impl.PendingTransferService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingTransferServiceTest {
+
+    @Mock
+    private PendingTransferRepository pendingTransferRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    private PendingTransferService service;
+
+    private final CardTransferRequestDto request = CardTransferRequestDto.builder()
+            .fromCardId(1L)
+            .toCardId(2L)
+            .amount(new BigDecimal("25.00"))
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        service = new PendingTransferService(pendingTransferRepository, cardRepository, new PendingTransferMapper());
+    }
+
+    @Test
+    void accept_storesPendingTransfer() {
+        when(cardRepository.findByIdAndOwnerId(1L, 7L)).thenReturn(Optional.of(active(1L)));
+        when(cardRepository.findByIdAndOwnerId(2L, 7L)).thenReturn(Optional.of(active(2L)));
+        when(pendingTransferRepository.save(any())).thenAnswer(invocation -> {
+            PendingTransfer transfer = invocation.getArgument(0);
+            transfer.setId(100L);
+            return transfer;
+        });
+
+        PendingTransferDto result = service.accept(7L, request);
+
+        assertEquals(100L, result.getId());
+        assertEquals(PendingTransferStatus.PENDING, result.getStatus());
+        assertNotNull(result.getCreatedAt());
+        verify(cardRepository, never()).debit(any(), any(), any());
+    }
+
+    @Test
+    void accept_rejectsInactiveCardUpFront() {
+        Card blocked = active(2L);
+        blocked.setStatus(CardStatus.BLOCKED);
+        when(cardRepository.findByIdAndOwnerId(1L, 7L)).thenReturn(Optional.of(active(1L)));
+        when(cardRepository.findByIdAndOwnerId(2L, 7L)).thenReturn(Optional.of(blocked));
+
+        assertThrows(CardIsNotActive.class, () -> service.accept(7L, request));
+        verify(pendingTransferRepository, never()).save(any());
+    }
+
+    @Test
+    void accept_rejectsNonPositiveAmount() {
+        request.setAmount(BigDecimal.ZERO);
+
+        assertThrows(InvalidTransferAmount.class, () -> service.accept(7L, request));
+        verifyNoInteractions(cardRepository, pendingTransferRepository);
+    }
+
+    @Test
+    void getStatus_unknownTransfer() {
+        when(pendingTransferRepository.findByIdAndUserId(5L, 7L)).thenReturn(Optional.empty());
+
+        assertThrows(PendingTransferNotFound.class, () -> service.getStatus(7L, 5L));
+    }
+
+    private static Card active(Long id) {
+        return Card.builder().id(id).status(CardStatus.ACTIVE).balance(new BigDecimal("100.00")).build();
+    }
+}
@@ -0,0 +1,93 @@
+package example.bankcards.service;
+
+import example.bankcards.entity.RefreshToken;
+import example.bankcards.entity.User;
+import example.bankcards.exception.auth.InvalidRefreshToken;
+import example.bankcards.repository.RefreshTokenRepository;
+import example.bankcards.service.impl.RefreshTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private RefreshTokenService refreshTokenService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, 60_000);
+        user = User.builder().id(1L).username("john").build();
+    }
+
+    @Test
+    void issue_storesOnlyTheHash() {
+        String token = refreshTokenService.issue(user);
+
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertNotEquals(token, saved.getValue().getTokenHash());
+        assertEquals(64, saved.getValue().getTokenHash().length());
+        assertTrue(saved.getValue().getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void consume_deletesTokenAndReturnsUser() {
+        RefreshToken stored = stored(LocalDateTime.now().plusMinutes(1));
+        when(refreshTokenRepository.findByTokenHashWithUser(anyString())).thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.deleteByIdIfPresent(10L)).thenReturn(1);
+
+        assertSame(user, refreshTokenService.consume("token"));
+    }
+
+    @Test
+    void consume_alreadyUsedConcurrently_fails() {
+        when(refreshTokenRepository.findByTokenHashWithUser(anyString()))
+                .thenReturn(Optional.of(stored(LocalDateTime.now().plusMinutes(1))));
+        when(refreshTokenRepository.deleteByIdIfPresent(10L)).thenReturn(0);
+
+        assertThrows(InvalidRefreshToken.class, () -> refreshTokenService.consume("token"));
+    }
+
+    @Test
+    void consume_expired_fails() {
+        when(refreshTokenRepository.findByTokenHashWithUser(anyString()))
+                .thenReturn(Optional.of(stored(LocalDateTime.now().minusMinutes(1))));
+        when(refreshTokenRepository.deleteByIdIfPresent(10L)).thenReturn(1);
+
+        assertThrows(InvalidRefreshToken.class, () -> refreshTokenService.consume("token"));
+    }
+
+    @Test
+    void consume_unknown_fails() {
+        when(refreshTokenRepository.findByTokenHashWithUser(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(InvalidRefreshToken.class, () -> refreshTokenService.consume("token"));
+        verify(refreshTokenRepository, never()).deleteByIdIfPresent(any());
+    }
+
+    private RefreshToken stored(LocalDateTime expiresAt) {
+        return RefreshToken.builder()
+                .id(10L)
+                .tokenHash("hash")
+                .user(user)
+                .createdAt(LocalDateTime.now())
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,117 @@
+package example.bankcards.service;
+
+import example.bankcards.config.mapper.CardTransactionMapper;
+import example.bankcards.config.transfer.TransferProperties;
+import example.bankcards.dto.card.CardTransactionDto;
+import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.entity.Card;
+import example.bankcards.entity.CardTransaction;
+import example.bankcards.exception.card.InsufficientFunds;
+import example.bankcards.exception.card.TransferQueueFull;
+import example.bankcards.service.impl.BatchTransferApplier;
+import example.bankcards.service.impl.ShardedTransferExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ShardedTransferExecutorTest {
+
+    private final BatchTransferApplier applier = mock(BatchTransferApplier.class);
+    private final CardTransactionMapper mapper = new CardTransactionMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransferProperties properties = new TransferProperties();
+    private ShardedTransferExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        properties.setWriteMode(TransferProperties.WriteMode.SHARDED);
+        properties.getSharding().setShards(1);
+        properties.getSharding().setQueueCapacity(2);
+        executor = new ShardedTransferExecutor(applier, mapper, properties,
+                mock(PlatformTransactionManager.class), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    void submit_failsOnlyTheRejectedTransfer() throws Exception {
+        when(applier.apply(eq(1L), anyList(), eq(false))).thenAnswer(invocation -> {
+            List<CardTransferRequestDto> legs = invocation.getArgument(1);
+            List<BatchTransferApplier.Outcome> outcomes = new ArrayList<>();
+            for (CardTransferRequestDto leg : legs) {
+                outcomes.add(leg.getAmount().compareTo(new BigDecimal("100")) > 0
+                        ? new BatchTransferApplier.Outcome(null, new InsufficientFunds(leg.getFromCardId()))
+                        : new BatchTransferApplier.Outcome(transaction(leg), null));
+            }
+            return outcomes;
+        });
+        executor.start();
+
+        CompletableFuture<CardTransactionDto> ok = executor.submit(1L, leg("10"));
+        CompletableFuture<CardTransactionDto> rejected = executor.submit(1L, leg("500"));
+
+        assertEquals(new BigDecimal("10"), ok.get(5, TimeUnit.SECONDS).getAmount());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(InsufficientFunds.class, e.getCause());
+        assertTrue(meterRegistry.get("cards.transfer.shard.batch").tag("shard", "0").summary().count() >= 1);
+    }
+
+    @Test
+    void submit_refusesWhenShardQueueIsFull() throws Exception {
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(applier.apply(eq(1L), anyList(), eq(false))).thenAnswer(invocation -> {
+            busy.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            List<CardTransferRequestDto> legs = invocation.getArgument(1);
+            return legs.stream().map(leg -> new BatchTransferApplier.Outcome(transaction(leg), null)).toList();
+        });
+        executor.start();
+
+        CompletableFuture<CardTransactionDto> first = executor.submit(1L, leg("1"));
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+        executor.submit(1L, leg("2"));
+        executor.submit(1L, leg("3"));
+
+        assertThrows(TransferQueueFull.class, () -> executor.submit(1L, leg("4")));
+        release.countDown();
+        assertNotNull(first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_refusedWhenModeIsDirect() {
+        properties.setWriteMode(TransferProperties.WriteMode.DIRECT);
+        executor.start();
+
+        assertThrows(IllegalStateException.class, () -> executor.submit(1L, leg("1")));
+    }
+
+    private static CardTransferRequestDto leg(String amount) {
+        return CardTransferRequestDto.builder().fromCardId(1L).toCardId(2L).amount(new BigDecimal(amount)).build();
+    }
+
+    private static CardTransaction transaction(CardTransferRequestDto leg) {
+        return CardTransaction.builder()
+                .fromCard(Card.builder().id(leg.getFromCardId()).build())
+                .toCard(Card.builder().id(leg.getToCardId()).build())
+                .amount(leg.getAmount())
+                .build();
+    }
+}
@@ -0,0 +1,141 @@
+package example.bankcards.service;
+
+import example.bankcards.config.export.ExportProperties;
+import example.bankcards.config.partition.PartitionProperties;
+import example.bankcards.dto.card.TransactionExportFormat;
+import example.bankcards.service.impl.ColumnarHistoryArchive;
+import example.bankcards.service.impl.TransactionExportWriter;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exports {@value #ROWS} transactions of one card with a heap far smaller than the rows would
+ * take as objects. Runs in its own surefire execution with {@code -Xmx64m}
+ * ({@code mvn test} runs it after the regular tests); if the writer buffered the history the
+ * JVM would run out of memory.
+ */
+@Tag("low-heap")
+class TransactionExportLowHeapTest {
+
+    private static final int ROWS = 2_000_000;
+    private static final long CARD_ID = 1L;
+
+    private static EmbeddedPostgres postgres;
+    private static TransactionExportWriter writer;
+
+    @BeforeAll
+    static void seed() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        DataSource dataSource = postgres.getPostgresDatabase();
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE card_transactions (
+                    id BIGINT PRIMARY KEY,
+                    amount DECIMAL(19,2),
+                    timestamp TIMESTAMP NOT NULL,
+                    from_card_id BIGINT,
+                    to_card_id BIGINT,
+                    description VARCHAR(255))""");
+        // alternate direction so both branches of the query contribute rows
+        jdbc.update("""
+                INSERT INTO card_transactions (id, amount, timestamp, from_card_id, to_card_id, description)
+                SELECT g, 1.00, TIMESTAMP '2020-01-01' + g * INTERVAL '1 second',
+                       CASE WHEN g % 2 = 0 THEN 1 ELSE 2 END,
+                       CASE WHEN g % 2 = 0 THEN 2 ELSE 1 END,
+                       'transfer, #' || g
+                FROM generate_series(1, ?) g""", ROWS);
+        jdbc.execute("CREATE INDEX ON card_transactions (from_card_id, timestamp, id)");
+        jdbc.execute("CREATE INDEX ON card_transactions (to_card_id, timestamp, id)");
+        jdbc.execute("ANALYZE card_transactions");
+
+        ExportProperties properties = new ExportProperties();
+        properties.setFetchSize(500);
+        // never refreshed, so it holds no segments and every row comes from the table
+        writer = new TransactionExportWriter(dataSource, new DataSourceTransactionManager(dataSource), properties,
+                new ColumnarHistoryArchive(new PartitionProperties()));
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void exportsWholeHistoryAsNdjsonInBoundedHeap() throws IOException {
+        LineCounter out = new LineCounter();
+
+        long rows = writer.writeCardHistory(CARD_ID, TransactionExportFormat.NDJSON, false, out);
+
+        assertEquals(ROWS, rows);
+        assertEquals(ROWS, out.lines);
+        assertTrue(out.firstLine().startsWith("{\"id\":1,\"timestamp\":\"2020-01-01T00:00:01\""), out.firstLine());
+    }
+
+    @Test
+    void exportsWholeHistoryAsGzippedCsvInBoundedHeap() throws IOException {
+        Path file = Files.createTempFile("export", ".csv.gz");
+        try {
+            long rows;
+            try (OutputStream out = Files.newOutputStream(file)) {
+                rows = writer.writeCardHistory(CARD_ID, TransactionExportFormat.CSV, true, out);
+            }
+            assertEquals(ROWS, rows);
+
+            LineCounter lines = new LineCounter();
+            try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                in.transferTo(lines);
+            }
+            assertEquals(ROWS + 1, lines.lines); // header
+            assertEquals("id,timestamp,from_card_id,to_card_id,amount,description", lines.firstLine());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Counts newlines and keeps only the first line.
+     */
+    private static final class LineCounter extends OutputStream {
+
+        private final ByteArrayOutputStream first = new ByteArrayOutputStream();
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            } else if (lines == 0) {
+                first.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        String firstLine() {
+            return first.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
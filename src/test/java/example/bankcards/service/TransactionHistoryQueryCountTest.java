@@ -0,0 +1,152 @@
+package example.bankcards.service;
+
+import example.bankcards.BankcardsApplication;
+import example.bankcards.config.mapper.CardTransactionMapper;
+import example.bankcards.dto.card.CardTransactionDto;
+import example.bankcards.repository.CardTransactionRepository;
+import example.bankcards.service.impl.ColumnarHistoryArchive;
+import example.bankcards.until.HistoryCursor;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statements per history page, counted on the calling thread only so scheduled jobs running
+ * in the same application do not show up. Each page is read in a fresh transaction, so nothing
+ * is served from an already filled persistence context.
+ */
+class TransactionHistoryQueryCountTest {
+
+    private static final int TRANSACTIONS = 30;
+
+    private static EmbeddedPostgres postgres;
+    private static ConfigurableApplicationContext context;
+    private static CardTransactionRepository repository;
+    private static CardTransactionMapper mapper;
+    private static TransactionTemplate tx;
+    private static long cardId;
+
+    @BeforeAll
+    static void start() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        context = new SpringApplicationBuilder(BankcardsApplication.class)
+                .web(WebApplicationType.NONE)
+                // arguments, not builder properties: those are defaults that application.yml overrides
+                .run("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.session_factory.statement_inspector=" + CountingInspector.class.getName(),
+                        "--logging.level.root=WARN",
+                        "--security.encryption.reencryption.enabled=false",
+                        "--cards.transfer.settlement.enabled=false");
+
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        Long userId = jdbc.queryForObject(
+                "insert into users (username, password) values ('history', 'x') returning id", Long.class);
+        cardId = insertCard(jdbc, userId, "a");
+        long otherId = insertCard(jdbc, userId, "b");
+        jdbc.update("""
+                insert into card_transactions (amount, timestamp, from_card_id, to_card_id, description)
+                select 1.00, timestamp '2025-01-01' + g * interval '1 minute',
+                       case when g % 2 = 0 then ? else ? end,
+                       case when g % 2 = 0 then ? else ? end,
+                       'history ' || g
+                from generate_series(1, ?) g""", cardId, otherId, otherId, cardId, TRANSACTIONS);
+
+        repository = context.getBean(CardTransactionRepository.class);
+        mapper = context.getBean(CardTransactionMapper.class);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void keysetPageIsOneStatement() {
+        List<CardTransactionDto> page = counted(1, () -> repository
+                .findHistoryBefore(cardId, HistoryCursor.START.timestamp(), Long.MAX_VALUE, 20)
+                .stream()
+                .map(mapper::toDto)
+                .toList());
+
+        assertEquals(20, page.size());
+        assertTrue(page.stream().allMatch(dto -> dto.getFromCardId() != null && dto.getToCardId() != null));
+    }
+
+    @Test
+    void partialOffsetPageIsOneStatement() {
+        Page<CardTransactionDto> page = counted(1, () -> repository.findAllByCardId(cardId, ColumnarHistoryArchive.NOTHING_ARCHIVED, PageRequest.of(0, 50)));
+
+        assertEquals(TRANSACTIONS, page.getNumberOfElements());
+        assertEquals(TRANSACTIONS, page.getTotalElements());
+    }
+
+    @Test
+    void fullOffsetPageAddsOnlyTheCount() {
+        Page<CardTransactionDto> page = counted(2, () -> repository.findAllByCardId(cardId, ColumnarHistoryArchive.NOTHING_ARCHIVED, PageRequest.of(0, 10)));
+
+        assertEquals(10, page.getNumberOfElements());
+        assertEquals(TRANSACTIONS, page.getTotalElements());
+    }
+
+    private static <T> T counted(int expectedStatements, Supplier<T> read) {
+        CountingInspector.reset();
+        T result = tx.execute(status -> read.get());
+        assertEquals(expectedStatements, CountingInspector.count(), "statements");
+        return result;
+    }
+
+    private static long insertCard(JdbcTemplate jdbc, Long userId, String suffix) {
+        // history never decrypts the number, so a placeholder is enough
+        return jdbc.queryForObject("""
+                        insert into cards (card_number, card_number_hash, card_number_last4,
+                                           expiration_date, status, balance, owner_id)
+                        values (?, ?, '0000', current_date + 365, 'ACTIVE', 1000, ?)
+                        returning id""",
+                Long.class, "history-" + suffix, "history-hash-" + suffix, userId);
+    }
+
+    /**
+     * Counts the statements Hibernate prepares on the current thread.
+     */
+    public static class CountingInspector implements StatementInspector {
+
+        private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+        static void reset() {
+            COUNT.get()[0] = 0;
+        }
+
+        static int count() {
+            return COUNT.get()[0];
+        }
+
+        @Override
+        public String inspect(String sql) {
+            COUNT.get()[0]++;
+            return sql;
+        }
+    }
+}
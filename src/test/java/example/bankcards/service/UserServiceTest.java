@@ -9,6 +9,9 @@ import example.bankcards.exception.role.RoleNotFound;
 import example.bankcards.exception.user.UserNotFound;
 import example.bankcards.repository.RoleRepository;
 import example.bankcards.repository.UserRepository;
+import example.bankcards.security.TokenVersionRegistry;
+import example.bankcards.security.UserDetailsCache;
+import example.bankcards.service.api.RefreshTokenServiceInterface;
 import example.bankcards.service.impl.UserService;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -36,6 +39,15 @@ class UserServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private TokenVersionRegistry tokenVersions;
+
+    @Mock
+    private UserDetailsCache userDetailsCache;
+
+    @Mock
+    private RefreshTokenServiceInterface refreshTokenService;
+
     @InjectMocks
     private UserService userService;
 
@@ -104,6 +116,24 @@ class UserServiceTest {
         assertNotNull(result);
         assertEquals("testuser", result.getUsername());
         verify(userRepository).save(any(User.class));
+        verify(tokenVersions).bump(user);
+        verify(userDetailsCache).invalidate("testuser");
+    }
+
+    @Test
+    void updateUser_unchanged_keepsTokenVersion() {
+        UserRequestDto requestDto = new UserRequestDto();
+        requestDto.setUsername("testuser");
+        requestDto.setRoleIds(Set.of(1L));
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(roleRepository.findById(1L)).thenReturn(Optional.of(role));
+        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userMapper.toDto(user)).thenReturn(userResponseDto);
+
+        userService.updateUser(1L, requestDto);
+
+        verify(tokenVersions, never()).bump(any());
     }
 
     @Test
@@ -129,6 +159,18 @@ class UserServiceTest {
         assertThrows(RoleNotFound.class, () -> userService.updateUser(1L, requestDto));
     }
 
+    @Test
+    void revokeTokens_bumpsVersionAndDropsRefreshTokens() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        userService.revokeTokens(1L);
+
+        verify(tokenVersions).bump(user);
+        verify(userRepository).save(user);
+        verify(refreshTokenService).revokeAll(1L);
+        verify(userDetailsCache).invalidate("testuser");
+    }
+
     @Test
     void deleteUser_success() {
         doNothing().when(userRepository).deleteById(1L);
@@ -136,6 +178,8 @@ class UserServiceTest {
         userService.deleteUser(1L);
 
         verify(userRepository, times(1)).deleteById(1L);
+        verify(tokenVersions).evict(1L);
+        verify(userDetailsCache).invalidateUser(1L);
     }
 }
 
@@ -0,0 +1,47 @@
+package example.bankcards.until;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_neverMissesAnInsertedValue() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.001);
+        List<String> inserted = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String id = UUID.randomUUID().toString();
+            inserted.add(id);
+            filter.put(id);
+        }
+
+        assertTrue(inserted.stream().allMatch(filter::mightContain));
+    }
+
+    @Test
+    void mightContain_falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        // target is 100 in 100 000, allow generous slack for randomness
+        assertTrue(falsePositives < 500, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void mightContain_emptyFilterContainsNothing() {
+        assertFalse(BloomFilter.create(100, 0.01).mightContain("anything"));
+    }
+}
@@ -0,0 +1,86 @@
+package example.bankcards.until;
+
+import example.bankcards.config.encryption.EncryptionProperties;
+import example.bankcards.repository.CardRepository;
+import example.bankcards.repository.projection.CardCiphertextView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CardReencryptionJobTest {
+
+    private static final String LEGACY_KEY = "my32bytekey123456789012345678901";
+    private static final String K1 = "eshFAMzSzG3Ug/eR8MZEP9sI3QjWpw9FQIdIL49tNvQ=";
+
+    private final CardRepository cardRepository = mock(CardRepository.class);
+    private final EncryptionUtil legacy = new EncryptionUtil(LEGACY_KEY);
+    private final EncryptionUtil encryptionUtil =
+            new EncryptionUtil(new EncryptionKeyRing(LEGACY_KEY, Map.of("k1", K1), "k1"));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CardReencryptionJob job = new CardReencryptionJob(cardRepository, encryptionUtil,
+            new EncryptionProperties(), mock(PlatformTransactionManager.class), meterRegistry);
+
+    @Test
+    void reencrypt_retriesRowsSkippedByAPartialChunkThenStopsPolling() {
+        String first = legacy.encrypt("4276123456781234");
+        String second = legacy.encrypt("4276000011112222");
+        // the second card changed between the read and the update, so the first run skips it
+        String secondChanged = legacy.encrypt("4276000033334444");
+        when(cardRepository.countCiphertextsNotUnderKey("k1:")).thenReturn(2L, 1L, 1L, 0L);
+        when(cardRepository.findCiphertextsNotUnderKey(0L, "k1:", 200))
+                .thenReturn(List.of(view(1L, first), view(2L, second)), List.of(view(2L, secondChanged)));
+        when(cardRepository.findCiphertextsNotUnderKey(2L, "k1:", 200)).thenReturn(List.of());
+        when(cardRepository.replaceCiphertext(eq(1L), eq(first), startsWith("k1:"))).thenReturn(1);
+        when(cardRepository.replaceCiphertext(eq(2L), eq(second), anyString())).thenReturn(0);
+        when(cardRepository.replaceCiphertext(eq(2L), eq(secondChanged), startsWith("k1:"))).thenReturn(1);
+
+        job.reencryptStaleCardNumbers();
+
+        assertEquals(1.0, meterRegistry.get("cards.reencryption.rows").tag("outcome", "rewritten").counter().count());
+        assertEquals(1.0, meterRegistry.get("cards.reencryption.rows").tag("outcome", "skipped").counter().count());
+        assertEquals(1.0, meterRegistry.get("cards.reencryption.lag").gauge().value());
+
+        job.reencryptStaleCardNumbers();
+
+        verify(cardRepository).replaceCiphertext(eq(2L), eq(secondChanged), startsWith("k1:"));
+        assertEquals(2.0, meterRegistry.get("cards.reencryption.rows").tag("outcome", "rewritten").counter().count());
+        assertEquals(0.0, meterRegistry.get("cards.reencryption.lag").gauge().value());
+
+        // nothing is left under an old key, so the table is not counted again
+        clearInvocations(cardRepository);
+        job.reencryptStaleCardNumbers();
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void reencrypt_nothingStaleIsCountedOnce() {
+        when(cardRepository.countCiphertextsNotUnderKey("k1:")).thenReturn(0L);
+
+        job.reencryptStaleCardNumbers();
+        job.reencryptStaleCardNumbers();
+
+        verify(cardRepository, times(1)).countCiphertextsNotUnderKey("k1:");
+        verify(cardRepository, never()).findCiphertextsNotUnderKey(anyLong(), anyString(), anyInt());
+    }
+
+    private static CardCiphertextView view(Long id, String cardNumber) {
+        return new CardCiphertextView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getCardNumber() {
+                return cardNumber;
+            }
+        };
+    }
+}
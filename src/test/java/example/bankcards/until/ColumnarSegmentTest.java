@@ -0,0 +1,176 @@
+package example.bankcards.until;
+
+import example.bankcards.dto.card.CardTransactionDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarSegmentTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2023, 1, 1, 9, 30, 0, 123_456_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTrip_restoresRowsPerCard() throws IOException {
+        Path file = directory.resolve("p.seg");
+        try (ColumnarSegmentWriter writer = new ColumnarSegmentWriter(file)) {
+            writer.add(1, 10, T0, new BigDecimal("12.50"), 2L, true, "обед");
+            writer.add(1, 11, T0.plusSeconds(90), new BigDecimal("0.01"), null, false, null);
+            writer.add(2, 10, T0, new BigDecimal("12.50"), 1L, false, "обед");
+            writer.add(7, 12, T0.plusDays(20), new BigDecimal("-3.00"), 2L, true, "a,\"b\"");
+        }
+
+        try (ColumnarSegmentReader reader = ColumnarSegmentReader.open(file)) {
+            assertEquals(T0, reader.minTimestamp());
+            assertEquals(T0.plusDays(20), reader.maxTimestamp());
+            assertNull(reader.block(3));
+
+            List<CardTransactionDto> first = all(reader, 1);
+            assertEquals(2, first.size());
+            CardTransactionDto received = first.get(0);
+            assertEquals(11L, received.getId());
+            assertEquals(T0.plusSeconds(90), received.getTimestamp());
+            assertEquals(new BigDecimal("0.01"), received.getAmount());
+            assertNull(received.getFromCardId());
+            assertEquals(1L, received.getToCardId());
+            assertNull(received.getDescription());
+
+            CardTransactionDto sent = first.get(1);
+            assertEquals(T0, sent.getTimestamp());
+            assertEquals(1L, sent.getFromCardId());
+            assertEquals(2L, sent.getToCardId());
+            assertEquals("обед", sent.getDescription());
+
+            CardTransactionDto incoming = all(reader, 2).get(0);
+            assertEquals(1L, incoming.getFromCardId());
+            assertEquals(2L, incoming.getToCardId());
+            assertEquals(new BigDecimal("12.50"), incoming.getAmount());
+
+            assertEquals("a,\"b\"", all(reader, 7).get(0).getDescription());
+        }
+    }
+
+    @Test
+    void roundTrip_keepsEmptyAndMissingDescriptionsApart() throws IOException {
+        Path file = directory.resolve("p.seg");
+        try (ColumnarSegmentWriter writer = new ColumnarSegmentWriter(file)) {
+            writer.add(1, 10, T0, BigDecimal.ONE, 2L, true, "");
+            writer.add(1, 11, T0.plusSeconds(1), BigDecimal.ONE, 2L, false, null);
+            writer.add(1, 12, T0.plusSeconds(2), BigDecimal.ONE, 2L, true, "чай");
+            writer.add(1, 13, T0.plusSeconds(3), BigDecimal.ONE, null, false, "");
+        }
+
+        try (ColumnarSegmentReader reader = ColumnarSegmentReader.open(file)) {
+            List<CardTransactionDto> rows = all(reader, 1);
+            assertEquals("", rows.get(0).getDescription());
+            assertNull(rows.get(0).getFromCardId());
+            assertEquals("чай", rows.get(1).getDescription());
+            assertNull(rows.get(2).getDescription());
+            assertEquals(2L, rows.get(2).getFromCardId());
+            assertEquals("", rows.get(3).getDescription());
+            assertEquals(1L, rows.get(3).getFromCardId());
+        }
+    }
+
+    @Test
+    void collectBefore_continuesStrictlyAfterCursor() throws IOException {
+        Path file = directory.resolve("p.seg");
+        try (ColumnarSegmentWriter writer = new ColumnarSegmentWriter(file)) {
+            for (int i = 0; i < 1_000; i++) {
+                // pairs of rows share a timestamp so the id breaks the tie
+                writer.add(5, i, T0.plusMinutes(i / 2), BigDecimal.ONE, 6L, true, null);
+            }
+        }
+
+        try (ColumnarSegmentReader reader = ColumnarSegmentReader.open(file)) {
+            ColumnarSegmentReader.Block block = reader.block(5);
+            List<CardTransactionDto> page = new ArrayList<>();
+
+            assertEquals(3, block.collectBefore(T0.plusMinutes(100), 201, 3, page));
+            assertEquals(List.of(200L, 199L, 198L), page.stream().map(CardTransactionDto::getId).toList());
+
+            page.clear();
+            assertEquals(2, block.collectBefore(T0.plusMinutes(1), 2, 10, page));
+            assertEquals(List.of(1L, 0L), page.stream().map(CardTransactionDto::getId).toList());
+
+            page.clear();
+            assertEquals(0, block.collectBefore(T0, 0, 10, page));
+        }
+    }
+
+    @Test
+    void collectFrom_skipsNewestRowsAcrossGroups() throws IOException {
+        Path file = directory.resolve("p.seg");
+        try (ColumnarSegmentWriter writer = new ColumnarSegmentWriter(file)) {
+            for (int i = 0; i < 200; i++) {
+                writer.add(5, i, T0.plusSeconds(i * 7L), BigDecimal.ONE, 6L, true, null);
+            }
+        }
+
+        try (ColumnarSegmentReader reader = ColumnarSegmentReader.open(file)) {
+            ColumnarSegmentReader.Block block = reader.block(5);
+            List<CardTransactionDto> page = new ArrayList<>();
+
+            // 199 - 70 = 129 is the second row of the third skip group, the page runs into the second
+            assertEquals(5, block.collectFrom(70, 5, page));
+            assertEquals(List.of(129L, 128L, 127L, 126L, 125L), page.stream().map(CardTransactionDto::getId).toList());
+            assertEquals(T0.plusSeconds(129 * 7L), page.get(0).getTimestamp());
+
+            page.clear();
+            assertEquals(2, block.collectFrom(198, 10, page));
+            assertEquals(0, block.collectFrom(200, 10, new ArrayList<>()));
+
+            List<Long> ids = new ArrayList<>();
+            block.forEach(dto -> ids.add(dto.getId()));
+            assertEquals(200, ids.size());
+            assertEquals(0L, ids.get(0));
+            assertEquals(199L, ids.get(199));
+        }
+    }
+
+    @Test
+    void writer_rejectsUnorderedRows() throws IOException {
+        try (ColumnarSegmentWriter writer = new ColumnarSegmentWriter(directory.resolve("p.seg"))) {
+            writer.add(2, 1, T0, BigDecimal.ONE, null, true, null);
+            assertThrows(IllegalArgumentException.class,
+                    () -> writer.add(2, 2, T0.minusSeconds(1), BigDecimal.ONE, null, true, null));
+            assertThrows(IllegalArgumentException.class,
+                    () -> writer.add(1, 3, T0, BigDecimal.ONE, null, true, null));
+        }
+    }
+
+    @Test
+    void emptySegment_hasNoCards() throws IOException {
+        Path file = directory.resolve("empty.seg");
+        new ColumnarSegmentWriter(file).close();
+
+        try (ColumnarSegmentReader reader = ColumnarSegmentReader.open(file)) {
+            assertTrue(reader.isEmpty());
+            assertNull(reader.block(1));
+        }
+    }
+
+    @Test
+    void open_rejectsForeignFile() throws IOException {
+        Path file = Files.writeString(directory.resolve("other.seg"), "not a segment, just some text here");
+
+        assertThrows(IllegalArgumentException.class, () -> ColumnarSegmentReader.open(file));
+    }
+
+    private static List<CardTransactionDto> all(ColumnarSegmentReader reader, long cardId) {
+        List<CardTransactionDto> rows = new ArrayList<>();
+        reader.block(cardId).collectBefore(HistoryCursor.START.timestamp(), HistoryCursor.START.id(), Integer.MAX_VALUE, rows);
+        return rows;
+    }
+}
@@ -0,0 +1,102 @@
+package example.bankcards.until;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncryptionUtilTest {
+
+    private static final String KEY = "my32bytekey123456789012345678901";
+    private static final String K1 = "eshFAMzSzG3Ug/eR8MZEP9sI3QjWpw9FQIdIL49tNvQ=";
+    private static final String K2 = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    private final EncryptionUtil encryptionUtil = new EncryptionUtil(KEY);
+
+    @Test
+    void encryptDecrypt_roundTrip() {
+        String encrypted = encryptionUtil.encrypt("1234567812345678");
+
+        assertNotEquals("1234567812345678", encrypted);
+        assertEquals("1234567812345678", encryptionUtil.decrypt(encrypted));
+    }
+
+    @Test
+    void decrypt_readsValuesWrittenByPlainJce() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "AES"));
+        String stored = Base64.getEncoder().encodeToString(
+                cipher.doFinal("4000123412341234".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("4000123412341234", encryptionUtil.decrypt(stored));
+    }
+
+    @Test
+    void decryptAll_keepsOrder() {
+        List<String> encrypted = List.of(
+                encryptionUtil.encrypt("1111222233334444"),
+                encryptionUtil.encrypt("5555666677778888"),
+                encryptionUtil.encrypt("9999000011112222"));
+
+        assertEquals(List.of("1111222233334444", "5555666677778888", "9999000011112222"),
+                encryptionUtil.decryptAll(encrypted));
+    }
+
+    @Test
+    void decrypt_recoversAfterBadInput() {
+        assertThrows(RuntimeException.class, () -> encryptionUtil.decrypt(Base64.getEncoder().encodeToString(new byte[7])));
+
+        assertEquals("1234567812345678", encryptionUtil.decrypt(encryptionUtil.encrypt("1234567812345678")));
+    }
+
+    @Test
+    void encrypt_withKeyRing_writesGcmWithKeyId() {
+        EncryptionUtil ring = new EncryptionUtil(new EncryptionKeyRing(KEY, Map.of("k1", K1), "k1"));
+
+        String first = ring.encrypt("1234567812345678");
+        String second = ring.encrypt("1234567812345678");
+
+        assertTrue(first.startsWith("k1:"));
+        assertNotEquals(first, second);
+        assertEquals("k1", EncryptionUtil.keyIdOf(first));
+        assertEquals("1234567812345678", ring.decrypt(first));
+        assertEquals("1234567812345678", ring.decrypt(second));
+    }
+
+    @Test
+    void decrypt_withKeyRing_readsLegacyAndRetiredKeys() {
+        String legacy = encryptionUtil.encrypt("1111222233334444");
+        String underK1 = new EncryptionUtil(new EncryptionKeyRing(KEY, Map.of("k1", K1), "k1"))
+                .encrypt("5555666677778888");
+
+        EncryptionUtil rotated = new EncryptionUtil(new EncryptionKeyRing(KEY, Map.of("k1", K1, "k2", K2), "k2"));
+
+        assertNull(EncryptionUtil.keyIdOf(legacy));
+        assertEquals("1111222233334444", rotated.decrypt(legacy));
+        assertEquals("5555666677778888", rotated.decrypt(underK1));
+        assertEquals("k2:", rotated.activeKeyPrefix());
+    }
+
+    @Test
+    void decrypt_tamperedGcmValue_fails() {
+        EncryptionUtil ring = new EncryptionUtil(new EncryptionKeyRing(KEY, Map.of("k1", K1), "k1"));
+        String encrypted = ring.encrypt("1234567812345678");
+        char last = encrypted.charAt(encrypted.length() - 3);
+        String tampered = encrypted.substring(0, encrypted.length() - 3)
+                + (last == 'A' ? 'B' : 'A') + encrypted.substring(encrypted.length() - 2);
+
+        assertThrows(RuntimeException.class, () -> ring.decrypt(tampered));
+    }
+
+    @Test
+    void keyRing_rejectsUnknownActiveKey() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new EncryptionKeyRing(KEY, Map.of("k1", K1), "k9"));
+    }
+}
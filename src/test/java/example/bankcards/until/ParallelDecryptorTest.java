@@ -0,0 +1,82 @@
+package example.bankcards.until;
+
+import example.bankcards.entity.CardNumber;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelDecryptorTest {
+
+    // chunks of 3 on two threads, so 20 numbers take seven chunks
+    private final ParallelDecryptor decryptor = new ParallelDecryptor(4, 3, 2);
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    @AfterEach
+    void tearDown() {
+        decryptor.shutdown();
+    }
+
+    @Test
+    void revealAll_keepsEveryNumberWithItsPlainValueInOrder() {
+        List<CardNumber> numbers = numbers(20, -1);
+
+        decryptor.revealAll(numbers);
+
+        for (int i = 0; i < numbers.size(); i++) {
+            assertTrue(numbers.get(i).isRevealed());
+            assertEquals("plain-" + i, numbers.get(i).reveal());
+        }
+        assertTrue(threads.stream().anyMatch(name -> name.startsWith("card-decrypt-")), threads.toString());
+    }
+
+    @Test
+    void revealAll_shortListStaysOnCallerThread() {
+        List<CardNumber> numbers = numbers(3, -1);
+
+        decryptor.revealAll(numbers);
+
+        assertEquals(Set.of(Thread.currentThread().getName()), threads);
+        assertEquals("plain-2", numbers.get(2).reveal());
+    }
+
+    @Test
+    void revealAll_emptyListDoesNothing() {
+        ParallelDecryptor alwaysParallel = new ParallelDecryptor(0, 3, 2);
+        try {
+            assertDoesNotThrow(() -> alwaysParallel.revealAll(List.of()));
+            assertDoesNotThrow(() -> decryptor.revealAll(List.of()));
+        } finally {
+            alwaysParallel.shutdown();
+        }
+    }
+
+    @Test
+    void revealAll_propagatesFailureOfOneChunk() {
+        List<CardNumber> numbers = numbers(20, 13);
+
+        RuntimeException failure = assertThrows(RuntimeException.class, () -> decryptor.revealAll(numbers));
+
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertEquals("bad ciphertext cipher-13", failure.getCause().getMessage());
+    }
+
+    private List<CardNumber> numbers(int count, int broken) {
+        List<CardNumber> numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            numbers.add(CardNumber.ofCiphertext("cipher-" + i, ciphertext -> {
+                threads.add(Thread.currentThread().getName());
+                if (ciphertext.equals("cipher-" + broken)) {
+                    throw new IllegalArgumentException("bad ciphertext " + ciphertext);
+                }
+                return ciphertext.replace("cipher-", "plain-");
+            }));
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,111 @@
+package example.bankcards.until;
+
+import example.bankcards.config.transfer.TransferProperties;
+import example.bankcards.dto.card.CardTransferRequestDto;
+import example.bankcards.entity.CardTransaction;
+import example.bankcards.entity.PendingTransfer;
+import example.bankcards.entity.PendingTransferStatus;
+import example.bankcards.exception.card.InsufficientFunds;
+import example.bankcards.repository.PendingTransferRepository;
+import example.bankcards.service.impl.BatchTransferApplier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PendingTransferSettlerTest {
+
+    private final PendingTransferRepository repository = mock(PendingTransferRepository.class);
+    private final BatchTransferApplier applier = mock(BatchTransferApplier.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PendingTransferSettler settler = new PendingTransferSettler(repository, applier,
+            mock(PlatformTransactionManager.class), new TransferProperties(), meterRegistry);
+
+    @Test
+    void settleBatch_marksEachTransferByOutcome() {
+        PendingTransfer first = pending(1L, 10L);
+        PendingTransfer second = pending(2L, 10L);
+        PendingTransfer otherOwner = pending(3L, 5L);
+        when(repository.lockPendingBatch(200)).thenReturn(List.of(first, second, otherOwner));
+        when(applier.apply(eq(10L), anyList(), eq(false))).thenReturn(List.of(
+                new BatchTransferApplier.Outcome(CardTransaction.builder().id(500L).build(), null),
+                new BatchTransferApplier.Outcome(null, new InsufficientFunds(1L))));
+        when(applier.apply(eq(5L), anyList(), eq(false))).thenReturn(List.of(
+                new BatchTransferApplier.Outcome(CardTransaction.builder().id(501L).build(), null)));
+
+        assertEquals(3, settler.settleBatch());
+
+        assertEquals(PendingTransferStatus.SETTLED, first.getStatus());
+        assertEquals(500L, first.getTransactionId());
+        assertEquals(PendingTransferStatus.REJECTED, second.getStatus());
+        assertTrue(second.getError().contains("Insufficient funds"));
+        assertEquals(501L, otherOwner.getTransactionId());
+        assertEquals(2.0, meterRegistry.get("cards.transfer.settled").tag("result", "settled").counter().count());
+
+        // owners are applied in ascending id order
+        var order = inOrder(applier);
+        order.verify(applier).apply(eq(5L), anyList(), eq(false));
+        order.verify(applier).apply(eq(10L), anyList(), eq(false));
+    }
+
+    @Test
+    void settleBatch_emptyTableDoesNothing() {
+        when(repository.lockPendingBatch(anyInt())).thenReturn(List.of());
+
+        assertEquals(0, settler.settleBatch());
+        verifyNoInteractions(applier);
+    }
+
+    @Test
+    void settleOneByOne_marksOnlyTheBrokenTransferFailed() {
+        PendingTransfer good = pending(1L, 10L);
+        PendingTransfer broken = pending(2L, 10L);
+        broken.setAmount(new BigDecimal("13.00"));
+        PendingTransfer after = pending(3L, 10L);
+        when(repository.lockPendingBatch(1)).thenReturn(List.of(good), List.of(broken), List.of(after), List.of());
+        when(applier.apply(eq(10L), anyList(), eq(false))).thenAnswer(invocation -> {
+            List<CardTransferRequestDto> legs = invocation.getArgument(1);
+            if (legs.get(0).getAmount().equals(new BigDecimal("13.00"))) {
+                throw new IllegalStateException("broken row");
+            }
+            return List.of(new BatchTransferApplier.Outcome(CardTransaction.builder().id(500L).build(), null));
+        });
+        when(repository.markFailed(eq(2L), anyString(), any())).thenReturn(1);
+
+        assertEquals(3, settler.settleOneByOne());
+
+        assertEquals(PendingTransferStatus.SETTLED, good.getStatus());
+        assertEquals(PendingTransferStatus.SETTLED, after.getStatus());
+        verify(repository).markFailed(eq(2L), eq("broken row"), any());
+        verify(repository, never()).markFailed(eq(1L), anyString(), any());
+        assertEquals(1.0, meterRegistry.get("cards.transfer.settled").tag("result", "failed").counter().count());
+    }
+
+    @Test
+    void settleOneByOne_leavesRowPendingWhenDatabaseIsUnavailable() {
+        when(repository.lockPendingBatch(1)).thenReturn(List.of(pending(1L, 10L)));
+        when(applier.apply(eq(10L), anyList(), eq(false)))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        assertThrows(DataAccessResourceFailureException.class, settler::settleOneByOne);
+        verify(repository, never()).markFailed(any(), any(), any());
+    }
+
+    private static PendingTransfer pending(Long id, Long userId) {
+        return PendingTransfer.builder()
+                .id(id)
+                .userId(userId)
+                .fromCardId(1L)
+                .toCardId(2L)
+                .amount(BigDecimal.TEN)
+                .status(PendingTransferStatus.PENDING)
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package example.bankcards.until;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionPartitionJobTest {
+
+    private static final YearMonth CURRENT = YearMonth.of(2025, 3);
+
+    @Test
+    void monthsToCreate_continuesAfterLastPartition() {
+        List<LocalDateTime> months = TransactionPartitionJob.monthsToCreate(
+                LocalDateTime.of(2025, 5, 1, 0, 0), CURRENT, 3);
+
+        assertEquals(List.of(LocalDateTime.of(2025, 5, 1, 0, 0), LocalDateTime.of(2025, 6, 1, 0, 0)), months);
+    }
+
+    @Test
+    void monthsToCreate_nothingWhenFarEnoughAhead() {
+        assertTrue(TransactionPartitionJob.monthsToCreate(LocalDateTime.of(2025, 7, 1, 0, 0), CURRENT, 3).isEmpty());
+    }
+
+    @Test
+    void monthsToCreate_startsAtCurrentMonthWithoutPartitions() {
+        List<LocalDateTime> months = TransactionPartitionJob.monthsToCreate(null, CURRENT, 1);
+
+        assertEquals(List.of(LocalDateTime.of(2025, 3, 1, 0, 0), LocalDateTime.of(2025, 4, 1, 0, 0)), months);
+    }
+
+    @Test
+    void parse_readsRangeBounds() {
+        TransactionPartitions.Partition partition = TransactionPartitions.Partition.parse("card_transactions_p202505",
+                "FOR VALUES FROM ('2025-05-01 00:00:00') TO ('2025-06-01 00:00:00')");
+
+        assertEquals(LocalDateTime.of(2025, 5, 1, 0, 0), partition.from());
+        assertEquals(LocalDateTime.of(2025, 6, 1, 0, 0), partition.to());
+    }
+
+    @Test
+    void parse_treatsMinValueAsOpenBound() {
+        TransactionPartitions.Partition partition = TransactionPartitions.Partition.parse("card_transactions_legacy",
+                "FOR VALUES FROM (MINVALUE) TO ('2025-04-01 00:00:00')");
+
+        assertNull(partition.from());
+        assertEquals(LocalDateTime.of(2025, 4, 1, 0, 0), partition.to());
+    }
+
+    @Test
+    void parse_skipsDefaultPartition() {
+        assertNull(TransactionPartitions.Partition.parse("card_transactions_default", "DEFAULT"));
+    }
+}